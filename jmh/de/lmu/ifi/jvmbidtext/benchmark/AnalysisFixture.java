@@ -0,0 +1,106 @@
+package de.lmu.ifi.jvmbidtext.benchmark;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.*;
+import com.ibm.wala.ipa.callgraph.impl.DefaultEntrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.slicer.SDG;
+import com.ibm.wala.ipa.slicer.Statement;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.graph.Graph;
+import de.lmu.ifi.jvmbidtext.analysis.AnalysisUtil;
+import de.lmu.ifi.jvmbidtext.graph.construction.TypingGraphUtil;
+import de.lmu.ifi.jvmbidtext.setup.CustomClassHierarchyFactory;
+import de.lmu.ifi.jvmbidtext.setup.SingleEntryPointAnalysis;
+import de.lmu.ifi.jvmbidtext.utils.AnalysisBudget;
+import de.lmu.ifi.jvmbidtext.utils.SimpleConfig;
+import de.lmu.ifi.jvmbidtext.utils.WalaUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Pruned SDGs of the first {@link #entrypoints} public methods of the benchmark target, built once per trial like
+ * {@link SingleEntryPointAnalysis} does. The target is a jar file or class folder given by the system property
+ * {@value #TARGET_PROPERTY}; the Gradle task uses the compiled classes of the analyzer itself
+ * unless another target is given with {@code -PjmhTarget}.
+ */
+@State(Scope.Benchmark)
+public class AnalysisFixture {
+    public static final String TARGET_PROPERTY = "bidtext.benchmark.target";
+
+    @Param({"1", "8", "32"})
+    public int entrypoints;
+
+    public final AnalysisBudget budget = AnalysisBudget.unlimited();
+    public List<EntrypointSdg> sdgs;
+
+    @Setup(Level.Trial)
+    public void buildSdgs() throws Exception {
+        String target = System.getProperty(TARGET_PROPERTY);
+        if (target == null) {
+            throw new IllegalStateException("No benchmark target given. Set -D" + TARGET_PROPERTY);
+        }
+        AnalysisCache cache = new AnalysisCacheImpl();
+        ClassHierarchy classHierarchy = new CustomClassHierarchyFactory().make(target, cache, false);
+        WalaUtil.setClassHierarchy(classHierarchy);
+
+        List<Entrypoint> selected = selectEntrypoints(classHierarchy, entrypoints);
+        AnalysisUtil.reset();
+        AnalysisUtil.registerEntrypointOrder(selected);
+        sdgs = new ArrayList<>();
+        for (Entrypoint entrypoint : selected) {
+            AnalysisOptions options = new AnalysisOptions(classHierarchy.getScope(), Set.of(entrypoint));
+            options.setReflectionOptions(AnalysisOptions.ReflectionOptions.FULL);
+            SSAPropagationCallGraphBuilder cgBuilder = Util.makeVanillaNCFABuilder(1, options, cache, classHierarchy);
+            CallGraph cg = SingleEntryPointAnalysis.buildCallGraph(options, cgBuilder, budget);
+            SDG<InstanceKey> sdg = SingleEntryPointAnalysis.buildSDG(cg, cgBuilder);
+            if (sdg.getNumberOfNodes() > SimpleConfig.getThresholdContextInsensitive()) {
+                continue;
+            }
+            sdgs.add(new EntrypointSdg(entrypoint, SingleEntryPointAnalysis.pruneSDG(sdg), cg.getFakeRootNode()));
+        }
+    }
+
+    /**
+     * Build the complete TypingGraphs of all entrypoints and register their field indexes in
+     * {@link TypingGraphUtil#entry2Fields}, as the text collection after the analysis expects them. Sinks are recorded
+     * as a side effect.
+     */
+    public void registerTypingGraphs() {
+        TypingGraphUtil.entry2Fields.clear();
+        for (EntrypointSdg sdg : sdgs) {
+            TypingGraphUtil.buildTypingGraph(sdg.entrypoint(), sdg.sdg(), sdg.fakeRootNode(), budget);
+        }
+    }
+
+    private static List<Entrypoint> selectEntrypoints(ClassHierarchy classHierarchy, int count) {
+        List<IMethod> methods = new ArrayList<>();
+        for (IClass klass : classHierarchy) {
+            if (!klass.getClassLoader().getReference().equals(ClassLoaderReference.Application) ||
+                    klass.isInterface()) {
+                continue;
+            }
+            for (IMethod method : klass.getDeclaredMethods()) {
+                if (method.isPublic() && !method.isAbstract() && !method.isClinit()) {
+                    methods.add(method);
+                }
+            }
+        }
+        return methods.stream()
+                .sorted(Comparator.comparing(IMethod::getSignature))
+                .limit(count)
+                .<Entrypoint>map(method -> new DefaultEntrypoint(method, classHierarchy))
+                .toList();
+    }
+
+    public record EntrypointSdg(Entrypoint entrypoint, Graph<Statement> sdg, CGNode fakeRootNode) {
+    }
+}
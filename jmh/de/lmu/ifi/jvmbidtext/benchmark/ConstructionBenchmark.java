@@ -0,0 +1,40 @@
+package de.lmu.ifi.jvmbidtext.benchmark;
+
+import de.lmu.ifi.jvmbidtext.analysis.AnalysisUtil;
+import de.lmu.ifi.jvmbidtext.benchmark.AnalysisFixture.EntrypointSdg;
+import de.lmu.ifi.jvmbidtext.graph.construction.TypingGraphBuilder;
+import de.lmu.ifi.jvmbidtext.utils.PhaseMetrics;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TypingGraph construction from the pruned SDGs of the fixture, without propagation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConstructionBenchmark {
+
+    @Benchmark
+    public void construct(AnalysisFixture fixture, Blackhole blackhole) {
+        for (EntrypointSdg sdg : fixture.sdgs) {
+            blackhole.consume(new TypingGraphBuilder(sdg.entrypoint(), sdg.sdg(), sdg.fakeRootNode(),
+                    fixture.budget).buildWithoutPropagation());
+        }
+    }
+
+    /**
+     * Construction records the discovered sinks and its phase metrics, which would otherwise pile up over all
+     * invocations.
+     */
+    @TearDown(Level.Iteration)
+    public void forgetSinks() {
+        AnalysisUtil.reset();
+        PhaseMetrics.reset();
+    }
+}
@@ -0,0 +1,156 @@
+package de.lmu.ifi.jvmbidtext.benchmark;
+
+import de.lmu.ifi.jvmbidtext.analysis.NegationDetector;
+import edu.stanford.nlp.ling.HasWord;
+import edu.stanford.nlp.process.DocumentPreprocessor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Negation detection for sentences with sensitive terms, per {@link NegationDetector.Mode}. The setup compares the
+ * verdicts of the mode with the ones of the PCFG parser. The precision of the sensitive verdicts, i.e. the share of
+ * the sentences that the mode reports as not negated that the PCFG parser reports as not negated as well, and the
+ * agreement of all verdicts are reported as secondary results of the benchmark ({@link Verdicts}). The setup fails if
+ * HEURISTIC_PCFG does not agree with PCFG on every sentence.
+ * <p>
+ * The built-in sentences are a few hand-written log and exception messages. The system property
+ * {@value #SENTENCES_PROPERTY} replaces them by the sentences of a file, one per line, or by the string literals of
+ * the Java files in a folder, e.g. a checkout of the LeakyCode examples.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NegationDetectionBenchmark {
+    public static final String SENTENCES_PROPERTY = "bidtext.benchmark.sentences";
+    private static final Pattern STRING_LITERAL = Pattern.compile("\"((?:[^\"\\\\\\n]|\\\\.)*)\"");
+
+    private static final String[] SENTENCES = {
+            "Do not log the password of the user.",
+            "Don't share your secret key with anyone.",
+            "The password should not be written to the log.",
+            "Access tokens shall not be stored in plain text.",
+            "User entered the password for the account.",
+            "Sending the email address of the customer to the server.",
+            "The access token could not be refreshed.",
+            "I do not know the account number of the user.",
+            "Never print the secret key.",
+            "Invalid phone number, please try again.",
+            "The first name of the user is missing.",
+            "Your date of birth is required for the registration.",
+            "The iban must not be empty.",
+            "No address found for the given user.",
+            "Storing the tax id of the applicant.",
+            "Could not parse the bearer token of the request.",
+            "The account id is not valid.",
+            "Please enter your passport number.",
+            "Gender and nationality of the user were updated.",
+            "The key was not found in the key store."
+    };
+
+    @Param({"PCFG", "HEURISTIC", "HEURISTIC_PCFG", "HEURISTIC_NEURAL"})
+    public String mode;
+
+    private NegationDetector detector;
+    private List<List<? extends HasWord>> sentences;
+    private double precision;
+    private double agreement;
+
+    @Setup(Level.Trial)
+    public void compareWithPcfg() throws IOException {
+        sentences = new ArrayList<>();
+        String file = System.getProperty(SENTENCES_PROPERTY);
+        List<String> texts = file != null ? readTexts(Path.of(file)) : List.of(SENTENCES);
+        for (String text : texts) {
+            for (List<? extends HasWord> sentence : new DocumentPreprocessor(new StringReader(text))) {
+                sentences.add(sentence);
+            }
+        }
+        detector = NegationDetector.of(NegationDetector.Mode.valueOf(mode));
+        NegationDetector reference = NegationDetector.of(NegationDetector.Mode.PCFG);
+        int sensitive = 0;
+        int truePositives = 0;
+        int agreements = 0;
+        for (List<? extends HasWord> sentence : sentences) {
+            boolean negated = detector.isNegated(sentence);
+            boolean expected = reference.isNegated(sentence);
+            if (!negated) {
+                sensitive++;
+                if (!expected) {
+                    truePositives++;
+                }
+            }
+            if (negated == expected) {
+                agreements++;
+            }
+        }
+        if (mode.equals(NegationDetector.Mode.HEURISTIC_PCFG.name()) && agreements != sentences.size()) {
+            throw new IllegalStateException(String.format("HEURISTIC_PCFG agrees with PCFG on %d of %d sentences",
+                    agreements, sentences.size()));
+        }
+        precision = sensitive == 0 ? 1 : (double) truePositives / sensitive;
+        agreement = sentences.isEmpty() ? 1 : (double) agreements / sentences.size();
+    }
+
+    @Benchmark
+    public void detect(Blackhole blackhole, Verdicts verdicts) {
+        for (List<? extends HasWord> sentence : sentences) {
+            blackhole.consume(detector.isNegated(sentence));
+        }
+    }
+
+    /**
+     * @return the lines of a file, or the string literals of the Java files in a folder
+     */
+    private static List<String> readTexts(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return Files.readAllLines(path);
+        }
+        List<String> texts = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path javaFile : files.filter(file -> file.toString().endsWith(".java")).sorted().toList()) {
+                Matcher literal = STRING_LITERAL.matcher(Files.readString(javaFile));
+                while (literal.find()) {
+                    texts.add(literal.group(1));
+                }
+            }
+        }
+        return texts;
+    }
+
+    /**
+     * The comparison with the PCFG parser as secondary results, so they end up in the results file next to the
+     * scores.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Verdicts {
+        /**
+         * share of the sentences reported as not negated that the PCFG parser reports as not negated as well
+         */
+        public double precision;
+        /**
+         * share of the sentences with the same verdict as the PCFG parser
+         */
+        public double agreement;
+
+        @Setup(Level.Iteration)
+        public void compareWithPcfg(NegationDetectionBenchmark benchmark) {
+            precision = benchmark.precision;
+            agreement = benchmark.agreement;
+        }
+    }
+}
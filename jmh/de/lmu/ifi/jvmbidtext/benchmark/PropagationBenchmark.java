@@ -0,0 +1,77 @@
+package de.lmu.ifi.jvmbidtext.benchmark;
+
+import de.lmu.ifi.jvmbidtext.analysis.AnalysisUtil;
+import de.lmu.ifi.jvmbidtext.benchmark.AnalysisFixture.EntrypointSdg;
+import de.lmu.ifi.jvmbidtext.graph.construction.TypingGraphBuilder;
+import de.lmu.ifi.jvmbidtext.graph.model.TypingGraph;
+import de.lmu.ifi.jvmbidtext.graph.propagation.PropagationWorklist;
+import de.lmu.ifi.jvmbidtext.graph.propagation.Propagator;
+import de.lmu.ifi.jvmbidtext.utils.PhaseMetrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The two propagation passes on freshly constructed TypingGraphs. Propagation modifies the graphs, so they are
+ * constructed again before every invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PropagationBenchmark {
+    @Param({"FIFO", "REVERSE_POSTORDER", "LARGEST_DELTA"})
+    public PropagationWorklist.Order order;
+
+    @Benchmark
+    public void passOne(UnpropagatedGraphs graphs, AnalysisFixture fixture) {
+        for (TypingGraph graph : graphs.graphs) {
+            new Propagator(graph, fixture.budget, order).propagatePassOne();
+        }
+    }
+
+    @Benchmark
+    public void passTwo(ForwardPropagatedGraphs graphs, AnalysisFixture fixture) {
+        for (TypingGraph graph : graphs.graphs) {
+            new Propagator(graph, fixture.budget, order).propagatePassTwo();
+        }
+    }
+
+    private static List<TypingGraph> construct(AnalysisFixture fixture) {
+        AnalysisUtil.reset();
+        PhaseMetrics.reset();
+        List<TypingGraph> graphs = new ArrayList<>();
+        for (EntrypointSdg sdg : fixture.sdgs) {
+            graphs.add(new TypingGraphBuilder(sdg.entrypoint(), sdg.sdg(), sdg.fakeRootNode(), fixture.budget)
+                    .buildWithoutPropagation());
+        }
+        return graphs;
+    }
+
+    @State(Scope.Thread)
+    public static class UnpropagatedGraphs {
+        List<TypingGraph> graphs;
+
+        @Setup(Level.Invocation)
+        public void construct(AnalysisFixture fixture) {
+            graphs = PropagationBenchmark.construct(fixture);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ForwardPropagatedGraphs {
+        List<TypingGraph> graphs;
+
+        @Setup(Level.Invocation)
+        public void constructAndPropagateForward(AnalysisFixture fixture) {
+            graphs = PropagationBenchmark.construct(fixture);
+            for (TypingGraph graph : graphs) {
+                new Propagator(graph).propagatePassOne();
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package de.lmu.ifi.jvmbidtext.benchmark;
+
+import de.lmu.ifi.jvmbidtext.analysis.AnalysisUtil;
+import de.lmu.ifi.jvmbidtext.analysis.TextClassificationCache;
+import de.lmu.ifi.jvmbidtext.utils.PhaseMetrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Dumping the reports for all sinks discovered in the TypingGraphs of the fixture, including the text collection and
+ * the text analysis for every sink. The reports are written to a temporary folder. The text classification cache is
+ * cleared before every invocation, so that the text analysis is measured and not the lookup of its results.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportBenchmark {
+    private String previousReportFolder;
+    private Path reportFolder;
+
+    @Setup(Level.Trial)
+    public void buildTypingGraphs(AnalysisFixture fixture) throws IOException {
+        fixture.registerTypingGraphs();
+        previousReportFolder = AnalysisUtil.getReportFolder();
+        reportFolder = Files.createTempDirectory("bidtext-benchmark-report");
+        AnalysisUtil.setReportFolder(reportFolder.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteReports() throws IOException {
+        AnalysisUtil.setReportFolder(previousReportFolder);
+        try (Stream<Path> pathStream = Files.walk(reportFolder)) {
+            pathStream.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void forgetPhaseMetrics() {
+        PhaseMetrics.reset();
+    }
+
+    @Setup(Level.Invocation)
+    public void forgetClassifications() {
+        TextClassificationCache.reset();
+    }
+
+    @Benchmark
+    public void dumpTextForSinks() throws IOException {
+        AnalysisUtil.dumpTextForSinks();
+    }
+}
@@ -0,0 +1,76 @@
+package de.lmu.ifi.jvmbidtext.benchmark;
+
+import com.ibm.wala.ipa.slicer.Statement;
+import de.lmu.ifi.jvmbidtext.analysis.TextAnalysis;
+import de.lmu.ifi.jvmbidtext.analysis.TextClassificationCache;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matching of the sensitive terms in texts that reach a sink. The texts are generated identifiers, query parameters
+ * and URLs like the ones that typically reach sinks. None of them contains a space, so the natural language parser is
+ * not involved and only the term matching is measured. The text classification cache is cleared before every
+ * invocation, otherwise only the first invocation would match the terms.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SensitiveTermBenchmark {
+    private static final String[] WORDS = {"user", "account", "id", "first", "name", "email", "phone", "password",
+            "access", "token", "session", "request", "response", "button", "click", "count", "page", "size", "order",
+            "item", "price", "total", "address", "city", "zip", "code", "status", "message", "value", "result"};
+
+    @Param({"100", "1000", "10000"})
+    public int texts;
+
+    private Map<String, List<Statement>> generatedTexts;
+
+    @Setup(Level.Trial)
+    public void generateTexts() {
+        Random random = new Random(42);
+        generatedTexts = new HashMap<>();
+        while (generatedTexts.size() < texts) {
+            String text = switch (random.nextInt(3)) {
+                case 0 -> camelCase(random, 1 + random.nextInt(3));
+                case 1 -> "&" + word(random) + "_" + word(random) + "=";
+                default -> "https://example.com/" + word(random) + "?" + word(random) + "=1&" +
+                        camelCase(random, 2) + "=2";
+            };
+            generatedTexts.put(text, List.of());
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void forgetClassifications() {
+        TextClassificationCache.reset();
+    }
+
+    @Benchmark
+    public void analyze(Blackhole blackhole) {
+        TextAnalysis textAnalysis = new TextAnalysis();
+        textAnalysis.analyze(generatedTexts);
+        blackhole.consume(textAnalysis.getSensitivityIndicators());
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static String camelCase(Random random, int words) {
+        StringBuilder text = new StringBuilder(word(random));
+        for (int i = 1; i < words; i++) {
+            String word = word(random);
+            text.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+        }
+        return text.toString();
+    }
+}
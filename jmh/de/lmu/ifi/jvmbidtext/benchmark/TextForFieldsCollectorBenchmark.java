@@ -0,0 +1,56 @@
+package de.lmu.ifi.jvmbidtext.benchmark;
+
+import com.ibm.wala.ipa.slicer.Statement;
+import de.lmu.ifi.jvmbidtext.analysis.FieldIndex;
+import de.lmu.ifi.jvmbidtext.analysis.FieldIndex.RecordSummary;
+import de.lmu.ifi.jvmbidtext.analysis.TextForFieldsCollector;
+import de.lmu.ifi.jvmbidtext.graph.construction.TypingGraphUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collection of the texts that reach the typing records with field accesses, in both directions, across the field
+ * indexes of all entrypoints of the fixture.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TextForFieldsCollectorBenchmark {
+    private List<IndexRecord> recordsWithFields;
+
+    @Setup(Level.Trial)
+    public void buildTypingGraphs(AnalysisFixture fixture) {
+        fixture.registerTypingGraphs();
+        recordsWithFields = new ArrayList<>();
+        for (FieldIndex index : TypingGraphUtil.entry2Fields.values()) {
+            for (RecordSummary record : index.getFieldRecords()) {
+                if (!record.inputFields().isEmpty() || !record.outputFields().isEmpty()) {
+                    recordsWithFields.add(new IndexRecord(index, record));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void collect(Blackhole blackhole) {
+        for (IndexRecord indexRecord : recordsWithFields) {
+            Map<String, List<Statement>> texts = new HashMap<>();
+            Set<Integer> constants = new HashSet<>();
+            TextForFieldsCollector collector =
+                    new TextForFieldsCollector(indexRecord.index(), indexRecord.record(), texts, constants);
+            collector.collect(true);
+            collector.collect(false);
+            blackhole.consume(texts);
+            blackhole.consume(constants);
+        }
+    }
+
+    private record IndexRecord(FieldIndex index, RecordSummary record) {
+    }
+}
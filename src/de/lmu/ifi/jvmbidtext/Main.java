@@ -5,10 +5,18 @@ import de.lmu.ifi.jvmbidtext.utils.SimpleConfig;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.concurrent.*;
 
 public class Main {
     private static final Logger logger = LogManager.getLogger(Main.class);
+    // exit codes of an analysis that did not finish normally
+    static final int EXIT_CRASH = 1;
+    static final int EXIT_TIMEOUT = 2;
+    // file the peak resident set size of the JVM is written to at exit, set by the suite
+    static final String PEAK_RSS_FILE_PROPERTY = "bidtext.peakRssFile";
     private static long timeout;
 
     /**
@@ -26,16 +34,15 @@ public class Main {
             throw new IllegalArgumentException(
                     "Please specify path to the system under test as the first and only argument.");
         }
+        loadTimeout();
+        int exitCode = 0;
         try {
-            timeout = SimpleConfig.getTimeout();
-            logger.info("Set TIMEOUT to {} minutes.", timeout);
-        } catch (Exception e) {
-            logger.warn("Invalid TIMEOUT setting: Please update the configuration file");
-        }
-        try {
-            doAnalysis(pathToJarOrClassesRootFolder);
+            if (!doAnalysis(pathToJarOrClassesRootFolder)) {
+                exitCode = EXIT_TIMEOUT;
+            }
         } catch (Throwable e) {
             logger.error("Analysis crashed. See error for details.", e);
+            exitCode = EXIT_CRASH;
         }
         long analysisEnd = System.currentTimeMillis();
         String time =
@@ -58,9 +65,42 @@ public class Main {
         }
         logger.info("Total Time: {} seconds.", time);
         logger.info("Total Memory: {} [{} bytes]", mem, memUsed);
+        writePeakRss();
+        if (exitCode != 0) {
+            System.exit(exitCode);
+        }
     }
 
-    public static void doAnalysis(String pathToJarOrClassesRootFolder) throws Throwable {
+    /**
+     * The suite samples the memory of the JVM while it runs, which misses the last moments of the JVM. The JVM
+     * therefore reports its own peak once more at exit.
+     */
+    private static void writePeakRss() {
+        String peakRssFile = System.getProperty(PEAK_RSS_FILE_PROPERTY);
+        if (peakRssFile == null) {
+            return;
+        }
+        try {
+            Files.writeString(Path.of(peakRssFile),
+                    String.valueOf(SuiteMain.readPeakRssKb(ProcessHandle.current().pid())));
+        } catch (IOException e) {
+            logger.warn("Failed to write the peak RSS to {}", peakRssFile, e);
+        }
+    }
+
+    static void loadTimeout() {
+        try {
+            timeout = SimpleConfig.getTimeout();
+            logger.info("Set TIMEOUT to {} minutes.", timeout);
+        } catch (Exception e) {
+            logger.warn("Invalid TIMEOUT setting: Please update the configuration file");
+        }
+    }
+
+    /**
+     * @return false if the analysis was stopped by the timeout or interrupted; its results may be incomplete
+     */
+    public static boolean doAnalysis(String pathToJarOrClassesRootFolder) throws Throwable {
         logger.info("Start Analysis...");
         ProgramAnalysis analysis = new ProgramAnalysis(pathToJarOrClassesRootFolder);
         try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
@@ -68,14 +108,17 @@ public class Main {
             try {
                 try {
                     future.get(timeout, TimeUnit.MINUTES);
+                    return true;
                 } catch (InterruptedException e) {
                     logger.error("Analysis interrupted: {}", e.getMessage());
+                    return false;
                 } catch (ExecutionException e) {
                     logger.error("Analysis failed with an exception: {}", e.getMessage());
                     throw e;
                 } catch (TimeoutException e) {
                     analysis.signalTimeout();
                     logger.warn("Analysis timeout after {} {}!", timeout, TimeUnit.MINUTES);
+                    return false;
                 }
             } finally {
                 if (!future.isDone()) {
@@ -1,27 +1,34 @@
 package de.lmu.ifi.jvmbidtext;
 
 import de.lmu.ifi.jvmbidtext.analysis.AnalysisUtil;
+import de.lmu.ifi.jvmbidtext.setup.CustomClassHierarchyFactory;
+import de.lmu.ifi.jvmbidtext.utils.SimpleConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LoggerContext;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.util.Comparator;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.stream.Stream;
 
 public class SuiteMain {
 
+    private static final String SUMMARY_FILE = "suite-summary.csv";
+    private static final String CONSOLE_LOG_FILE = "console.log";
+
     /**
      * Run analysis on all test apps in the given root test directory. Reports (log and sink descriptions) are saved in
-     * the test app's directory.
+     * the test app's directory. Up to SUITE_WORKERS analyses run concurrently in separate JVMs. With SUITE_MODE
+     * IN_PROCESS, the test apps are analyzed one after another in this JVM instead. A summary with wall time, peak
+     * memory and number of sink reports per test app is written to the report folder.
      *
      * @param args first arg should be folder that contains subfolders for all test apps, possibly nested
      * @throws IOException if there is an error reading or writing files
      */
-    public static void main(String[] args) throws IOException {
+    public static void main(String[] args) throws IOException, InterruptedException {
         if (args.length != 1) {
             throw new IllegalArgumentException("Usage: java -jar SuiteMain.jar <path-to-test-apps>");
         }
@@ -35,13 +42,44 @@ public class SuiteMain {
         }
         System.out.println("Test apps folder: " + testAppsFolder);
 
+        List<Path> targets;
         try (Stream<Path> paths = Files.walk(directoryRoot)) {
-            paths.filter(Files::isDirectory).filter(SuiteMain::isDeepestLevel).forEach(SuiteMain::runAnalysis);
+            targets = paths.filter(Files::isDirectory).filter(SuiteMain::isDeepestLevel).toList();
+        }
+        long suiteStart = System.currentTimeMillis();
+        if ("IN_PROCESS".equalsIgnoreCase(SimpleConfig.getSuiteMode())) {
+            System.out.println("Analyze " + targets.size() + " test apps in-process");
+            writeSummary(runAnalysesInProcess(targets), System.currentTimeMillis() - suiteStart);
+            return;
+        }
+        int workers = Math.max(1, Math.min(SimpleConfig.getSuiteWorkers(), targets.size()));
+        System.out.println("Analyze " + targets.size() + " test apps with " + workers + " workers");
+
+        List<JobResult> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<JobResult>> futures = new ArrayList<>();
+            for (Path target : targets) {
+                // with concurrent jobs, the output of each job goes to its own report folder
+                futures.add(executor.submit(() -> runAnalysis(target, workers > 1)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    System.out.println("Analysis job failed for " + targets.get(i) + ": " + e.getCause());
+                    e.getCause().printStackTrace(System.out);
+                    results.add(new JobResult(targets.get(i), "ERROR", 0, -1, 0));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
         }
+        writeSummary(results, System.currentTimeMillis() - suiteStart);
     }
 
     private static boolean isDeepestLevel(Path path) {
-        if (path.endsWith(AnalysisUtil.REPORT_FOLDER)) {
+        if (path.endsWith(AnalysisUtil.REPORT_FOLDER_NAME)) {
             return false;
         }
         try (Stream<Path> paths = Files.walk(path)) {
@@ -49,35 +87,167 @@ public class SuiteMain {
                     subpath.toFile().getAbsolutePath().endsWith(".java") ||
                             subpath.toFile().getAbsolutePath().endsWith(".class") ||
                             Objects.equals(path, subpath) ||
-                            path.relativize(subpath).startsWith(AnalysisUtil.REPORT_FOLDER));
+                            path.relativize(subpath).startsWith(AnalysisUtil.REPORT_FOLDER_NAME));
         } catch (IOException e) {
             return false;
         }
     }
 
-    private static void runAnalysis(Path target) {
+    /**
+     * Run the analysis of a single test app in a separate JVM. The JVM writes its report directly into the report
+     * folder of the test app, so concurrent jobs do not share any output files.
+     */
+    private static JobResult runAnalysis(Path target, boolean redirectOutput) throws IOException,
+            InterruptedException {
         System.out.println("--------------------------------------------------");
         System.out.println("Running analysis on: " + target);
+        Path reportInTarget = target.resolve(AnalysisUtil.REPORT_FOLDER_NAME).toAbsolutePath();
+        clearReportFolderFromTarget(target);
+        Files.createDirectories(reportInTarget);
+
+        List<String> jvmArgs = new ArrayList<>();
+        jvmArgs.add("-D" + AnalysisUtil.REPORT_FOLDER_PROPERTY + "=" + reportInTarget);
+        String maxHeap = SimpleConfig.getSuiteJobMaxHeap();
+        if (maxHeap != null && !maxHeap.isBlank()) {
+            jvmArgs.add("-Xmx" + maxHeap);
+        }
+        File outputFile = redirectOutput ? reportInTarget.resolve(CONSOLE_LOG_FILE).toFile() : null;
+        Path peakRssFile = Files.createTempFile("bidtext-peak-rss", ".txt");
+        jvmArgs.add("-D" + Main.PEAK_RSS_FILE_PROPERTY + "=" + peakRssFile);
+
+        long start = System.currentTimeMillis();
+        long wallTime;
+        long peakRssKb = -1;
+        String status = null;
         try {
-            execJavaProcess(Main.class, List.of(target.toString()));
+            Process process = startJavaProcess(Main.class, jvmArgs, List.of(target.toString()), outputFile);
+            long deadline = start + TimeUnit.MINUTES.toMillis(SimpleConfig.getSuiteJobTimeout());
+            // Main stops the analysis itself after TIMEOUT; the job timeout is the hard limit for hanging JVMs
+            while (!process.waitFor(1, TimeUnit.SECONDS)) {
+                peakRssKb = Math.max(peakRssKb, readPeakRssKb(process.pid()));
+                if (SimpleConfig.getSuiteJobTimeout() > 0 && System.currentTimeMillis() > deadline) {
+                    process.destroyForcibly().waitFor();
+                    status = "KILLED_AFTER_TIMEOUT";
+                    break;
+                }
+            }
+            wallTime = System.currentTimeMillis() - start;
+            if (status == null) {
+                status = statusOf(process.exitValue());
+                peakRssKb = Math.max(peakRssKb, readReportedPeakRssKb(peakRssFile));
+            }
+        } finally {
+            Files.deleteIfExists(peakRssFile);
+        }
+        JobResult result = new JobResult(target, status, wallTime, peakRssKb, countSinkReports(reportInTarget));
+        System.out.println("Finished analysis on: " + target + " (" + result.status() + ", " +
+                result.sinkReports() + " sink reports)");
+        return result;
+    }
+
+    /**
+     * Analyze all targets in this JVM. The JDK classes are loaded once and shared by the class hierarchies of all
+     * targets, log4j and the CoreNLP parser are initialized once. The log file and the reports are redirected to the
+     * report folder of the current target.
+     */
+    private static List<JobResult> runAnalysesInProcess(List<Path> targets) throws IOException {
+        CustomClassHierarchyFactory.enablePrimordialLoaderReuse();
+        Main.loadTimeout();
+        List<JobResult> results = new ArrayList<>();
+        for (Path target : targets) {
+            System.out.println("--------------------------------------------------");
+            System.out.println("Running analysis on: " + target);
+            Path reportInTarget = target.resolve(AnalysisUtil.REPORT_FOLDER_NAME).toAbsolutePath();
             clearReportFolderFromTarget(target);
-            copyReport(target);
-        } catch (Throwable e) {
-            // Exceptions from analysis already logged by Main
-            // Exceptions from copying report are unexpected and should be rethrown
-            throw new RuntimeException(e);
+            Files.createDirectories(reportInTarget);
+            switchReportFolder(reportInTarget);
+
+            long start = System.currentTimeMillis();
+            String status;
+            try {
+                status = Main.doAnalysis(target.toString()) ? "OK" : "TIMEOUT";
+            } catch (Throwable e) {
+                // already logged by Main
+                status = "ERROR";
+            }
+            long wallTime = System.currentTimeMillis() - start;
+            // the memory of a single target cannot be measured in a shared JVM
+            results.add(new JobResult(target, status, wallTime, -1, countSinkReports(reportInTarget)));
+        }
+        return results;
+    }
+
+    private static void switchReportFolder(Path reportFolder) {
+        System.setProperty(AnalysisUtil.REPORT_FOLDER_PROPERTY, reportFolder.toString());
+        AnalysisUtil.setReportFolder(reportFolder.toString());
+        // re-evaluates the report folder in the file name of the log file appender
+        ((LoggerContext) LogManager.getContext(false)).reconfigure();
+    }
+
+    private static String statusOf(int exitCode) {
+        return switch (exitCode) {
+            case 0 -> "OK";
+            case Main.EXIT_CRASH -> "ERROR";
+            case Main.EXIT_TIMEOUT -> "TIMEOUT";
+            default -> "EXIT_" + exitCode;
+        };
+    }
+
+    /**
+     * @return peak resident set size of the process in kB as reported by the Linux proc file system, -1 if not
+     * available
+     */
+    static long readPeakRssKb(long pid) {
+        Path status = Path.of("/proc", String.valueOf(pid), "status");
+        try (Stream<String> lines = Files.lines(status)) {
+            return lines.filter(line -> line.startsWith("VmHWM:"))
+                    .map(line -> line.substring("VmHWM:".length()).replace("kB", "").trim())
+                    .mapToLong(Long::parseLong)
+                    .findFirst()
+                    .orElse(-1);
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return peak resident set size in kB that the process wrote to the given file at exit, -1 if not available
+     */
+    private static long readReportedPeakRssKb(Path peakRssFile) {
+        try {
+            return Long.parseLong(Files.readString(peakRssFile).trim());
+        } catch (IOException | NumberFormatException e) {
+            return -1;
         }
     }
 
-    private static void copyReport(Path target) throws IOException {
-        Path reportDir = Path.of(AnalysisUtil.REPORT_FOLDER);
-        Path reportInTarget = target.resolve(AnalysisUtil.REPORT_FOLDER);
-        System.out.println("Copying report to: " + reportInTarget);
-        copyFolderRecursive(reportDir, reportInTarget);
+    private static int countSinkReports(Path reportInTarget) throws IOException {
+        try (Stream<Path> paths = Files.list(reportInTarget)) {
+            return (int) paths.filter(path -> path.getFileName().toString().matches("[0-9]+\\.[a-zA-Z]*\\.txt"))
+                    .count();
+        }
+    }
+
+    private static void writeSummary(List<JobResult> results, long suiteWallTime) throws IOException {
+        Path summary = Path.of(AnalysisUtil.REPORT_FOLDER_NAME, SUMMARY_FILE);
+        Files.createDirectories(summary.getParent());
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(summary))) {
+            writer.println("app,status,wall_time_s,peak_rss_mb,sink_reports");
+            for (JobResult result : results) {
+                writer.printf(Locale.ROOT, "\"%s\",%s,%.3f,%s,%d%n", result.target(), result.status(),
+                        result.wallTimeMillis() / 1000.0,
+                        result.peakRssKb() < 0 ? "" : String.valueOf(result.peakRssKb() / 1024),
+                        result.sinkReports());
+            }
+        }
+        long failed = results.stream().filter(result -> !result.status().equals("OK")).count();
+        System.out.println("--------------------------------------------------");
+        System.out.printf(Locale.ROOT, "Analyzed %d test apps in %.3f seconds, %d not OK. Summary: %s%n",
+                results.size(), suiteWallTime / 1000.0, failed, summary.toAbsolutePath());
     }
 
     private static void clearReportFolderFromTarget(Path target) throws IOException {
-        Path reportInTarget = target.resolve(AnalysisUtil.REPORT_FOLDER);
+        Path reportInTarget = target.resolve(AnalysisUtil.REPORT_FOLDER_NAME);
         if (!reportInTarget.toFile().exists()) {
             return;
         }
@@ -88,34 +258,13 @@ public class SuiteMain {
         }
     }
 
-    /**
-     * <a href="https://stackoverflow.com/questions/29076439/java-8-copy-directory-recursively/60621544#60621544">Adapted from this Stackoverflow Answer</a>
-     */
-    public static void copyFolderRecursive(Path source, Path target, CopyOption... options)
-            throws IOException {
-        Files.walkFileTree(source, new SimpleFileVisitor<>() {
-
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
-                    throws IOException {
-                Files.createDirectories(target.resolve(source.relativize(dir).toString()));
-                return FileVisitResult.CONTINUE;
-            }
-
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
-                    throws IOException {
-                Files.copy(file, target.resolve(source.relativize(file).toString()), options);
-                return FileVisitResult.CONTINUE;
-            }
-        });
-    }
-
     /**
      * <a href="https://stackoverflow.com/a/723914">Adapted from this Stackoverflow Answer</a>
+     *
+     * @param outputFile if null, the process inherits the IO of this process
      */
-    public static int execJavaProcess(Class<?> klass, List<String> args) throws IOException,
-            InterruptedException {
+    public static Process startJavaProcess(Class<?> klass, List<String> jvmArgs, List<String> args,
+                                           File outputFile) throws IOException {
         String javaHome = System.getProperty("java.home");
         String javaBin = javaHome +
                 File.separator + "bin" +
@@ -125,6 +274,7 @@ public class SuiteMain {
 
         List<String> command = new LinkedList<>();
         command.add(javaBin);
+        command.addAll(jvmArgs);
         command.add("-cp");
         command.add(classpath);
         command.add(className);
@@ -133,10 +283,14 @@ public class SuiteMain {
         }
 
         ProcessBuilder builder = new ProcessBuilder(command);
-
-        Process process = builder.inheritIO().start();
-        process.waitFor();
-        return process.exitValue();
+        if (outputFile == null) {
+            builder.inheritIO();
+        } else {
+            builder.redirectErrorStream(true).redirectOutput(outputFile);
+        }
+        return builder.start();
     }
 
+    private record JobResult(Path target, String status, long wallTimeMillis, long peakRssKb, int sinkReports) {
+    }
 }
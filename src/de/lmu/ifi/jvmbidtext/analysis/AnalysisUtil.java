@@ -1,91 +1,308 @@
 package de.lmu.ifi.jvmbidtext.analysis;
 
+import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.slicer.Statement;
 import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import de.lmu.ifi.jvmbidtext.analysis.FieldIndex.RecordSummary;
+import de.lmu.ifi.jvmbidtext.analysis.IncrementalAnalysis.StoredSink;
 import de.lmu.ifi.jvmbidtext.graph.model.TypingGraph;
-import de.lmu.ifi.jvmbidtext.graph.model.TypingNode;
-import de.lmu.ifi.jvmbidtext.graph.model.TypingRecord;
-import de.lmu.ifi.jvmbidtext.graph.model.TypingSubGraph;
+import de.lmu.ifi.jvmbidtext.utils.PhaseMetrics;
+import de.lmu.ifi.jvmbidtext.utils.SimpleConfig;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 public class AnalysisUtil {
     private static final Logger logger = LogManager.getLogger(AnalysisUtil.class);
 
-    private static final Set<DiscoveredSink> SINKS = new HashSet<>();
-    public static final String REPORT_FOLDER = "report";
+    // sinks are recorded concurrently by all entrypoint workers; the value is the representative of its key
+    private static final Map<DiscoveredSink, DiscoveredSink> SINKS = new ConcurrentHashMap<>();
+    // entrypoints by signature, so that sinks stored by an incremental analysis can be ordered as well
+    private static final Map<String, Integer> ENTRYPOINT_ORDER = new ConcurrentHashMap<>();
+    // Order of sinks in the report. Independent of the order in which entrypoint analyses complete.
+    private static final Comparator<StoredSink> REPORT_ORDER =
+            Comparator.comparingInt((StoredSink sink) -> entrypointIndex(sink.entrypoint()))
+                    .thenComparing(StoredSink::method)
+                    .thenComparingInt(StoredSink::iIndex)
+                    .thenComparing(StoredSink::context);
+    private static final Comparator<DiscoveredSink> SINK_ORDER =
+            Comparator.comparing(sink -> StoredSink.of(sink, null), REPORT_ORDER);
+    public static final String REPORT_FOLDER_NAME = "report";
+    // set by SuiteMain so that concurrent analyses write into separate report folders
+    public static final String REPORT_FOLDER_PROPERTY = "bidtext.reportFolder";
+    private static volatile String reportFolder = System.getProperty(REPORT_FOLDER_PROPERTY, REPORT_FOLDER_NAME);
+    // opened with the first discovered sink, closed after the dump; guarded by AnalysisUtil.class
+    private static SinkReportWriter reportWriter;
+    // used instead of REPORT_WORKERS if not null, e.g. by the tests
+    static Integer reportWorkersOverride;
 
     public static boolean DUMP_VERBOSE = true;
 
+    public static String getReportFolder() {
+        return reportFolder;
+    }
+
+    /**
+     * Change the report folder for the next analysis in this JVM, used by the in-process suite mode.
+     */
+    public static void setReportFolder(String folder) {
+        reportFolder = folder;
+    }
+
+    /**
+     * Forget the sinks of a previous analysis in this JVM.
+     */
+    public static void reset() {
+        SINKS.clear();
+        ENTRYPOINT_ORDER.clear();
+        closeReportWriter();
+        TextClassificationCache.reset();
+    }
+
+    private static synchronized SinkReportWriter getReportWriter() throws IOException {
+        if (reportWriter == null) {
+            reportWriter = SinkReportWriter.open(SinkReportWriter.Format.valueOf(SimpleConfig.getReportFormat()),
+                    reportFolder);
+        }
+        return reportWriter;
+    }
+
+    private static synchronized void closeReportWriter() {
+        if (reportWriter == null) {
+            return;
+        }
+        try {
+            reportWriter.close();
+        } catch (IOException e) {
+            logger.error("Failed to close the sink report: {}", e.getMessage());
+        }
+        reportWriter = null;
+    }
+
+    /**
+     * Register the order of the entrypoints as they would be processed sequentially. If the same sink is discovered
+     * from multiple entrypoints, the sink of the first entrypoint in this order is reported.
+     */
+    public static void registerEntrypointOrder(List<Entrypoint> entrypoints) {
+        ENTRYPOINT_ORDER.clear();
+        for (int i = 0; i < entrypoints.size(); i++) {
+            ENTRYPOINT_ORDER.put(IncrementalAnalysis.signature(entrypoints.get(i)), i);
+        }
+    }
+
+    static int entrypointIndex(String entrypointSignature) {
+        return ENTRYPOINT_ORDER.getOrDefault(entrypointSignature, Integer.MAX_VALUE);
+    }
+
     public static void recordSink(DiscoveredSink sink) {
-        if (SINKS.contains(sink)) {
+        IncrementalAnalysis.recordSinkDiscovery(sink);
+        boolean[] newlyDiscovered = {false};
+        SINKS.compute(sink, (key, existing) -> {
+            if (existing == null) {
+                newlyDiscovered[0] = true;
+                return sink;
+            }
+            return SINK_ORDER.compare(sink, existing) < 0 ? sink : existing;
+        });
+        if (!newlyDiscovered[0]) {
             return;
         }
-        SINKS.add(sink);
         SSAAbstractInvokeInstruction instruction = sink.instruction();
-        TypingSubGraph subGraph = sink.enclosingTypingSubGraph();
         String sinkClassName = instruction.getDeclaredTarget().getDeclaringClass().getName().toString();
         String sinkMethodName = instruction.getDeclaredTarget().getName().toString();
-        String sinkLocationClassName = subGraph.getCgNode().getMethod().getDeclaringClass().getName().toString();
-        String sinkLocationMethodName = subGraph.getCgNode().getMethod().getName().toString();
+        String sinkLocationClassName = sink.getCgNode().getMethod().getDeclaringClass().getName().toString();
+        String sinkLocationMethodName = sink.getCgNode().getMethod().getName().toString();
         logger.info("        SINK: {}->{}() in [{}.{}()]", sinkClassName, sinkMethodName, sinkLocationClassName,
                 sinkLocationMethodName);
+        try {
+            getReportWriter().sinkDiscovered(StoredSink.of(sink, null));
+        } catch (IOException e) {
+            logger.error("Failed to write discovered sink {}: {}", sink.sinkSignature(), e.getMessage());
+        }
     }
 
     /**
-     * Dump all associated texts for interesting sinks.
+     * Extract what the reports need from the TypingGraph of an entrypoint that is done: the typing of the parameters of
+     * the sinks discovered in the graph and, in the field index, the typing of its fields. Afterwards, the graph is not
+     * referenced by the sinks anymore.
+     */
+    public static void summarizeSinks(TypingGraph graph, FieldIndex fieldIndex) {
+        for (DiscoveredSink sink : SINKS.values()) {
+            if (sink.isPendingIn(graph)) {
+                sink.summarize(fieldIndex);
+            }
+        }
+        fieldIndex.release();
+    }
+
+    /**
+     * Dump all associated texts for interesting sinks. Reports of sinks that an incremental analysis reuses from the
+     * previous run are written unchanged, but numbered together with the sinks of this run. Every report is written in
+     * the configured REPORT_FORMAT as soon as it is produced.
      */
     public static void dumpTextForSinks() throws IOException {
+        try {
+            dumpReports();
+        } finally {
+            closeReportWriter();
+        }
+    }
+
+    private static void dumpReports() throws IOException {
         logger.info("Dump text for all sinks.");
         clearSinksFromReportFolder();
-        if (SINKS.isEmpty()) {
+        // a structured report of a previous run is replaced even if no sinks are found
+        SinkReportWriter writer = getReportWriter();
+        List<StoredSink> reusedSinks = IncrementalAnalysis.getReusableSinks();
+        if (SINKS.isEmpty() && reusedSinks.isEmpty()) {
             logger.warn("No interesting sinks are found.");
+            IncrementalAnalysis.recordReportedSinks(List.of());
             return;
         }
+        // a sink found in this run and reused from the previous run is reported for the first entrypoint
+        Map<String, StoredSink> reusedById = new HashMap<>();
+        reusedSinks.forEach(stored -> reusedById.put(stored.id(), stored));
+        List<PendingReport> reports = new ArrayList<>();
+        for (DiscoveredSink sink : SINKS.values()) {
+            StoredSink position = StoredSink.of(sink, null);
+            StoredSink reused = reusedById.get(position.id());
+            if (reused != null && REPORT_ORDER.compare(reused, position) < 0) {
+                continue;
+            }
+            reusedById.remove(position.id());
+            reports.add(new PendingReport(position, sink));
+        }
+        reusedById.values().forEach(stored -> reports.add(new PendingReport(stored, null)));
+        reports.sort(Comparator.comparing(PendingReport::position, REPORT_ORDER));
+
+        // the reports are only kept for the state of an incremental analysis
+        List<StoredSink> reportedSinks = new ArrayList<>();
+        int workers = reportWorkersOverride != null ? reportWorkersOverride : SimpleConfig.getReportWorkers();
+        ExecutorService executor =
+                workers > 1 ? Executors.newFixedThreadPool(workers, new ReportThreadFactory()) : null;
+        if (executor != null) {
+            logger.info("Analyze the texts of {} sinks with {} workers", reports.size(), workers);
+        }
+        // a TextAnalysis is not thread-safe, every thread that analyzes the texts of sinks reuses its own during the
+        // dump; none is kept afterwards, their paths reference the call graphs of the analysis
+        ThreadLocal<TextAnalysis> textAnalyses = ThreadLocal.withInitial(TextAnalysis::new);
         int idx = 0;
-        for (DiscoveredSink sink : SINKS) {
-            dumpTextForSink(sink, idx++);
+        try {
+            // the reports are computed concurrently but written in the report order; only a few reports per worker
+            // are computed ahead of the one that is written next
+            int window = executor != null ? 4 * workers : 1;
+            Deque<Future<StoredSink>> pending = new ArrayDeque<>();
+            Iterator<PendingReport> iter = reports.iterator();
+            while (iter.hasNext() || !pending.isEmpty()) {
+                while (iter.hasNext() && pending.size() < window) {
+                    PendingReport report = iter.next();
+                    FutureTask<StoredSink> task = new FutureTask<>(() -> report(report, textAnalyses.get()));
+                    if (executor != null) {
+                        executor.execute(task);
+                    } else {
+                        task.run();
+                    }
+                    pending.add(task);
+                }
+                StoredSink stored = awaitReport(pending.remove());
+                writeReport(writer, stored, idx++);
+                if (IncrementalAnalysis.isEnabled()) {
+                    reportedSinks.add(stored);
+                }
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            textAnalyses.remove();
         }
+        IncrementalAnalysis.recordReportedSinks(reportedSinks);
         logger.info("Dumped text for {} sinks.", idx);
+        logger.info("Text classification cache: {}", TextClassificationCache.getCounters());
     }
 
-    private static void dumpTextForSink(DiscoveredSink sink, int idx) {
-        logger.info(" - dump text for sink: {}", sink.sinkSignature());
-        File resultFile = new File(REPORT_FOLDER + "/" + idx + "." + sink.getTag() + ".txt");
+    private static StoredSink report(PendingReport report, TextAnalysis textAnalysis) {
+        if (report.sink() == null) {
+            logger.info(" - reuse text for sink: {}", report.position().sinkSignature());
+            return report.position();
+        }
+        logger.info(" - dump text for sink: {}", report.sink().sinkSignature());
+        return StoredSink.of(report.sink(), textForSink(report.sink(), textAnalysis));
+    }
 
-        PrintWriter writer;
+    /**
+     * Wait for the report of a sink. An interrupt, e.g. by the timeout of the whole analysis, does not stop the
+     * reports; the reports of the sinks found so far are still written, like in the sequential case.
+     */
+    private static StoredSink awaitReport(Future<StoredSink> future) {
+        boolean interrupted = false;
         try {
-            writer = new PrintWriter(resultFile);
-        } catch (IOException e) {
-            logger.error("Fail to create dump file for [{}] {}", idx, sink.sinkSignature());
-            if (resultFile.exists()) {
-                resultFile.delete();
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException cause) {
+                        throw cause;
+                    }
+                    if (e.getCause() instanceof Error error) {
+                        throw error;
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
             }
+        }
+    }
+
+    private static void writeReport(SinkReportWriter writer, StoredSink sink, int idx) {
+        if (sink.report() == null) {
+            logger.debug("No information found for sink. No log file.");
             return;
         }
+        try {
+            writer.write(sink, idx);
+        } catch (IOException e) {
+            logger.error("Fail to create dump file for [{}] {}", idx, sink.sinkSignature());
+        }
+    }
+
+    /**
+     * @return the report for the sink or null if no text reached the sink
+     */
+    private static String textForSink(DiscoveredSink sink, TextAnalysis textAnalysis) {
+        StringWriter report = new StringWriter();
+        PrintWriter writer = new PrintWriter(report);
         printHeader(sink, writer);
 
+        String entrypoint = IncrementalAnalysis.signature(sink.getEntrypoint());
         Map<String, List<Statement>> codeTexts = new HashMap<>();
         Set<Integer> constants = new HashSet<>();
-        sink.getInterestingParameters().stream()
-                .filter(gNode -> !gNode.isConstant())
-                .forEach(gNode -> {
-                    TypingGraph graph = sink.enclosingTypingGraph();
-                    collectTextsForNode(gNode, graph, codeTexts, constants);
-                    collectTextsForFields(gNode, graph, codeTexts, constants);
-                });
+        try (PhaseMetrics.Phase phase = PhaseMetrics.start("text_collection", entrypoint)) {
+            for (RecordSummary parameter : sink.getParameterSummaries()) {
+                collectTextsForNode(parameter, codeTexts, constants);
+                collectTextsForFields(sink.getFieldIndex(), parameter, codeTexts, constants);
+            }
+        }
         logger.debug("codeTexts: {}", codeTexts);
         logger.debug("constants: {}", constants);
-        TextAnalysis textAnalysis = new TextAnalysis();
-        textAnalysis.analyze(codeTexts);
+        try (PhaseMetrics.Phase phase = PhaseMetrics.start("text_analysis", entrypoint)) {
+            textAnalysis.analyze(codeTexts);
+        }
         logger.debug("text2Path: {}", textAnalysis.getText2Path());
 
 
@@ -98,14 +315,16 @@ public class AnalysisUtil {
         writer.flush();
         writer.close();
 
-        if (resultFile.exists() && textAnalysis.getText2Path().isEmpty()) {
-            logger.debug("No information found for sink. Deleting log file.");
-            resultFile.delete();
+        boolean sensitive = !textAnalysis.getText2Path().isEmpty();
+        textAnalysis.clear();
+        if (!sensitive) {
+            return null;
         }
+        return report.toString();
     }
 
     private static void clearSinksFromReportFolder() throws IOException {
-        try (Stream<Path> pathStream = Files.walk(Path.of(REPORT_FOLDER))) {
+        try (Stream<Path> pathStream = Files.walk(Path.of(reportFolder))) {
             pathStream.sorted(Comparator.reverseOrder())
                     .map(Path::toFile)
                     .filter(path -> path.getAbsolutePath().matches(".*[0-9]*\\.[a-zA-Z]*\\.txt"))
@@ -155,36 +374,41 @@ public class AnalysisUtil {
         writer.print(']');
         writer.println();
         writer.print(" in [");
-        writer.print(sink.enclosingTypingSubGraph().getCgNode().getMethod().getSignature());
+        writer.print(sink.getCgNode().getMethod().getSignature());
         writer.print(']');
         writer.println();
         writer.flush();
     }
 
-    public static void collectTextsForNode(TypingNode node, TypingGraph graph, Map<String, List<Statement>> texts,
+    public static void collectTextsForNode(RecordSummary record, Map<String, List<Statement>> texts,
                                            Set<Integer> constants) {
-        TypingRecord record = graph.getTypingRecord(node.getGraphNodeId());
-        if (record == null) {
-            return;
-        }
-        texts.putAll(record.getTypingTexts());
-        for (Object o : record.getTypingConstants()) {
-            if (o instanceof Integer) {
-                constants.add((Integer) o);
-            }
-        }
+        texts.putAll(record.texts());
+        constants.addAll(record.constants());
     }
 
     // Fields that across entrypoints
-    private static void collectTextsForFields(TypingNode node, TypingGraph graph, Map<String, List<Statement>> texts,
-                                              Set<Integer> constants) {
-        TypingRecord record = graph.getTypingRecord(node.getGraphNodeId());
-        if (record == null) {
-            return;
-        }
-        TextForFieldsCollector collector = new TextForFieldsCollector(graph, record, texts, constants);
+    private static void collectTextsForFields(FieldIndex fieldIndex, RecordSummary record,
+                                              Map<String, List<Statement>> texts, Set<Integer> constants) {
+        TextForFieldsCollector collector = new TextForFieldsCollector(fieldIndex, record, texts, constants);
         collector.collect(true);
         collector.collect(false);
     }
 
+    /**
+     * @param position the stored sink reused from the previous run or the position of a sink found in this run
+     * @param sink     null if the report is reused
+     */
+    private record PendingReport(StoredSink position, DiscoveredSink sink) {
+    }
+
+    private static class ReportThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "report-worker-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+package de.lmu.ifi.jvmbidtext.analysis;
+
+import edu.stanford.nlp.ling.HasWord;
+import edu.stanford.nlp.trees.TypedDependency;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Negation detection on the typed dependencies of a sentence. A sentence is negated if the first negation is attached
+ * to "should" or "shall", or to a "do" without a subject ("Do not ..."). A negation whose preceding dependency is not
+ * an auxiliary also counts as negation.
+ */
+abstract class DependencyNegationDetector implements NegationDetector {
+
+    /**
+     * @return the typed dependencies ordered like the words of the sentence, empty if the words are not a sentence
+     */
+    protected abstract Optional<List<TypedDependency>> parse(List<? extends HasWord> sentence);
+
+    /**
+     * @return true if the dependency marks a negation
+     */
+    protected boolean isNegation(TypedDependency td) {
+        return "neg".equals(td.reln().toString()) ||
+                // second condition added during rework
+                td.dep().backingLabel().value().equalsIgnoreCase("not");
+    }
+
+    @Override
+    public boolean isNegated(List<? extends HasWord> sentence) {
+        Optional<List<TypedDependency>> dependencies = parse(sentence);
+        if (dependencies.isEmpty()) {
+            // Not a sentence
+            return false;
+        }
+        List<TypedDependency> tdl = dependencies.get();
+        int negIdx = 0;
+        for (TypedDependency td : tdl) {
+            if (isNegation(td)) {
+                break;
+            }
+            negIdx++;
+        }
+
+        if (negIdx <= 0 || negIdx >= tdl.size()) {
+            // no negation found
+            return false;
+        }
+
+        TypedDependency td = tdl.get(negIdx - 1);
+        if (td.reln().toString().equals("aux")) {
+            String ns = td.dep().backingLabel().value().toLowerCase();
+            if ("should".equals(ns) || "shall".equals(ns)
+                /* || "could".equals(ns) || "can".equals(ns) */) {
+                return true;
+            } else {
+                return "do".equals(ns) && (negIdx == 1 || !tdl.get(negIdx - 2).reln().toString().equals("nsubj"));
+            }
+        }
+        return true;
+    }
+}
@@ -1,9 +1,13 @@
 package de.lmu.ifi.jvmbidtext.analysis;
 
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.slicer.Statement;
 import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import de.lmu.ifi.jvmbidtext.analysis.FieldIndex.RecordSummary;
 import de.lmu.ifi.jvmbidtext.graph.model.TypingGraph;
 import de.lmu.ifi.jvmbidtext.graph.model.TypingNode;
+import de.lmu.ifi.jvmbidtext.graph.model.TypingRecord;
 import de.lmu.ifi.jvmbidtext.graph.model.TypingSubGraph;
 import de.lmu.ifi.jvmbidtext.utils.WalaUtil;
 
@@ -14,13 +18,20 @@ import java.util.Objects;
 public class DiscoveredSink {
     private final Statement statement;
     private final SSAAbstractInvokeInstruction instruction;
-    private final TypingSubGraph subGraph;
+    private final CGNode cgNode;
+    private final Entrypoint entrypoint;
     private final SinkDefinitions.SinkDefinition sinkDefinition;
+    // released by summarize(FieldIndex), so the TypingGraph of the entrypoint is not kept for the reports
+    private TypingSubGraph subGraph;
+    private FieldIndex fieldIndex;
+    private List<RecordSummary> parameterSummaries;
 
     public DiscoveredSink(Statement statement, SSAAbstractInvokeInstruction instruction, TypingSubGraph subGraph) {
         this.statement = statement;
         this.instruction = instruction;
         this.subGraph = subGraph;
+        this.cgNode = subGraph.getCgNode();
+        this.entrypoint = subGraph.getTypingGraph().getEntrypoint();
         if (!SinkDefinitions.matchesSinkDefinition(instruction)) {
             throw new IllegalArgumentException("Instruction does not match any sink definition.");
         }
@@ -31,14 +42,20 @@ public class DiscoveredSink {
         return WalaUtil.getSignature(instruction);
     }
 
-    public TypingSubGraph enclosingTypingSubGraph() {
-        return subGraph;
+    /**
+     * @return the node of the method that contains the sink
+     */
+    public CGNode getCgNode() {
+        return cgNode;
     }
 
-    public TypingGraph enclosingTypingGraph() {
-        return subGraph.getTypingGraph();
+    public Entrypoint getEntrypoint() {
+        return entrypoint;
     }
 
+    /**
+     * Only available until the sink is summarized.
+     */
     public List<TypingNode> getInterestingParameters() {
         List<TypingNode> interestingParameters = new ArrayList<>();
         for (int parameterIndex : sinkDefinition.indicesOfInterestingParameters()) {
@@ -51,6 +68,57 @@ public class DiscoveredSink {
         return interestingParameters;
     }
 
+    /**
+     * Keep the typing of the interesting parameters that are not constants and release the TypingGraph. Called when
+     * the TypingGraph of the entrypoint is complete.
+     */
+    synchronized void summarize(FieldIndex fieldIndex) {
+        if (parameterSummaries != null) {
+            return;
+        }
+        List<RecordSummary> summaries = new ArrayList<>();
+        for (TypingNode parameter : getInterestingParameters()) {
+            if (parameter.isConstant()) {
+                continue;
+            }
+            TypingRecord record = subGraph.getTypingGraph().getTypingRecord(parameter.getGraphNodeId());
+            if (record != null) {
+                summaries.add(fieldIndex.summarize(record));
+            }
+        }
+        this.fieldIndex = fieldIndex;
+        parameterSummaries = summaries;
+        subGraph = null;
+    }
+
+    /**
+     * @return true if the sink was discovered in the TypingGraph and is not summarized yet
+     */
+    synchronized boolean isPendingIn(TypingGraph graph) {
+        return subGraph != null && subGraph.getTypingGraph() == graph;
+    }
+
+    /**
+     * @return the typing of the interesting parameters that are not constants
+     */
+    synchronized List<RecordSummary> getParameterSummaries() {
+        if (parameterSummaries == null) {
+            // the analysis of the entrypoint did not complete, index what the TypingGraph has
+            FieldIndex index = FieldIndex.of(subGraph.getTypingGraph());
+            summarize(index);
+            index.release();
+        }
+        return parameterSummaries;
+    }
+
+    /**
+     * @return the fields of the entrypoint of the sink, see {@link #getParameterSummaries()}
+     */
+    synchronized FieldIndex getFieldIndex() {
+        getParameterSummaries();
+        return fieldIndex;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -65,16 +133,13 @@ public class DiscoveredSink {
         if (!Objects.equals(instruction, that.instruction)) {
             return false;
         }
-        if (subGraph == null || that.subGraph == null) {
-            return subGraph == that.subGraph;
-        }
-        return Objects.equals(subGraph.getCgNode(), that.subGraph.getCgNode());
+        return Objects.equals(cgNode, that.cgNode);
     }
 
     @Override
     public int hashCode() {
         int result = instruction != null ? instruction.hashCode() : 0;
-        result = 31 * result + (subGraph != null && subGraph.getCgNode() != null ? subGraph.getCgNode().hashCode() : 0);
+        result = 31 * result + (cgNode != null ? cgNode.hashCode() : 0);
         return result;
     }
 
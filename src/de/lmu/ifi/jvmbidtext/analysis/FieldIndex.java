@@ -0,0 +1,160 @@
+package de.lmu.ifi.jvmbidtext.analysis;
+
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.slicer.Statement;
+import de.lmu.ifi.jvmbidtext.graph.model.SimpleGraphNode;
+import de.lmu.ifi.jvmbidtext.graph.model.TypingGraph;
+import de.lmu.ifi.jvmbidtext.graph.model.TypingNode;
+import de.lmu.ifi.jvmbidtext.graph.model.TypingRecord;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * The part of the TypingGraph of an entrypoint that the text collection for the sinks needs after the analysis of the
+ * entrypoint: the typing of the records of the incoming and outgoing fields by field signature and the typing of the
+ * sink parameters (see {@link #summarize(TypingRecord)}). The index is built when the entrypoint is done, so the
+ * TypingGraph itself does not have to be kept until the reports are written.
+ */
+public class FieldIndex {
+    private static final Map<String, List<RecordSummary>> NO_FIELDS = Map.of();
+
+    private final Entrypoint entrypoint;
+    // only set while the index is built
+    private TypingGraph graph;
+    private Map<TypingRecord, RecordSummary> summaries = new IdentityHashMap<>();
+    private Map<String, List<RecordSummary>> incoming = NO_FIELDS;
+    private Map<String, List<RecordSummary>> outgoing = NO_FIELDS;
+    private Set<String> fieldSignatures = Set.of();
+
+    private FieldIndex(TypingGraph graph) {
+        this.entrypoint = graph.getEntrypoint();
+        this.graph = graph;
+    }
+
+    /**
+     * Index the fields of the TypingGraph. The sink parameters of the graph have to be summarized with
+     * {@link DiscoveredSink#summarize(FieldIndex)} before the index is {@link #release() released}.
+     */
+    public static FieldIndex of(TypingGraph graph) {
+        FieldIndex index = new FieldIndex(graph);
+        index.incoming = index.summarizeFields(graph.getIncomingFieldSignatures(), graph::iterateAllIncomingFields);
+        index.outgoing = index.summarizeFields(graph.getOutgoingFieldSignatures(), graph::iterateAllOutgoingFields);
+        Set<String> signatures = new HashSet<>(graph.getIncomingFieldSignatures());
+        signatures.addAll(graph.getOutgoingFieldSignatures());
+        index.fieldSignatures = signatures;
+        return index;
+    }
+
+    public Entrypoint getEntrypoint() {
+        return entrypoint;
+    }
+
+    /**
+     * @return the records of the fields with the signature that are read by the entrypoint
+     */
+    public List<RecordSummary> getIncoming(String fieldSignature) {
+        return incoming.getOrDefault(fieldSignature, List.of());
+    }
+
+    /**
+     * @return the records of the fields with the signature that are written by the entrypoint
+     */
+    public List<RecordSummary> getOutgoing(String fieldSignature) {
+        return outgoing.getOrDefault(fieldSignature, List.of());
+    }
+
+    /**
+     * @return the signatures of all fields that are read or written by the entrypoint
+     */
+    public Set<String> getFieldSignatures() {
+        return fieldSignatures;
+    }
+
+    /**
+     * @return the distinct records of all incoming and outgoing fields
+     */
+    public Collection<RecordSummary> getFieldRecords() {
+        Set<RecordSummary> records = Collections.newSetFromMap(new IdentityHashMap<>());
+        incoming.values().forEach(records::addAll);
+        outgoing.values().forEach(records::addAll);
+        return records;
+    }
+
+    /**
+     * Must only be called while the index is built, i.e. before the TypingGraph is released.
+     */
+    RecordSummary summarize(TypingRecord record) {
+        return summaries.computeIfAbsent(record, this::copy);
+    }
+
+    /**
+     * Drop the references to the TypingGraph and its records after the fields and the sink parameters are summarized.
+     */
+    void release() {
+        graph = null;
+        summaries = null;
+    }
+
+    private Map<String, List<RecordSummary>> summarizeFields(Set<String> signatures,
+                                                             Function<String, Iterator<TypingNode>> fields) {
+        if (signatures.isEmpty()) {
+            return NO_FIELDS;
+        }
+        Map<String, List<RecordSummary>> index = new HashMap<>();
+        for (String signature : signatures) {
+            Set<RecordSummary> records = Collections.newSetFromMap(new IdentityHashMap<>());
+            Iterator<TypingNode> iter = fields.apply(signature);
+            while (iter.hasNext()) {
+                TypingRecord record = graph.getTypingRecord(iter.next().getGraphNodeId());
+                if (record != null) {
+                    records.add(summarize(record));
+                }
+            }
+            if (!records.isEmpty()) {
+                index.put(signature, List.copyOf(records));
+            }
+        }
+        return index;
+    }
+
+    private RecordSummary copy(TypingRecord record) {
+        Set<Integer> constants = new HashSet<>();
+        for (Object constant : record.getTypingConstants()) {
+            if (constant instanceof Integer i) {
+                constants.add(i);
+            }
+        }
+        return new RecordSummary(new LinkedHashMap<>(record.getTypingTexts()), constants,
+                fieldLinks(record.getInputFields()), fieldLinks(record.getOutputFields()));
+    }
+
+    private List<FieldLink> fieldLinks(Map<SimpleGraphNode, List<Statement>> fields) {
+        List<FieldLink> links = new ArrayList<>(fields.size());
+        for (Map.Entry<SimpleGraphNode, List<Statement>> field : fields.entrySet()) {
+            TypingNode node = graph.getNode(field.getKey().nodeId());
+            if (node != null && node.isField()) {
+                links.add(new FieldLink(node.getFieldRef().getSignature(), field.getValue()));
+            }
+        }
+        return links.isEmpty() ? List.of() : links;
+    }
+
+    /**
+     * Typing of a record as it is used by the text collection.
+     *
+     * @param texts        texts with the path from the text to the record; null if the text is not sensitive
+     * @param constants    integer constants that reach the record
+     * @param inputFields  fields that flow into the record
+     * @param outputFields fields that the record flows into
+     */
+    public record RecordSummary(Map<String, List<Statement>> texts, Set<Integer> constants,
+                                List<FieldLink> inputFields, List<FieldLink> outputFields) {
+    }
+
+    /**
+     * @param path path between the field and the record, may be null
+     */
+    public record FieldLink(String fieldSignature, List<Statement> path) {
+    }
+}
@@ -0,0 +1,73 @@
+package de.lmu.ifi.jvmbidtext.analysis;
+
+import edu.stanford.nlp.ling.HasWord;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Negation detection on the words of a sentence. A sentence without a negation word cannot be negated, which is the
+ * verdict for most sentences and does not need a parser. The other sentences are passed to the fallback detector if
+ * there is one. Without a fallback, the words around the first negation word follow the rule of
+ * {@link DependencyNegationDetector}: the sentence is negated unless the negation follows an auxiliary other than
+ * "should" and "shall", or a "do" with something in front of it.
+ */
+class HeuristicNegationDetector implements NegationDetector {
+    // all words CoreNLP marks as negation, n[o'\u2019]?t and never, and some more; a word too many only means that
+    // the fallback is asked
+    private static final Set<String> NEGATION_WORDS = Set.of("not", "n't", "n\u2019t", "nt", "never", "no", "nor",
+            "neither", "none", "nobody", "nothing", "nowhere", "cannot", "without");
+    private static final Set<String> NEGATING_AUXILIARIES = Set.of("should", "shall");
+    private static final Set<String> AUXILIARIES = Set.of("do", "does", "did", "can", "could", "may", "might", "must",
+            "will", "would", "should", "shall");
+
+    private final NegationDetector fallback;
+
+    /**
+     * @param fallback decides sentences with a negation word; null to decide them by the words
+     */
+    HeuristicNegationDetector(NegationDetector fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public void preload() {
+        if (fallback != null) {
+            fallback.preload();
+        }
+    }
+
+    @Override
+    public boolean isNegated(List<? extends HasWord> sentence) {
+        int negation = -1;
+        for (int i = 0; i < sentence.size(); i++) {
+            if (NEGATION_WORDS.contains(word(sentence, i))) {
+                negation = i;
+                break;
+            }
+        }
+        if (negation < 0) {
+            return false;
+        }
+        if (fallback != null) {
+            return fallback.isNegated(sentence);
+        }
+        if (negation == 0) {
+            // like a negation that is the first dependency
+            return false;
+        }
+        String auxiliary = word(sentence, negation - 1);
+        if (NEGATING_AUXILIARIES.contains(auxiliary)) {
+            return true;
+        }
+        if ("do".equals(auxiliary)) {
+            // "Do not ...", no subject in front of the auxiliary
+            return negation == 1 || !Character.isLetterOrDigit(word(sentence, negation - 2).charAt(0));
+        }
+        return !AUXILIARIES.contains(auxiliary);
+    }
+
+    private static String word(List<? extends HasWord> sentence, int i) {
+        return sentence.get(i).word().toLowerCase();
+    }
+}
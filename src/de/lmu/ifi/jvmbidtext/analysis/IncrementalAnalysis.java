@@ -0,0 +1,439 @@
+package de.lmu.ifi.jvmbidtext.analysis;
+
+import com.ibm.wala.classLoader.IBytecodeMethod;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.SyntheticClass;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.types.ClassLoaderReference;
+import de.lmu.ifi.jvmbidtext.utils.ContentHash;
+import de.lmu.ifi.jvmbidtext.utils.SimpleConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.StreamSupport;
+
+/**
+ * Incremental re-analysis across runs. For every entrypoint, the signatures of the reachable application methods
+ * together with a hash of their bytecode and the ids of the discovered sinks are stored. On the next run, only
+ * entrypoints that are new or reach a changed method are analyzed again. The reports of the sinks found by the
+ * remaining entrypoints are taken from the stored state.
+ * <p>
+ * Texts flow between entrypoints over fields, so the report of a sink can depend on other entrypoints. The signatures
+ * of the fields read or written by every entrypoint are stored as well. An entrypoint that shares a field with an
+ * analyzed or removed entrypoint is analyzed again, before the analysis with the stored fields and afterwards with the
+ * fields found by the analysis ({@link #selectEntrypointsSharingFields()}), until no entrypoint is added. A state of
+ * an older format without the fields triggers a full analysis.
+ * <p>
+ * The stored state is only used if the configuration, the input files of the analysis, the JDK and the class
+ * hierarchy of the application (class names, super classes and interfaces) are unchanged. Changes to the hierarchy
+ * can add call targets without changing any reachable method, so they trigger a full analysis.
+ * <p>
+ * Incremental analysis is disabled if no state file is configured.
+ */
+public class IncrementalAnalysis {
+    private static final Logger logger = LogManager.getLogger(IncrementalAnalysis.class);
+
+    // increment if the stored state or the report format changes
+    private static final String FORMAT_VERSION = "2";
+
+    private static boolean enabled = false;
+    private static String environmentKey;
+    private static State storedState;
+    private static List<Entrypoint> allEntrypoints = List.of();
+    private static Set<String> selectedEntrypoints = Set.of();
+    private static Map<String, EntrypointState> reusedEntrypoints = Map.of();
+    private static List<StoredSink> reusableSinks = List.of();
+    private static List<StoredSink> reportedSinks = List.of();
+    private static final Map<String, Map<String, String>> REACHABLE_METHODS = new ConcurrentHashMap<>();
+    private static final Map<String, Set<String>> DISCOVERED_SINKS = new ConcurrentHashMap<>();
+    private static final Map<String, Set<String>> FIELD_SIGNATURES = new ConcurrentHashMap<>();
+    // used instead of INCREMENTAL_STATE_FILE if not null, e.g. by the tests
+    static String stateFileOverride;
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Load the state of the previous run and select the entrypoints that have to be analyzed.
+     *
+     * @param entrypoints all entrypoints in the order of the analysis
+     * @return entrypoints whose results cannot be reused, in the given order
+     */
+    public static List<Entrypoint> selectEntrypointsToAnalyze(List<Entrypoint> entrypoints,
+                                                              ClassHierarchy classHierarchy) throws IOException {
+        REACHABLE_METHODS.clear();
+        DISCOVERED_SINKS.clear();
+        FIELD_SIGNATURES.clear();
+        storedState = null;
+        allEntrypoints = entrypoints;
+        selectedEntrypoints = Set.of();
+        reusedEntrypoints = Map.of();
+        reusableSinks = List.of();
+        reportedSinks = List.of();
+        String stateFile = stateFile();
+        enabled = stateFile != null && !stateFile.isBlank();
+        if (!enabled) {
+            return entrypoints;
+        }
+        environmentKey = computeEnvironmentKey(classHierarchy);
+        Optional<State> previousState = loadState(Paths.get(stateFile));
+        if (previousState.isEmpty()) {
+            return entrypoints;
+        }
+        if (!previousState.get().environmentKey().equals(environmentKey)) {
+            logger.info("Incremental analysis: configuration or class hierarchy changed. Analyze all entrypoints.");
+            return entrypoints;
+        }
+        State state = previousState.get();
+
+        Map<String, IMethod> applicationMethods = indexApplicationMethods(classHierarchy);
+        Map<String, String> currentHashes = new HashMap<>();
+        Set<String> analyze = new HashSet<>();
+        for (Entrypoint entrypoint : entrypoints) {
+            String signature = signature(entrypoint);
+            EntrypointState previous = state.entrypoints().get(signature);
+            if (previous == null || hasChangedMethod(previous, applicationMethods, currentHashes)) {
+                analyze.add(signature);
+            }
+        }
+
+        storedState = state;
+        addDependentEntrypoints(analyze);
+        List<Entrypoint> selected = select(analyze);
+        logger.info("Incremental analysis: reuse results of {} entrypoints, analyze {} entrypoints.",
+                reusedEntrypoints.size(), selected.size());
+        return selected;
+    }
+
+    /**
+     * Select the entrypoints whose stored results cannot be reused because they share a field with an entrypoint
+     * that was analyzed. Must be called after the selected entrypoints are analyzed, and again after the returned
+     * entrypoints are analyzed, until no entrypoints are returned.
+     *
+     * @return entrypoints that have to be analyzed in addition, in the order of the analysis
+     */
+    public static List<Entrypoint> selectEntrypointsSharingFields() {
+        if (!enabled || reusedEntrypoints.isEmpty()) {
+            return List.of();
+        }
+        Set<String> analyzed = selectedEntrypoints;
+        Set<String> analyze = new HashSet<>(analyzed);
+        addDependentEntrypoints(analyze);
+        List<Entrypoint> selected = select(analyze).stream()
+                .filter(ep -> !analyzed.contains(signature(ep)))
+                .toList();
+        if (!selected.isEmpty()) {
+            logger.info("Incremental analysis: analyze {} more entrypoints that share fields with analyzed ones.",
+                    selected.size());
+        }
+        return selected;
+    }
+
+    /**
+     * Add the entrypoints whose stored results depend on the entrypoints to analyze or on removed entrypoints, until
+     * no entrypoint is added:
+     * <ul>
+     * <li>Sinks reported for these entrypoints are invalid. They have to be discovered again by every entrypoint
+     * that found them in the previous run.</li>
+     * <li>The reports of the sinks of an entrypoint that shares a field with these entrypoints can contain texts of
+     * their fields. The stored fields and the fields found by the analysis of this run are both taken into
+     * account.</li>
+     * </ul>
+     */
+    private static void addDependentEntrypoints(Set<String> analyze) {
+        Set<String> currentSignatures = new HashSet<>();
+        allEntrypoints.forEach(entrypoint -> currentSignatures.add(signature(entrypoint)));
+        Set<String> invalidated = new HashSet<>(analyze);
+        storedState.entrypoints().keySet().stream()
+                .filter(signature -> !currentSignatures.contains(signature))
+                .forEach(invalidated::add);
+        boolean added = true;
+        while (added) {
+            Set<String> invalidatedSinks = new HashSet<>();
+            for (StoredSink sink : storedState.sinks()) {
+                if (invalidated.contains(sink.entrypoint())) {
+                    invalidatedSinks.add(sink.id());
+                }
+            }
+            Set<String> fields = new HashSet<>();
+            for (String signature : invalidated) {
+                EntrypointState previous = storedState.entrypoints().get(signature);
+                if (previous != null) {
+                    fields.addAll(previous.fieldSignatures());
+                }
+                fields.addAll(FIELD_SIGNATURES.getOrDefault(signature, Set.of()));
+            }
+            added = false;
+            for (Entrypoint entrypoint : allEntrypoints) {
+                String signature = signature(entrypoint);
+                EntrypointState previous = storedState.entrypoints().get(signature);
+                if (analyze.contains(signature) || previous == null) {
+                    continue;
+                }
+                if (!Collections.disjoint(previous.sinkIds(), invalidatedSinks)
+                        || !Collections.disjoint(previous.fieldSignatures(), fields)) {
+                    analyze.add(signature);
+                    invalidated.add(signature);
+                    added = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the entrypoints to analyze in the order of the analysis; the results of the others are reused
+     */
+    private static List<Entrypoint> select(Set<String> analyze) {
+        Map<String, EntrypointState> reused = new HashMap<>();
+        for (Entrypoint entrypoint : allEntrypoints) {
+            String signature = signature(entrypoint);
+            if (!analyze.contains(signature)) {
+                reused.put(signature, storedState.entrypoints().get(signature));
+            }
+        }
+        selectedEntrypoints = Set.copyOf(analyze);
+        reusedEntrypoints = reused;
+        reusableSinks = storedState.sinks().stream().filter(sink -> reused.containsKey(sink.entrypoint())).toList();
+        return allEntrypoints.stream().filter(ep -> analyze.contains(signature(ep))).toList();
+    }
+
+    /**
+     * Record the call graph nodes reachable from an analyzed entrypoint. Safe to be called concurrently for
+     * different entrypoints.
+     */
+    public static void recordReachableMethods(Entrypoint entrypoint, Iterable<CGNode> reachableNodes) {
+        if (!enabled) {
+            return;
+        }
+        Map<String, String> hashes = new HashMap<>();
+        for (CGNode node : reachableNodes) {
+            IMethod method = node.getMethod();
+            if (isApplicationMethod(method)) {
+                hashes.computeIfAbsent(method.getSignature(), __ -> hashMethod(method));
+            }
+        }
+        REACHABLE_METHODS.put(signature(entrypoint), hashes);
+    }
+
+    /**
+     * Do not store the results of an entrypoint whose analysis was stopped early, so that the next run analyzes it
+     * again.
+     */
+    public static void forgetEntrypoint(Entrypoint entrypoint) {
+        if (!enabled) {
+            return;
+        }
+        REACHABLE_METHODS.remove(signature(entrypoint));
+        DISCOVERED_SINKS.remove(signature(entrypoint));
+        FIELD_SIGNATURES.remove(signature(entrypoint));
+    }
+
+    /**
+     * Record the signatures of the fields read or written by an analyzed entrypoint. Safe to be called concurrently
+     * for different entrypoints.
+     */
+    public static void recordFieldSignatures(Entrypoint entrypoint, Set<String> fieldSignatures) {
+        if (!enabled) {
+            return;
+        }
+        FIELD_SIGNATURES.put(signature(entrypoint), Set.copyOf(fieldSignatures));
+    }
+
+    public static void recordSinkDiscovery(DiscoveredSink sink) {
+        if (!enabled) {
+            return;
+        }
+        DISCOVERED_SINKS.computeIfAbsent(signature(sink.getEntrypoint()),
+                __ -> ConcurrentHashMap.newKeySet()).add(sinkId(sink));
+    }
+
+    /**
+     * @return stored sinks of the previous run whose entrypoint was not analyzed again
+     */
+    public static List<StoredSink> getReusableSinks() {
+        return reusableSinks;
+    }
+
+    public static void recordReportedSinks(List<StoredSink> sinks) {
+        reportedSinks = sinks;
+    }
+
+    /**
+     * Store the state of this run for the next run. Must only be called if the analysis completed without timeout,
+     * otherwise missing results would be reused.
+     */
+    public static void save() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Map<String, EntrypointState> entrypointStates = new HashMap<>(reusedEntrypoints);
+        REACHABLE_METHODS.forEach((signature, hashes) -> entrypointStates.put(signature,
+                new EntrypointState(new HashMap<>(hashes),
+                        new HashSet<>(DISCOVERED_SINKS.getOrDefault(signature, Set.of())),
+                        new HashSet<>(FIELD_SIGNATURES.getOrDefault(signature, Set.of())))));
+        State state = new State(environmentKey, entrypointStates, new ArrayList<>(reportedSinks));
+
+        Path stateFile = Paths.get(stateFile()).toAbsolutePath();
+        Files.createDirectories(stateFile.getParent());
+        Path tmp = Files.createTempFile(stateFile.getParent(), stateFile.getFileName().toString(), ".tmp");
+        try {
+            try (ObjectOutputStream out = new ObjectOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeObject(state);
+            }
+            Files.move(tmp, stateFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        logger.info("Incremental analysis: stored state of {} entrypoints and {} sinks in {}",
+                entrypointStates.size(), reportedSinks.size(), stateFile);
+    }
+
+    private static String stateFile() throws IOException {
+        return stateFileOverride != null ? stateFileOverride : SimpleConfig.getIncrementalStateFile();
+    }
+
+    public static String sinkId(DiscoveredSink sink) {
+        return sinkId(sink.getCgNode().getMethod().getSignature(), sink.instruction().iIndex(),
+                sink.getCgNode().getContext().toString());
+    }
+
+    private static String sinkId(String method, int iIndex, String context) {
+        return method + "@" + iIndex + "@" + context;
+    }
+
+    public static String signature(Entrypoint entrypoint) {
+        return entrypoint.getMethod().getSignature();
+    }
+
+    private static Optional<State> loadState(Path stateFile) {
+        if (!Files.isRegularFile(stateFile)) {
+            logger.info("Incremental analysis: no previous state in {}. Analyze all entrypoints.", stateFile);
+            return Optional.empty();
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(stateFile)))) {
+            return Optional.of((State) in.readObject());
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            logger.warn("Incremental analysis: cannot read previous state in {}. Analyze all entrypoints.", stateFile,
+                    e);
+            return Optional.empty();
+        }
+    }
+
+    private static String computeEnvironmentKey(ClassHierarchy classHierarchy) throws IOException {
+        ContentHash hash = new ContentHash()
+                .update(FORMAT_VERSION)
+                .update(System.getProperty("java.version"))
+                .updateWithFile(SimpleConfig.PROPERTIES)
+                .updateWithFile(SimpleConfig.getInclusionsFile())
+                .updateWithFile(SimpleConfig.getExclusionsFile())
+                .updateWithFile(SimpleConfig.getSinkDefinitionsFile())
+                .updateWithFile(SimpleConfig.getArtificialSourcesFile())
+                .updateWithFile(SimpleConfig.getApiPropagationRulesFile())
+                .updateWithFile(SimpleConfig.getSensitiveTermsFile());
+        List<String> hierarchy = new ArrayList<>();
+        for (IClass clazz : classHierarchy) {
+            // synthetic classes, e.g. the IoC container of the Spring DI preprocessing, are derived from the
+            // application classes and do not support all queries
+            if (!clazz.getClassLoader().getReference().equals(ClassLoaderReference.Application)
+                    || clazz instanceof SyntheticClass) {
+                continue;
+            }
+            StringBuilder entry = new StringBuilder(clazz.getName().toString());
+            if (clazz.getSuperclass() != null) {
+                entry.append(" extends ").append(clazz.getSuperclass().getName());
+            }
+            clazz.getDirectInterfaces().stream()
+                    .map(iface -> iface.getName().toString())
+                    .sorted()
+                    .forEach(iface -> entry.append(" implements ").append(iface));
+            hierarchy.add(entry.toString());
+        }
+        Collections.sort(hierarchy);
+        hierarchy.forEach(hash::update);
+        return hash.toHex();
+    }
+
+    private static Map<String, IMethod> indexApplicationMethods(ClassHierarchy classHierarchy) {
+        Map<String, IMethod> methods = new HashMap<>();
+        StreamSupport.stream(classHierarchy.spliterator(), false)
+                .filter(clazz -> clazz.getClassLoader().getReference().equals(ClassLoaderReference.Application))
+                .forEach(clazz -> clazz.getDeclaredMethods()
+                        .forEach(method -> methods.put(method.getSignature(), method)));
+        return methods;
+    }
+
+    private static boolean hasChangedMethod(EntrypointState previous, Map<String, IMethod> applicationMethods,
+                                            Map<String, String> currentHashes) {
+        for (Map.Entry<String, String> methodHash : previous.methodHashes().entrySet()) {
+            IMethod method = applicationMethods.get(methodHash.getKey());
+            if (method == null) {
+                return true;
+            }
+            String currentHash = currentHashes.computeIfAbsent(methodHash.getKey(), __ -> hashMethod(method));
+            if (!currentHash.equals(methodHash.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isApplicationMethod(IMethod method) {
+        return method.getDeclaringClass().getClassLoader().getReference().equals(ClassLoaderReference.Application);
+    }
+
+    private static String hashMethod(IMethod method) {
+        ContentHash hash = new ContentHash().update(method.getSignature());
+        if (method instanceof IBytecodeMethod<?> bytecodeMethod) {
+            try {
+                for (Object instruction : bytecodeMethod.getInstructions()) {
+                    hash.update(String.valueOf(instruction));
+                }
+            } catch (InvalidClassFileException e) {
+                // never equal to a stored hash, the entrypoint is analyzed again
+                return "invalid:" + UUID.randomUUID();
+            }
+        }
+        return hash.toHex();
+    }
+
+    /**
+     * Report of a sink as written to the report folder. The report is null if no text reached the sink.
+     */
+    public record StoredSink(String entrypoint, String method, int iIndex, String context, String sinkSignature,
+                             String tag, String report) implements Serializable {
+        public static StoredSink of(DiscoveredSink sink, String report) {
+            return new StoredSink(signature(sink.getEntrypoint()),
+                    sink.getCgNode().getMethod().getSignature(), sink.instruction().iIndex(),
+                    sink.getCgNode().getContext().toString(), sink.sinkSignature(),
+                    sink.getTag(), report);
+        }
+
+        public String id() {
+            return sinkId(method, iIndex, context);
+        }
+    }
+
+    /**
+     * @param fieldSignatures fields read or written by the entrypoint
+     */
+    private record EntrypointState(Map<String, String> methodHashes, Set<String> sinkIds,
+                                   Set<String> fieldSignatures) implements Serializable {
+    }
+
+    private record State(String environmentKey, Map<String, EntrypointState> entrypoints,
+                         List<StoredSink> sinks) implements Serializable {
+    }
+}
@@ -0,0 +1,53 @@
+package de.lmu.ifi.jvmbidtext.analysis;
+
+import de.lmu.ifi.jvmbidtext.analysis.IncrementalAnalysis.StoredSink;
+import de.lmu.ifi.jvmbidtext.utils.Json;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a "discovered" line for every sink as soon as it is found and a "report" line for every sink with a report.
+ * The discovered lines carry the entrypoint that found the sink first, the report lines the entrypoint the sink is
+ * reported for.
+ */
+class JsonLinesReportWriter implements SinkReportWriter {
+    static final String FILE_NAME = "sinks.jsonl";
+
+    private final Writer writer;
+
+    JsonLinesReportWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void sinkDiscovered(StoredSink sink) throws IOException {
+        writeLine("{\"event\": \"discovered\", " + fields(sink) + "}");
+    }
+
+    @Override
+    public void write(StoredSink sink, int idx) throws IOException {
+        writeLine("{\"event\": \"report\", \"index\": " + idx + ", " + fields(sink) +
+                ", \"report\": " + Json.quote(sink.report()) + "}");
+    }
+
+    private static String fields(StoredSink sink) {
+        return "\"tag\": " + Json.quote(sink.tag()) +
+                ", \"sink\": " + Json.quote(sink.sinkSignature()) +
+                ", \"method\": " + Json.quote(sink.method()) +
+                ", \"iindex\": " + sink.iIndex() +
+                ", \"context\": " + Json.quote(sink.context()) +
+                ", \"entrypoint\": " + Json.quote(sink.entrypoint());
+    }
+
+    private synchronized void writeLine(String line) throws IOException {
+        writer.write(line);
+        writer.write('\n');
+        writer.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
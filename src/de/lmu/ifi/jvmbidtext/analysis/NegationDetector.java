@@ -0,0 +1,65 @@
+package de.lmu.ifi.jvmbidtext.analysis;
+
+import edu.stanford.nlp.ling.HasWord;
+
+import java.util.List;
+
+/**
+ * Decides if a sentence that contains a sensitive term is negated, e.g. "Do not log the password", in which case the
+ * sentence does not make its text sensitive.
+ */
+public interface NegationDetector {
+    enum Mode {
+        /**
+         * typed dependencies of the PCFG parser for every sentence
+         */
+        PCFG(true),
+        /**
+         * only the words around the first negation word, no parser
+         */
+        HEURISTIC(false),
+        /**
+         * sentences without a negation word are not negated, the others are parsed by the PCFG parser; same verdicts
+         * as {@link #PCFG}. Few sentences contain a negation word, so the model is loaded when the first one is
+         * parsed instead of during the peak memory of the call graph construction.
+         */
+        HEURISTIC_PCFG(false),
+        /**
+         * sentences without a negation word are not negated, the others are parsed by the neural dependency parser
+         */
+        HEURISTIC_NEURAL(true);
+
+        private final boolean preload;
+
+        Mode(boolean preload) {
+            this.preload = preload;
+        }
+
+        /**
+         * @return if the models are {@link #preload() preloaded} at the start of the analysis
+         */
+        public boolean isPreloaded() {
+            return preload;
+        }
+    }
+
+    /**
+     * @param sentence the tokens of a single sentence
+     */
+    boolean isNegated(List<? extends HasWord> sentence);
+
+    /**
+     * Start loading the models of the detector on a background thread, if it needs any.
+     */
+    default void preload() {
+    }
+
+    static NegationDetector of(Mode mode) {
+        return switch (mode) {
+            case PCFG -> new PcfgNegationDetector();
+            case HEURISTIC -> new HeuristicNegationDetector(null);
+            case HEURISTIC_PCFG -> new HeuristicNegationDetector(new PcfgNegationDetector());
+            case HEURISTIC_NEURAL -> new HeuristicNegationDetector(new NeuralNegationDetector());
+        };
+    }
+}
@@ -0,0 +1,105 @@
+package de.lmu.ifi.jvmbidtext.analysis;
+
+import de.lmu.ifi.jvmbidtext.utils.PhaseMetrics;
+import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
+import edu.stanford.nlp.parser.nndep.DependencyParser;
+import edu.stanford.nlp.tagger.maxent.MaxentTagger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * The CoreNLP models of the negation detectors. A model is loaded once per JVM and shared by all analyses, including
+ * all targets of the in-process suite mode. Loading takes seconds, so it can be started on a background thread while
+ * the call graphs are built ({@link #preloadPcfg()}, {@link #preloadNeural()}); a detector only waits for the model if
+ * it is not loaded yet when the first sentence is parsed.
+ */
+class NlpModels {
+    private final static String GRAMMAR = "edu/stanford/nlp/models/lexparser/englishPCFG.ser.gz";
+
+    private static CompletableFuture<LexicalizedParser> lexParser;
+    private static CompletableFuture<NeuralModels> neuralModels;
+
+    static synchronized void preloadPcfg() {
+        if (lexParser == null) {
+            lexParser = loadInBackground(NlpModels::loadLexParser);
+        }
+    }
+
+    static synchronized void preloadNeural() {
+        if (neuralModels == null) {
+            neuralModels = loadInBackground(NlpModels::loadNeuralModels);
+        }
+    }
+
+    static LexicalizedParser getLexParser() {
+        CompletableFuture<LexicalizedParser> future;
+        synchronized (NlpModels.class) {
+            if (lexParser == null) {
+                // not preloaded, load on this thread
+                lexParser = CompletableFuture.completedFuture(loadLexParser());
+            }
+            future = lexParser;
+        }
+        return await(future);
+    }
+
+    static NeuralModels getNeuralModels() {
+        CompletableFuture<NeuralModels> future;
+        synchronized (NlpModels.class) {
+            if (neuralModels == null) {
+                neuralModels = CompletableFuture.completedFuture(loadNeuralModels());
+            }
+            future = neuralModels;
+        }
+        return await(future);
+    }
+
+    private static <T> CompletableFuture<T> loadInBackground(Supplier<T> loader) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                future.complete(loader.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }, "nlp-model-preload");
+        // an analysis that ends before the model is needed does not wait for it
+        thread.setDaemon(true);
+        thread.start();
+        return future;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            if (future.isDone()) {
+                return future.join();
+            }
+            try (PhaseMetrics.Phase phase = PhaseMetrics.start("nlp_model_wait")) {
+                return future.join();
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static LexicalizedParser loadLexParser() {
+        try (PhaseMetrics.Phase phase = PhaseMetrics.start("nlp_model_load")) {
+            return LexicalizedParser.loadModel(GRAMMAR);
+        }
+    }
+
+    private static NeuralModels loadNeuralModels() {
+        try (PhaseMetrics.Phase phase = PhaseMetrics.start("nlp_model_load")) {
+            return new NeuralModels(new MaxentTagger(MaxentTagger.DEFAULT_JAR_PATH),
+                    DependencyParser.loadFromModelFile(DependencyParser.DEFAULT_MODEL));
+        }
+    }
+
+    record NeuralModels(MaxentTagger tagger, DependencyParser parser) {
+    }
+}
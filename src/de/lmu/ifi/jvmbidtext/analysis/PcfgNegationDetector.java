@@ -0,0 +1,38 @@
+package de.lmu.ifi.jvmbidtext.analysis;
+
+import edu.stanford.nlp.ling.HasWord;
+import edu.stanford.nlp.ling.Label;
+import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
+import edu.stanford.nlp.trees.*;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Negation detection on the CC-processed typed dependencies of the PCFG parser.
+ */
+class PcfgNegationDetector extends DependencyNegationDetector {
+
+    @Override
+    public void preload() {
+        NlpModels.preloadPcfg();
+    }
+
+    @Override
+    protected Optional<List<TypedDependency>> parse(List<? extends HasWord> sentence) {
+        LexicalizedParser lp = NlpModels.getLexParser();
+        TreebankLanguagePack tlp = lp.getOp().langpack();
+        GrammaticalStructureFactory gsf = tlp.grammaticalStructureFactory();
+        Tree parse = lp.parse(sentence);
+        GrammaticalStructure gs = gsf.newGrammaticalStructure(parse);
+        List<TypedDependency> tdl = gs.typedDependenciesCCprocessed();
+        // parse.pennPrint();
+        Tree c = parse.firstChild();
+        Label l = c.label();
+        // if not a sentence
+        if (!l.value().equals("S")) {
+            return Optional.empty();
+        }
+        return Optional.of(tdl);
+    }
+}
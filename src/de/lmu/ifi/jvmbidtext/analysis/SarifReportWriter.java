@@ -0,0 +1,51 @@
+package de.lmu.ifi.jvmbidtext.analysis;
+
+import de.lmu.ifi.jvmbidtext.analysis.IncrementalAnalysis.StoredSink;
+import de.lmu.ifi.jvmbidtext.utils.Json;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes the reports as results of a single SARIF run. The rule of a result is the tag of the sink definition, its
+ * location is the method that contains the sink. The log is only complete when the writer is closed.
+ */
+class SarifReportWriter implements SinkReportWriter {
+    static final String FILE_NAME = "sinks.sarif";
+
+    private final Writer writer;
+    private boolean first = true;
+
+    SarifReportWriter(Writer writer) throws IOException {
+        this.writer = writer;
+        writer.write("{\"version\": \"2.1.0\", " +
+                "\"$schema\": \"https://json.schemastore.org/sarif-2.1.0.json\", " +
+                "\"runs\": [{\"tool\": {\"driver\": {\"name\": \"JVM-BidText\"}}, \"results\": [\n");
+        writer.flush();
+    }
+
+    @Override
+    public synchronized void write(StoredSink sink, int idx) throws IOException {
+        if (!first) {
+            writer.write(",\n");
+        }
+        first = false;
+        writer.write("{\"ruleId\": " + Json.quote(sink.tag()) +
+                ", \"level\": \"warning\"" +
+                ", \"message\": {\"text\": " + Json.quote(sink.report()) + "}" +
+                ", \"locations\": [{\"logicalLocations\": [{\"fullyQualifiedName\": " + Json.quote(sink.method()) +
+                ", \"kind\": \"function\"}]}]" +
+                ", \"properties\": {\"index\": " + idx +
+                ", \"sink\": " + Json.quote(sink.sinkSignature()) +
+                ", \"iindex\": " + sink.iIndex() +
+                ", \"context\": " + Json.quote(sink.context()) +
+                ", \"entrypoint\": " + Json.quote(sink.entrypoint()) + "}}");
+        writer.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.write("\n]}]}\n");
+        writer.close();
+    }
+}
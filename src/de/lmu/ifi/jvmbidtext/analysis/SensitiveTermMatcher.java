@@ -0,0 +1,417 @@
+package de.lmu.ifi.jvmbidtext.analysis;
+
+import java.util.*;
+import java.util.regex.Matcher;
+
+/**
+ * Matches all sensitive terms against a text with a single scan. The literals that every match of a term has to
+ * contain are compiled into one Aho-Corasick automaton, which finds the terms that can match the text in one pass.
+ * Only the patterns of these candidates are run, so the lookbehind and lookahead constraints of the terms (e.g. the
+ * forbidden prefix and suffix) are checked as a post-filter on the candidates. Terms without such a literal are
+ * candidates for every text.
+ */
+public class SensitiveTermMatcher {
+    // more exact strings of an expression are not tracked, its required literals are used instead
+    private static final int MAX_EXACT_STRINGS = 64;
+
+    private final List<SensitiveTerms.SensitiveTerm> terms;
+    private final BitSet alwaysCandidates = new BitSet();
+    private final int[] asciiSymbols = new int[128];
+    private final Map<Character, Integer> symbols = new HashMap<>();
+    private int width;
+    private int[] delta;
+    private BitSet[] outputs;
+
+    public SensitiveTermMatcher(SensitiveTerms sensitiveTerms) {
+        terms = new ArrayList<>();
+        sensitiveTerms.forEach(terms::add);
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<BitSet> trieOutputs = new ArrayList<>();
+        trie.add(new HashMap<>());
+        trieOutputs.add(null);
+        for (int i = 0; i < terms.size(); i++) {
+            Set<String> literals = requiredLiterals(terms.get(i).pattern().pattern());
+            if (literals == null) {
+                alwaysCandidates.set(i);
+                continue;
+            }
+            for (String literal : literals) {
+                int state = 0;
+                for (char c : literal.toCharArray()) {
+                    Integer next = trie.get(state).get(c);
+                    if (next == null) {
+                        next = trie.size();
+                        trie.add(new HashMap<>());
+                        trieOutputs.add(null);
+                        trie.get(state).put(c, next);
+                    }
+                    state = next;
+                }
+                if (trieOutputs.get(state) == null) {
+                    trieOutputs.set(state, new BitSet());
+                }
+                trieOutputs.get(state).set(i);
+            }
+        }
+        compile(trie, trieOutputs);
+    }
+
+    /**
+     * Find the first term, in the order of the terms file, that matches one of the normalized forms of a text. For
+     * each term, the lowercase text is tried before the text that is split at camel case and underscores.
+     *
+     * @return the matched part of the text
+     */
+    public Optional<String> find(String lowercaseText, String splitText) {
+        BitSet lowercaseCandidates = candidates(lowercaseText);
+        BitSet splitCandidates = candidates(splitText);
+        BitSet candidates = (BitSet) lowercaseCandidates.clone();
+        candidates.or(splitCandidates);
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            SensitiveTerms.SensitiveTerm term = terms.get(i);
+            if (lowercaseCandidates.get(i)) {
+                Matcher matcher = term.pattern().matcher(lowercaseText);
+                if (matcher.find()) {
+                    return Optional.of(matcher.group());
+                }
+            }
+            if (splitCandidates.get(i)) {
+                Matcher matcher = term.pattern().matcher(splitText);
+                if (matcher.find()) {
+                    return Optional.of(matcher.group());
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return the indexes of the terms whose required literals occur in the text
+     */
+    BitSet candidates(String text) {
+        BitSet candidates = (BitSet) alwaysCandidates.clone();
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = delta[state * width + symbol(text.charAt(i))];
+            if (outputs[state] != null) {
+                candidates.or(outputs[state]);
+            }
+        }
+        return candidates;
+    }
+
+    private int symbol(char c) {
+        return c < asciiSymbols.length ? asciiSymbols[c] : symbols.getOrDefault(c, 0);
+    }
+
+    /**
+     * Turn the trie into a complete transition table. Symbol 0 stands for all characters that no literal contains and
+     * always leads back to the root.
+     */
+    private void compile(List<Map<Character, Integer>> trie, List<BitSet> trieOutputs) {
+        for (Map<Character, Integer> transitions : trie) {
+            for (char c : transitions.keySet()) {
+                if (symbol(c) == 0) {
+                    int symbol = symbols.size() + 1;
+                    symbols.put(c, symbol);
+                    if (c < asciiSymbols.length) {
+                        asciiSymbols[c] = symbol;
+                    }
+                }
+            }
+        }
+        width = symbols.size() + 1;
+        delta = new int[trie.size() * width];
+        outputs = trieOutputs.toArray(new BitSet[0]);
+        int[] failure = new int[trie.size()];
+        // breadth-first, so the failure state of a state is complete before the state is
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (Map.Entry<Character, Integer> edge : trie.get(0).entrySet()) {
+            delta[symbol(edge.getKey())] = edge.getValue();
+            queue.add(edge.getValue());
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            if (outputs[failure[state]] != null) {
+                if (outputs[state] == null) {
+                    outputs[state] = new BitSet();
+                }
+                outputs[state].or(outputs[failure[state]]);
+            }
+            for (int symbol = 0; symbol < width; symbol++) {
+                delta[state * width + symbol] = delta[failure[state] * width + symbol];
+            }
+            for (Map.Entry<Character, Integer> edge : trie.get(state).entrySet()) {
+                int symbol = symbol(edge.getKey());
+                int next = edge.getValue();
+                failure[next] = delta[failure[state] * width + symbol];
+                delta[state * width + symbol] = next;
+                queue.add(next);
+            }
+        }
+    }
+
+    /**
+     * @return literals of which every match of the regular expression contains at least one, null if there are none
+     * or the expression uses a construct that is not understood
+     */
+    static Set<String> requiredLiterals(String regex) {
+        try {
+            RegexLiterals parser = new RegexLiterals(regex);
+            Literals literals = parser.parseAlternation();
+            if (parser.pos != regex.length()) {
+                return null;
+            }
+            Set<String> best = literals.best();
+            return best == null || best.contains("") ? null : best;
+        } catch (UnsupportedOperationException | IndexOutOfBoundsException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param exact    all strings the expression can match, null if there are too many
+     * @param required strings of which every match contains at least one, null if unknown
+     */
+    private record Literals(Set<String> exact, Set<String> required) {
+        static final Literals ANY = new Literals(null, null);
+        static final Literals ZERO_WIDTH = new Literals(Set.of(""), null);
+
+        static Literals of(char c) {
+            Set<String> literal = Set.of(String.valueOf(c));
+            return new Literals(literal, literal);
+        }
+
+        /**
+         * @return the required literals that are the most selective, i.e. whose shortest literal is the longest
+         */
+        Set<String> best() {
+            if (exact != null && !exact.contains("")) {
+                return required == null || minLength(exact) >= minLength(required) ? exact : required;
+            }
+            return required;
+        }
+
+        private static int minLength(Set<String> literals) {
+            return literals.stream().mapToInt(String::length).min().orElse(0);
+        }
+
+        static Set<String> better(Set<String> a, Set<String> b) {
+            if (a == null) {
+                return b;
+            }
+            if (b == null) {
+                return a;
+            }
+            return minLength(b) > minLength(a) ? b : a;
+        }
+    }
+
+    /**
+     * Recursive descent over the subset of the Java regular expression syntax used in the terms files.
+     */
+    private static class RegexLiterals {
+        private final String regex;
+        private int pos;
+
+        RegexLiterals(String regex) {
+            this.regex = regex;
+        }
+
+        Literals parseAlternation() {
+            List<Literals> branches = new ArrayList<>();
+            branches.add(parseSequence());
+            while (pos < regex.length() && regex.charAt(pos) == '|') {
+                pos++;
+                branches.add(parseSequence());
+            }
+            if (branches.size() == 1) {
+                return branches.getFirst();
+            }
+            Set<String> exact = new HashSet<>();
+            Set<String> required = new HashSet<>();
+            for (Literals branch : branches) {
+                if (exact != null && branch.exact() != null) {
+                    exact.addAll(branch.exact());
+                } else {
+                    exact = null;
+                }
+                Set<String> best = branch.best();
+                if (required != null && best != null && !best.contains("")) {
+                    required.addAll(best);
+                } else {
+                    required = null;
+                }
+            }
+            if (exact != null && exact.size() > MAX_EXACT_STRINGS) {
+                exact = null;
+            }
+            return new Literals(exact, required);
+        }
+
+        private Literals parseSequence() {
+            Set<String> whole = Set.of("");
+            Set<String> run = Set.of("");
+            Set<String> required = null;
+            while (pos < regex.length() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')') {
+                Literals item = parseQuantifier(parseAtom());
+                whole = whole != null && item.exact() != null ? product(whole, item.exact()) : null;
+                Set<String> extended = item.exact() != null ? product(run, item.exact()) : null;
+                if (extended != null) {
+                    run = extended;
+                    continue;
+                }
+                // the run of exact strings ends here
+                required = Literals.better(required, run.contains("") ? null : run);
+                required = Literals.better(required, item.best());
+                run = item.exact() != null ? item.exact() : Set.of("");
+            }
+            required = Literals.better(required, run.contains("") ? null : run);
+            return new Literals(whole, required);
+        }
+
+        private Literals parseAtom() {
+            char c = regex.charAt(pos++);
+            switch (c) {
+                case '(' -> {
+                    boolean zeroWidth = false;
+                    if (regex.startsWith("?:", pos)) {
+                        pos += 2;
+                    } else if (regex.startsWith("?=", pos) || regex.startsWith("?!", pos)) {
+                        pos += 2;
+                        zeroWidth = true;
+                    } else if (regex.startsWith("?<=", pos) || regex.startsWith("?<!", pos)) {
+                        pos += 3;
+                        zeroWidth = true;
+                    } else if (regex.startsWith("?", pos)) {
+                        // named groups, flags, ...
+                        throw new UnsupportedOperationException(regex);
+                    }
+                    Literals group = parseAlternation();
+                    expect(')');
+                    return zeroWidth ? Literals.ZERO_WIDTH : group;
+                }
+                case '[' -> {
+                    skipCharacterClass();
+                    return Literals.ANY;
+                }
+                case '\\' -> {
+                    char escaped = regex.charAt(pos++);
+                    if ("bBAGZz".indexOf(escaped) >= 0) {
+                        return Literals.ZERO_WIDTH;
+                    }
+                    if ("QkxuNc".indexOf(escaped) >= 0 || Character.isDigit(escaped)) {
+                        // quoting, references and character codes
+                        throw new UnsupportedOperationException(regex);
+                    }
+                    if (escaped == 'p' || escaped == 'P') {
+                        skipBraces();
+                    }
+                    return Character.isLetterOrDigit(escaped) ? Literals.ANY : Literals.of(escaped);
+                }
+                case '^', '$' -> {
+                    return Literals.ZERO_WIDTH;
+                }
+                case '.' -> {
+                    return Literals.ANY;
+                }
+                case ')', '|', '*', '+', '?', '{' -> throw new UnsupportedOperationException(regex);
+                default -> {
+                    return Literals.of(c);
+                }
+            }
+        }
+
+        private Literals parseQuantifier(Literals atom) {
+            if (pos >= regex.length()) {
+                return atom;
+            }
+            int min;
+            switch (regex.charAt(pos)) {
+                case '?' -> min = -1;
+                case '*' -> min = 0;
+                case '+' -> min = 1;
+                case '{' -> {
+                    int end = regex.indexOf('}', pos);
+                    if (end < 0) {
+                        throw new UnsupportedOperationException(regex);
+                    }
+                    String bounds = regex.substring(pos + 1, end);
+                    int comma = bounds.indexOf(',');
+                    min = Integer.parseInt((comma < 0 ? bounds : bounds.substring(0, comma)).trim());
+                    pos = end;
+                }
+                default -> {
+                    return atom;
+                }
+            }
+            pos++;
+            // lazy and possessive quantifiers match the same strings
+            if (pos < regex.length() && (regex.charAt(pos) == '?' || regex.charAt(pos) == '+')) {
+                pos++;
+            }
+            if (min < 0) {
+                return new Literals(atom.exact() != null ? union(atom.exact(), Set.of("")) : null, null);
+            }
+            return min == 0 ? Literals.ANY : new Literals(null, atom.best());
+        }
+
+        private void skipCharacterClass() {
+            int depth = 1;
+            if (pos < regex.length() && regex.charAt(pos) == '^') {
+                pos++;
+            }
+            // a leading ] is a literal
+            if (pos < regex.length() && regex.charAt(pos) == ']') {
+                pos++;
+            }
+            while (depth > 0) {
+                char c = regex.charAt(pos++);
+                if (c == '\\') {
+                    pos++;
+                } else if (c == '[') {
+                    depth++;
+                } else if (c == ']') {
+                    depth--;
+                }
+            }
+        }
+
+        private void skipBraces() {
+            if (pos < regex.length() && regex.charAt(pos) == '{') {
+                pos = regex.indexOf('}', pos) + 1;
+                if (pos == 0) {
+                    throw new UnsupportedOperationException(regex);
+                }
+            } else {
+                pos++;
+            }
+        }
+
+        private void expect(char c) {
+            if (pos >= regex.length() || regex.charAt(pos) != c) {
+                throw new UnsupportedOperationException(regex);
+            }
+            pos++;
+        }
+
+        private static Set<String> product(Set<String> prefixes, Set<String> suffixes) {
+            if ((long) prefixes.size() * suffixes.size() > MAX_EXACT_STRINGS) {
+                return null;
+            }
+            Set<String> product = new HashSet<>();
+            for (String prefix : prefixes) {
+                for (String suffix : suffixes) {
+                    product.add(prefix + suffix);
+                }
+            }
+            return product;
+        }
+
+        private static Set<String> union(Set<String> a, Set<String> b) {
+            Set<String> union = new HashSet<>(a);
+            union.addAll(b);
+            return union;
+        }
+    }
+}
@@ -5,20 +5,21 @@ import de.lmu.ifi.jvmbidtext.utils.SimpleConfig;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
-import java.util.Set;
 import java.util.regex.Pattern;
 
 public class SensitiveTerms implements Iterable<SensitiveTerms.SensitiveTerm> {
 
     private static final String FORBIDDEN_PREFIX = "class.{0,25}";
     private static final String FORBIDDEN_SUFFIX = "_?type";
-    private final Set<SensitiveTerm> terms;
+    // in the order of the terms file, which is the order in which the terms are matched
+    private final List<SensitiveTerm> terms;
 
     public SensitiveTerms() {
-        terms = new HashSet<>();
+        terms = new ArrayList<>();
         collectTerms();
     }
 
@@ -20,7 +20,7 @@ public class SinkDefinitions {
 
     private static final Map<String, SinkDefinition> sig2SinkDefinitions = new HashMap<>();
 
-    private static void collectPredefinedSinks() {
+    private static synchronized void collectPredefinedSinks() {
         if (sinksCollected) {
             return;
         }
@@ -0,0 +1,66 @@
+package de.lmu.ifi.jvmbidtext.analysis;
+
+import de.lmu.ifi.jvmbidtext.analysis.IncrementalAnalysis.StoredSink;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the reports of the sinks to the report folder while they are produced, so the reports do not have to be kept
+ * in memory until the end. The writers for structured formats write into a single file through a buffered channel and
+ * flush after every sink, so other tools can read the results of a running analysis.
+ */
+interface SinkReportWriter extends Closeable {
+    enum Format {
+        /**
+         * one text file per sink, named index.tag.txt
+         */
+        TEXT,
+        /**
+         * one JSON object per line in sinks.jsonl; sinks are written when they are discovered and again with their
+         * report
+         */
+        JSONL,
+        /**
+         * a SARIF 2.1.0 log in sinks.sarif with one result per report
+         */
+        SARIF
+    }
+
+    static SinkReportWriter open(Format format, String folder) throws IOException {
+        return switch (format) {
+            case TEXT -> new TextReportWriter(folder);
+            case JSONL -> new JsonLinesReportWriter(openChannel(Path.of(folder, JsonLinesReportWriter.FILE_NAME)));
+            case SARIF -> new SarifReportWriter(openChannel(Path.of(folder, SarifReportWriter.FILE_NAME)));
+        };
+    }
+
+    private static Writer openChannel(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        return new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Called as soon as an entrypoint analysis discovers a sink, before its report is known. Safe to be called
+     * concurrently.
+     */
+    default void sinkDiscovered(StoredSink sink) throws IOException {
+    }
+
+    /**
+     * Write the report of a sink; only sinks with a report are passed.
+     *
+     * @param idx position of the sink in the report
+     */
+    void write(StoredSink sink, int idx) throws IOException;
+}
@@ -1,35 +1,57 @@
 package de.lmu.ifi.jvmbidtext.analysis;
 
 import com.ibm.wala.ipa.slicer.Statement;
+import de.lmu.ifi.jvmbidtext.utils.SimpleConfig;
 import edu.stanford.nlp.ling.HasWord;
-import edu.stanford.nlp.ling.Label;
-import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
 import edu.stanford.nlp.process.DocumentPreprocessor;
-import edu.stanford.nlp.trees.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
 import java.io.StringReader;
 import java.util.*;
-import java.util.regex.Matcher;
 
 public class TextAnalysis {
 
     private static final Logger logger = LogManager.getLogger(TextAnalysis.class);
 
-    private final static String GRAMMAR = "edu/stanford/nlp/models/lexparser/englishPCFG.ser.gz";
+    private static final NegationDetector.Mode NEGATION_MODE;
+    private static final NegationDetector NEGATION_DETECTOR;
+    static {
+        try {
+            NEGATION_MODE = NegationDetector.Mode.valueOf(SimpleConfig.getNegationDetection());
+            NEGATION_DETECTOR = NegationDetector.of(NEGATION_MODE);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load config", e);
+        }
+    }
 
-    private static LexicalizedParser lexParser;
-    private final SensitiveTerms sensitiveTerms;
-    private final Map<String, List<Statement>> text2Path;
+    private final SensitiveTermMatcher termMatcher;
+    private Map<String, List<Statement>> text2Path;
     private Set<String> sensitivityIndicators;
 
     public TextAnalysis() {
         text2Path = new HashMap<>();
-        sensitiveTerms = new SensitiveTerms();
+        termMatcher = new SensitiveTermMatcher(new SensitiveTerms());
+    }
+
+    /**
+     * Start loading the NLP models that the configured negation detection needs, so that the text analysis at the end
+     * of the analysis does not have to wait for them. Only done for the modes that are expected to parse sentences,
+     * see {@link NegationDetector.Mode#isPreloaded()}.
+     */
+    public static void preloadModels() {
+        if (NEGATION_MODE.isPreloaded()) {
+            NEGATION_DETECTOR.preload();
+        }
     }
 
+    /**
+     * Analyze the texts of a sink. An instance can analyze the texts of several sinks one after another, the results
+     * of the previous sink are replaced.
+     */
     public void analyze(Map<String, List<Statement>> texts) {
+        text2Path = new HashMap<>();
         sensitivityIndicators = new HashSet<>();
         analyzeSensitivity(texts);
     }
@@ -38,94 +60,54 @@ public class TextAnalysis {
         Set<Map.Entry<String, List<Statement>>> textSet = texts.entrySet();
         for (Map.Entry<String, List<Statement>> entry : textSet) {
             String text = entry.getKey();
-            List<Statement> path = entry.getValue();
-            if (text.startsWith("http:") || text.startsWith("https:") || text.startsWith("/")) {
-                int idx = text.indexOf('?');
-                if (idx > 0) {
-                    String s = text.substring(idx + 1);
-                    recordIfContainsKeyword(s, text, path);
-                }
-            } else if (text.startsWith("&") && text.endsWith("=")) {
-                recordIfContainsKeyword(text, text, path);
-            } else if (text.length() == 1 || (!text.isEmpty() && Character.isDigit(text.charAt(0)))) {
-                continue;
-            } else if (!text.contains(" ")) {
-                recordIfContainsKeyword(text, text, path);
-            } else if (findKeyword(text).isPresent()) {
-                recordIfNotNegated(text, path);
+            List<String> matches = TextClassificationCache.classify(text, this::classify);
+            if (!matches.isEmpty()) {
+                sensitivityIndicators.addAll(matches);
+                text2Path.put(text, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return the keywords that make the text sensitive, empty if it is not
+     */
+    private List<String> classify(String text) {
+        List<String> matches = new ArrayList<>();
+        if (text.startsWith("http:") || text.startsWith("https:") || text.startsWith("/")) {
+            int idx = text.indexOf('?');
+            if (idx > 0) {
+                String s = text.substring(idx + 1);
+                addIfContainsKeyword(s, matches);
             }
+        } else if (text.startsWith("&") && text.endsWith("=")) {
+            addIfContainsKeyword(text, matches);
+        } else if (text.length() == 1 || (!text.isEmpty() && Character.isDigit(text.charAt(0)))) {
+            return matches;
+        } else if (!text.contains(" ")) {
+            addIfContainsKeyword(text, matches);
+        } else if (findKeyword(text).isPresent()) {
+            addIfNotNegated(text, matches);
         }
+        return matches;
     }
 
-    private void recordIfContainsKeyword(String textPartAnalyzed, String completeText, List<Statement> path) {
-        findKeyword(textPartAnalyzed).ifPresent(match -> {
-            sensitivityIndicators.add(match);
-            text2Path.put(completeText, path);
-        });
+    private void addIfContainsKeyword(String textPartAnalyzed, List<String> matches) {
+        findKeyword(textPartAnalyzed).ifPresent(matches::add);
     }
 
-    private void recordIfNotNegated(String origStr, List<Statement> path) {
-        if (lexParser == null) {
-            lexParser = LexicalizedParser.loadModel(GRAMMAR);
-        }
-        LexicalizedParser lp = lexParser;
-        TreebankLanguagePack tlp = lp.getOp().langpack();
-        GrammaticalStructureFactory gsf = tlp.grammaticalStructureFactory();
-        // Tokenizer<? extends HasWord> toke = tlp.getTokenizerFactory()
-        // .getTokenizer(new StringReader(origStr));
-        // List<? extends HasWord> sentence = toke.tokenize();
+    private void addIfNotNegated(String origStr, List<String> matches) {
         DocumentPreprocessor tokenizer = new DocumentPreprocessor(new StringReader(origStr));
         for (List<? extends HasWord> sentence : tokenizer) {
             String s = rebuildString(sentence);
             if (findKeyword(s).isEmpty()) {
                 continue;
             }
-            Tree parse = lp.parse(sentence);
-            // System.err.println(s);
-            GrammaticalStructure gs = gsf.newGrammaticalStructure(parse);
-            List<TypedDependency> tdl = gs.typedDependenciesCCprocessed();
-//                 System.out.println(tdl);
-            // parse.pennPrint();
-            Tree c = parse.firstChild();
-            Label l = c.label();
-            // System.err.println(c.getClass());
-            // if not a sentence
-            if (!l.value().equals("S")) {
-                // Not a sentence
-                recordIfContainsKeyword(s, origStr, path);
-                continue;
-            }
-
-            int negIdx = 0;
-            for (TypedDependency td : tdl) {
-                if ("neg".equals(td.reln().toString()) ||
-                        // second condition added during rework
-                        td.dep().backingLabel().value().equalsIgnoreCase("not")) {
-                    break;
-                }
-                negIdx++;
-            }
-
-            if (negIdx <= 0 || negIdx >= tdl.size()) {
-                // no negation found
-                recordIfContainsKeyword(s, origStr, path);
-                continue;
-            }
-
-            TypedDependency td = tdl.get(negIdx - 1);
-            if (td.reln().toString().equals("aux")) {
-                String ns = td.dep().backingLabel().value().toLowerCase();
-                if ("should".equals(ns) || "shall".equals(ns)
-                    /* || "could".equals(ns) || "can".equals(ns) */) {
-                    logger.info("    * Negation detected: <<{}>>", s);
-                } else if ("do".equals(ns) && (negIdx == 1 || !tdl.get(negIdx - 2).reln().toString().equals("nsubj"))) {
-                    logger.info("    * Negation detected: <<{}>>", s);
-                } else {
-                    recordIfContainsKeyword(s, origStr, path);
-                }
+            if (NEGATION_DETECTOR.isNegated(sentence)) {
+                logger.info("    * Negation detected: <<{}>>", s);
+            } else {
+                addIfContainsKeyword(s, matches);
             }
         }
-        // System.err.println(tagBuilder.toString());
     }
 
     private String rebuildString(List<? extends HasWord> sentence) {
@@ -144,22 +126,9 @@ public class TextAnalysis {
         String lowercaseString = string.toLowerCase();
         String withCamelToWhitespace = insertWhitespaceIntoCamelCase(string);
         String withoutUnderscore = withCamelToWhitespace.replace('_', ' ');
-        for (SensitiveTerms.SensitiveTerm term : sensitiveTerms) {
-            // patterns could require underscores
-            Matcher matcher = term.pattern().matcher(lowercaseString);
-            if (matcher.find()) {
-                String matched = matcher.group();
-                return Optional.of(matched);
-            }
-
-            // search should also match if parts of words are concatenated in camel case or with underscores
-            matcher = term.pattern().matcher(withoutUnderscore);
-            if (matcher.find()) {
-                String matched = matcher.group();
-                return Optional.of(matched);
-            }
-        }
-        return Optional.empty();
+        // patterns could require underscores, but the search should also match if parts of words are concatenated in
+        // camel case or with underscores
+        return termMatcher.find(lowercaseString, withoutUnderscore);
     }
 
     /**
@@ -206,6 +175,14 @@ public class TextAnalysis {
         return builder.toString().trim();
     }
 
+    /**
+     * Drop the results of the last sink, so that its paths are not kept until the next sink is analyzed.
+     */
+    public void clear() {
+        text2Path = new HashMap<>();
+        sensitivityIndicators = new HashSet<>();
+    }
+
     public Map<String, List<Statement>> getText2Path() {
         return text2Path;
     }
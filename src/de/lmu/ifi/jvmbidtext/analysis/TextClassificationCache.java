@@ -0,0 +1,100 @@
+package de.lmu.ifi.jvmbidtext.analysis;
+
+import de.lmu.ifi.jvmbidtext.utils.SimpleConfig;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Classification of the texts by {@link TextAnalysis}, shared by all sinks and entrypoints of an analysis. The same
+ * texts reach many sinks, and the classification of a text only depends on the text itself, so the keyword matching
+ * and the parsing of sentences are done once per text. The least recently used texts are evicted if the cache exceeds
+ * its configured size. Safe for concurrent use; a text that is classified concurrently by two threads is classified
+ * twice.
+ */
+public class TextClassificationCache {
+    private static final int MAX_SIZE;
+    static {
+        try {
+            MAX_SIZE = SimpleConfig.getTextClassificationCacheSize();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load config", e);
+        }
+    }
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder EVICTIONS = new LongAdder();
+    private static final Map<String, List<String>> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+            if (size() > MAX_SIZE) {
+                EVICTIONS.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * @param classify classifies a text that is not in the cache
+     * @return the sensitivity indicators of the text, empty if the text is not sensitive
+     */
+    static List<String> classify(String text, Function<String, List<String>> classify) {
+        if (MAX_SIZE <= 0) {
+            return classify.apply(text);
+        }
+        List<String> indicators;
+        synchronized (CACHE) {
+            indicators = CACHE.get(text);
+        }
+        if (indicators != null) {
+            HITS.increment();
+            return indicators;
+        }
+        MISSES.increment();
+        // not synchronized, parsing a sentence takes long
+        indicators = List.copyOf(classify.apply(text));
+        synchronized (CACHE) {
+            CACHE.put(text, indicators);
+        }
+        return indicators;
+    }
+
+    /**
+     * Forget the texts and counters of a previous analysis in this JVM.
+     */
+    public static void reset() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+        HITS.reset();
+        MISSES.reset();
+        EVICTIONS.reset();
+    }
+
+    static Counters getCounters() {
+        int size;
+        synchronized (CACHE) {
+            size = CACHE.size();
+        }
+        return new Counters(HITS.sum(), MISSES.sum(), EVICTIONS.sum(), size);
+    }
+
+    /**
+     * @param hits      texts whose classification was taken from the cache
+     * @param misses    texts that were classified
+     * @param evictions texts that were evicted because the cache was full
+     * @param size      texts in the cache
+     */
+    record Counters(long hits, long misses, long evictions, int size) {
+        @Override
+        public String toString() {
+            return String.format("%d hits, %d misses, %d evictions, %d cached texts", hits, misses, evictions, size);
+        }
+    }
+}
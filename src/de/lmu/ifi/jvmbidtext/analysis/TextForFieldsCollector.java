@@ -1,34 +1,32 @@
 package de.lmu.ifi.jvmbidtext.analysis;
 
-import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.slicer.NormalStatement;
 import com.ibm.wala.ipa.slicer.Statement;
 import com.ibm.wala.ssa.SSAGetInstruction;
 import com.ibm.wala.ssa.SSAInstruction;
 import com.ibm.wala.ssa.SSAPutInstruction;
-import de.lmu.ifi.jvmbidtext.graph.model.SimpleGraphNode;
-import de.lmu.ifi.jvmbidtext.graph.model.TypingGraph;
-import de.lmu.ifi.jvmbidtext.graph.model.TypingNode;
-import de.lmu.ifi.jvmbidtext.graph.model.TypingRecord;
+import de.lmu.ifi.jvmbidtext.analysis.FieldIndex.FieldLink;
+import de.lmu.ifi.jvmbidtext.analysis.FieldIndex.RecordSummary;
 import de.lmu.ifi.jvmbidtext.graph.construction.TypingGraphUtil;
 
 import java.util.*;
 import java.util.function.Predicate;
 
 public class TextForFieldsCollector {
-    private final TypingGraph graph;
-    private final TypingRecord initialRecord;
+    private final FieldIndex fields;
+    private final RecordSummary initialRecord;
 
     private final Map<String, List<Statement>> texts; // is result (modified by reference)!
     private final Set<Integer> constants; // is result (modified by reference)!
 
     private boolean isBackward;
-    private Stack<TypingGraph> visitedTypingGraphs;
+    private List<FieldIndex> allFields;
+    private Deque<FieldIndex> visitedFields;
     private List<WorklistEntry> worklist;
 
-    public TextForFieldsCollector(TypingGraph typingGraph, TypingRecord initialRecord,
+    public TextForFieldsCollector(FieldIndex fields, RecordSummary initialRecord,
                                   Map<String, List<Statement>> texts, Set<Integer> constants) {
-        this.graph = typingGraph;
+        this.fields = fields;
         this.initialRecord = initialRecord;
         this.texts = texts;
         this.constants = constants;
@@ -36,79 +34,78 @@ public class TextForFieldsCollector {
 
     public void collect(boolean isBackward) {
         this.isBackward = isBackward;
-        visitedTypingGraphs = new Stack<>();
+        allFields = fieldIndexesInEntrypointOrder();
+        visitedFields = new ArrayDeque<>();
         worklist = new LinkedList<>();
         // for now: modifies texts and constants by reference
         // TODO: refactor to return a new collections
-        collectTextsForFieldsHelper(initialRecord, 0, new LinkedList<>());
+        collectTextsForFieldsHelper(fields, initialRecord, 0, new LinkedList<>());
     }
 
-    private void collectTextsForFieldsHelper(TypingRecord record, int permLevel, List<Statement> fieldPath) {
+    /**
+     * A field written by one entrypoint connects to the reads of the field in the other entrypoints and vice versa.
+     *
+     * @param recordFields the field index the record belongs to
+     */
+    private void collectTextsForFieldsHelper(FieldIndex recordFields, RecordSummary record, int permLevel,
+                                             List<Statement> fieldPath) {
         if (permLevel >= 2) {
             return;
         }
         int previousWorklistSize = worklist.size();
-        Map<SimpleGraphNode, List<Statement>> sources;
+        List<FieldLink> sources;
         if (isBackward) {
-            sources = record.getInputFields();
+            sources = record.inputFields();
         } else {
-            sources = record.getOutputFields();
+            sources = record.outputFields();
         }
-        visitedTypingGraphs.push(graph);
-        for (Map.Entry<SimpleGraphNode, List<Statement>> sgnPath : sources.entrySet()) {
-            TypingNode typingNode = graph.getNode(sgnPath.getKey().nodeId());
-            if (!typingNode.isField()) {
-                continue;
-            }
-            List<Statement> connectedPath = buildConnectedPath(fieldPath, sgnPath.getValue(),
-                    pathElement -> startAddingPathElements(pathElement, typingNode), true);
-            for (Map.Entry<Entrypoint, TypingGraph> entry : TypingGraphUtil.entry2Graph.entrySet()) {
-                // Entrypoint ep = entry.getKey();
-                TypingGraph typingGraph = entry.getValue();
-                if (visitedTypingGraphs.contains(typingGraph)) {
+        visitedFields.push(recordFields);
+        for (FieldLink source : sources) {
+            String sig = source.fieldSignature();
+            List<Statement> connectedPath = buildConnectedPath(fieldPath, source.path(),
+                    pathElement -> startAddingPathElements(pathElement, sig), true);
+            for (FieldIndex otherFields : allFields) {
+                if (visitedFields.contains(otherFields)) {
                     continue;
                 }
-                Set<TypingRecord> targets = buildTargets(typingNode);
+                List<RecordSummary> targets = isBackward ? otherFields.getOutgoing(sig) : otherFields.getIncoming(sig);
                 if (!targets.isEmpty()) {
                     // connectedPath -> record field path
-                    worklist.add(new WorklistEntry(permLevel + 1, targets, connectedPath));
+                    worklist.add(new WorklistEntry(otherFields, permLevel + 1, targets, connectedPath));
                 }
             }
         }
         dumpTextForFieldsViaWorklist(previousWorklistSize);
-        visitedTypingGraphs.pop();
+        visitedFields.pop();
     }
 
-    private Set<TypingRecord> buildTargets(TypingNode typingNode) {
-        String sig = typingNode.getFieldRef().getSignature();// System.err.println(sig);
-        Set<TypingRecord> targets = new HashSet<>();
-        Iterator<TypingNode> fieldIterator;
-        if (isBackward) {
-            fieldIterator = graph.iterateAllOutgoingFields(sig);
-        } else {
-            fieldIterator = graph.iterateAllIncomingFields(sig);
-        }
-        while (fieldIterator.hasNext()) {
-            TypingNode field = fieldIterator.next();
-            TypingRecord fieldRecord = graph.getTypingRecord(field.getGraphNodeId());
-            if (fieldRecord != null) {
-                targets.add(fieldRecord);
-            }
-        }
-        return targets;
+    /**
+     * The entrypoint order makes the texts found over fields independent of the order in which the entrypoint analyses
+     * completed.
+     */
+    private static List<FieldIndex> fieldIndexesInEntrypointOrder() {
+        List<FieldIndex> indexes = new ArrayList<>(TypingGraphUtil.entry2Fields.values());
+        indexes.sort(Comparator.comparingInt(
+                        (FieldIndex index) -> AnalysisUtil.entrypointIndex(signatureOf(index)))
+                .thenComparing(TextForFieldsCollector::signatureOf));
+        return indexes;
+    }
+
+    private static String signatureOf(FieldIndex index) {
+        return IncrementalAnalysis.signature(index.getEntrypoint());
     }
 
     private void dumpTextForFieldsViaWorklist(int initSize) {
         while (worklist.size() > initSize) {
             WorklistEntry worklistEntry = worklist.remove(initSize);
             int permLevel = worklistEntry.permLevel();
-            Set<TypingRecord> recSet = worklistEntry.recordSet();
+            Collection<RecordSummary> recSet = worklistEntry.recordSet();
             List<Statement> fieldPath = worklistEntry.fieldPath();
             if (fieldPath.isEmpty()) {
                 continue;
             }
-            for (TypingRecord rec : recSet) {
-                Map<String, List<Statement>> recTexts = rec.getTypingTexts();
+            for (RecordSummary rec : recSet) {
+                Map<String, List<Statement>> recTexts = rec.texts();
                 for (Map.Entry<String, List<Statement>> entry : recTexts.entrySet()) {
                     String key = entry.getKey();
                     List<Statement> path = entry.getValue();
@@ -121,13 +118,8 @@ public class TextForFieldsCollector {
                         texts.put(key, connectedPath); // sensitive text
                     }
                 }
-                Set<Object> consts = rec.getTypingConstants();
-                for (Object c : consts) {
-                    if (c instanceof Integer i) {
-                        constants.add(i);
-                    }
-                }
-                collectTextsForFieldsHelper(rec, permLevel + 1, fieldPath);
+                constants.addAll(rec.constants());
+                collectTextsForFieldsHelper(worklistEntry.recordFields(), rec, permLevel + 1, fieldPath);
             }
         }
     }
@@ -166,14 +158,14 @@ public class TextForFieldsCollector {
         return new LinkedList<>();
     }
 
-    private boolean startAddingPathElements(Statement pathElement, TypingNode typingNode) {
+    private boolean startAddingPathElements(Statement pathElement, String fieldSignature) {
         // TODO refactor to use a more general approach between this method, isConnectingStatement and getConnectorSignature
         if (pathElement instanceof NormalStatement nstmt) {
             SSAInstruction inst = nstmt.getInstruction();
             if (isBackward && inst instanceof SSAGetInstruction getInstruction) {
-                return typingNode.getFieldRef().getSignature().equals(getInstruction.getDeclaredField().getSignature());
+                return fieldSignature.equals(getInstruction.getDeclaredField().getSignature());
             } else if (!isBackward && inst instanceof SSAPutInstruction putInstruction) {
-                return typingNode.getFieldRef().getSignature().equals(putInstruction.getDeclaredField().getSignature());
+                return fieldSignature.equals(putInstruction.getDeclaredField().getSignature());
             }
         }
         return false;
@@ -213,7 +205,8 @@ public class TextForFieldsCollector {
         return null;
     }
 
-    private record WorklistEntry(int permLevel, Set<TypingRecord> recordSet, List<Statement> fieldPath) {
+    private record WorklistEntry(FieldIndex recordFields, int permLevel, Collection<RecordSummary> recordSet,
+                                 List<Statement> fieldPath) {
 
     }
 }
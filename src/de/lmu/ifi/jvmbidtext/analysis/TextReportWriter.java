@@ -0,0 +1,35 @@
+package de.lmu.ifi.jvmbidtext.analysis;
+
+import de.lmu.ifi.jvmbidtext.analysis.IncrementalAnalysis.StoredSink;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * The original report format: one text file per sink.
+ */
+class TextReportWriter implements SinkReportWriter {
+    private final String folder;
+
+    TextReportWriter(String folder) {
+        this.folder = folder;
+    }
+
+    @Override
+    public void write(StoredSink sink, int idx) throws IOException {
+        File resultFile = new File(folder + "/" + idx + "." + sink.tag() + ".txt");
+        try (PrintWriter writer = new PrintWriter(resultFile)) {
+            writer.print(sink.report());
+        } catch (IOException e) {
+            if (resultFile.exists()) {
+                resultFile.delete();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -18,10 +18,11 @@ public class ApiPropagationRules {
 
     public static Set<Rule> getRules(String sig) {
         collectRules();
-        return sig2Rules.computeIfAbsent(sig, __ -> new HashSet<>());
+        // read-only lookup: the rules are shared by all concurrently analyzed entrypoints
+        return sig2Rules.getOrDefault(sig, Collections.emptySet());
     }
 
-    private static void collectRules() {
+    private static synchronized void collectRules() {
         if (rulesCollected) {
             return;
         }
@@ -18,7 +18,7 @@ public class ApiSourceCorrelationRules {
         return sig2rules.get(sig);
     }
 
-    private static void collectRules() {
+    private static synchronized void collectRules() {
         if (ruleCollected) {
             return;
         }
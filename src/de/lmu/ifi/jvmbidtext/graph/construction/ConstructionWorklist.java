@@ -3,13 +3,27 @@ package de.lmu.ifi.jvmbidtext.graph.construction;
 import com.ibm.wala.ipa.slicer.*;
 import com.ibm.wala.types.FieldReference;
 import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.util.graph.NumberedNodeManager;
 import de.lmu.ifi.jvmbidtext.graph.model.TypingNode;
 
 import java.util.*;
 
-public class ConstructionWorklist implements Iterable<ConstructionWorklist.Item> {
-
-    private final List<Item> delegate;
+/**
+ * FIFO worklist of the SDG statements to visit while constructing the TypingGraph for one top level statement. The
+ * statements are stored by their number in a {@link NumberedNodeManager} of the SDG, together with the cached node of
+ * the predecessor, in a growing ring buffer, so adding and removing statements does not allocate.
+ */
+public class ConstructionWorklist {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final NumberedNodeManager<Statement> statements;
+    private int[] numbers;
+    private TypingNode[] cachedNodes;
+    // ParamCaller of a ParamCallee or NormalStatement of a NormalReturnCaller, see item(Statement, Optional)
+    private Statement[] cachedStatements;
+    private int head;
+    private int size;
+    private final Item current = new Item();
 
     // caches of statements to link the caller and callee both for method invocations and returns
     // callee (method reference) always means 'child method'
@@ -21,36 +35,83 @@ public class ConstructionWorklist implements Iterable<ConstructionWorklist.Item>
     // These artificial field nodes are stored in this map and can be used to link new artificial field nodes accessing the same field to all the other field accesses.
     private final Map<FieldReference, Set<TypingNode>> artificialFieldNodes;
 
-    public ConstructionWorklist() {
-        delegate = new LinkedList<>();
+    /**
+     * @param statements numbering of the statements of the SDG
+     */
+    public ConstructionWorklist(NumberedNodeManager<Statement> statements) {
+        this.statements = statements;
+        numbers = new int[INITIAL_CAPACITY];
+        cachedNodes = new TypingNode[INITIAL_CAPACITY];
+        cachedStatements = new Statement[INITIAL_CAPACITY];
         calleesOfMethodInvocations = new HashMap<>();
         calleesOfReturns = new HashMap<>();
         artificialFieldNodes = new HashMap<>();
     }
 
     public boolean isEmpty() {
-        return delegate.isEmpty();
-    }
-
-    public boolean add(Item item) {
-        return delegate.add(item);
+        return size == 0;
     }
 
     public boolean add(Statement statement) {
-        return add(item(statement));
+        return add(statement, Optional.empty());
     }
 
     public boolean add(Statement statement, Optional<TypingNode> cachedNode) {
-        return add(item(statement, cachedNode));
+        //TODO is cachedNode always statement.getNode()?
+        Statement cachedStatement = null;
+        if (statement instanceof ParamCallee paramCallee) {
+            // the side that executes the call to a child method
+            // Remove from cache as every param callee is preceded by a param caller which overwrites the cache anyway
+            cachedStatement = calleesOfMethodInvocations.remove(paramCallee.getNode().getMethod().getReference());
+        } else if (statement instanceof NormalReturnCaller normalReturnCaller) {
+            // the side that executes 'return x;'
+            cachedStatement =
+                    calleesOfReturns.remove(normalReturnCaller.getInstruction().getCallSite().getDeclaredTarget());
+        }
+        if (size == numbers.length) {
+            grow();
+        }
+        int tail = (head + size) % numbers.length;
+        numbers[tail] = statements.getNumber(statement);
+        cachedNodes[tail] = cachedNode.orElse(null);
+        cachedStatements[tail] = cachedStatement;
+        size++;
+        return true;
     }
 
+    /**
+     * @return the first item; the item is reused and only valid until the next call
+     */
     public Item removeFirst() {
-        return delegate.removeFirst();
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        current.number = numbers[head];
+        current.statement = statements.getNode(current.number);
+        current.cachedNode = cachedNodes[head];
+        current.cachedStatement = cachedStatements[head];
+        cachedNodes[head] = null;
+        cachedStatements[head] = null;
+        head = (head + 1) % numbers.length;
+        size--;
+        return current;
     }
 
-    @Override
-    public Iterator<Item> iterator() {
-        return delegate.iterator();
+    private void grow() {
+        int capacity = numbers.length * 2;
+        int[] newNumbers = new int[capacity];
+        TypingNode[] newCachedNodes = new TypingNode[capacity];
+        Statement[] newCachedStatements = new Statement[capacity];
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) % numbers.length;
+            newNumbers[i] = numbers[index];
+            newCachedNodes[i] = cachedNodes[index];
+            newCachedStatements[i] = cachedStatements[index];
+        }
+        numbers = newNumbers;
+        cachedNodes = newCachedNodes;
+        cachedStatements = newCachedStatements;
+        head = 0;
     }
 
     public void cacheParamCaller(ParamCaller pcStmt) {
@@ -74,85 +135,51 @@ public class ConstructionWorklist implements Iterable<ConstructionWorklist.Item>
         return artificialFieldNodes.computeIfAbsent(field, __ -> new HashSet<>());
     }
 
-    public Item item(Statement stmt) {
-        return new Item(stmt, Optional.empty(), Optional.empty(), Optional.empty());
-    }
+    /**
+     * A statement taken from the worklist with the cached node of its predecessor and, for ParamCallee and
+     * NormalReturnCaller statements, the statement of the caller cached when the statement was added.
+     */
+    public static final class Item {
+        private int number;
+        private Statement statement;
+        private TypingNode cachedNode;
+        private Statement cachedStatement;
 
-    public Item item(Statement statement, Optional<TypingNode> cachedNode) {
-        //TODO is cachedNode always statement.getNode()?
-        if (statement instanceof ParamCallee paramCallee) {
-            // the side that executes the call to a child method
-            // Remove from cache as every param callee is preceded by a param caller which overwrites the cache anyway
-            ParamCaller paramCaller =
-                    calleesOfMethodInvocations.remove(paramCallee.getNode().getMethod().getReference());
-            return new Item(statement, cachedNode, Optional.ofNullable(paramCaller), Optional.empty());
-        } else if (statement instanceof NormalReturnCaller normalReturnCaller) {
-            // the side that executes 'return x;'
-            NormalStatement callee =
-                    calleesOfReturns.remove(normalReturnCaller.getInstruction().getCallSite().getDeclaredTarget());
-            return new Item(statement, cachedNode, Optional.empty(), Optional.ofNullable(callee));
-        } else {
-            return new Item(statement, cachedNode, Optional.empty(), Optional.empty());
+        private Item() {
         }
-    }
 
-    public static final class Item {
-        private final Statement statement;
-        private final Optional<TypingNode> cachedNode;
-        private final Optional<ParamCaller> cachedParamCaller;
-        private final Optional<NormalStatement> cachedNormalStatement;
-
-        // Cannot use record because the constructor should be private to avoid mismatched object configuration where
-        // e.g. cachedParamCaller is set for non-ParamCallee statements
-        private Item(Statement statement, Optional<TypingNode> cachedNode, Optional<ParamCaller> cachedParamCaller,
-                     Optional<NormalStatement> cachedNormalStatement) {
-            this.statement = statement;
-            this.cachedNode = cachedNode;
-            this.cachedParamCaller = cachedParamCaller;
-            this.cachedNormalStatement = cachedNormalStatement;
+        /**
+         * @return the number of the statement in the numbering of the worklist
+         */
+        public int number() {
+            return number;
         }
 
         public Statement statement() {
             return statement;
         }
 
-        public Optional<TypingNode> cachedNode() {
+        /**
+         * @return the node of the predecessor or null
+         */
+        public TypingNode cachedNode() {
             return cachedNode;
         }
 
         public Optional<ParamCaller> cachedParamCaller() {
-            return cachedParamCaller;
+            return statement instanceof ParamCallee ? Optional.ofNullable((ParamCaller) cachedStatement)
+                    : Optional.empty();
         }
 
         public Optional<NormalStatement> cachedNormalStatement() {
-            return cachedNormalStatement;
-        }
-
-        @Override
-        public boolean equals(Object obj) {
-            if (obj == this) {
-                return true;
-            }
-            if (obj == null || obj.getClass() != this.getClass()) {
-                return false;
-            }
-            var that = (Item) obj;
-            return Objects.equals(this.statement, that.statement) && Objects.equals(this.cachedNode, that.cachedNode) &&
-                    Objects.equals(this.cachedParamCaller, that.cachedParamCaller) &&
-                    Objects.equals(this.cachedNormalStatement, that.cachedNormalStatement);
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hash(statement, cachedNode, cachedParamCaller, cachedNormalStatement);
+            return statement instanceof NormalReturnCaller ? Optional.ofNullable((NormalStatement) cachedStatement)
+                    : Optional.empty();
         }
 
         @Override
         public String toString() {
             return "Item[" + "statement=" + statement + ", " + "cachedNode=" + cachedNode + ", " +
-                    "cachedParamCaller=" + cachedParamCaller + ", " + "cachedNormalStatement=" + cachedNormalStatement +
-                    ']';
+                    "cachedStatement=" + cachedStatement + ']';
         }
-
     }
 }
@@ -0,0 +1,573 @@
+package de.lmu.ifi.jvmbidtext.graph.construction;
+
+import com.ibm.wala.analysis.stackMachine.AbstractIntStackMachine;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.StaticFieldKey;
+import com.ibm.wala.ipa.slicer.HeapStatement.HeapParamCallee;
+import com.ibm.wala.ipa.slicer.HeapStatement.HeapReturnCallee;
+import com.ibm.wala.ipa.slicer.HeapStatement.HeapReturnCaller;
+import com.ibm.wala.ipa.slicer.*;
+import com.ibm.wala.ipa.slicer.Statement.Kind;
+import com.ibm.wala.ssa.*;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.util.graph.Graph;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.NumberedNodeManager;
+import com.ibm.wala.util.graph.impl.SlowNumberedNodeManager;
+import de.lmu.ifi.jvmbidtext.graph.model.*;
+import de.lmu.ifi.jvmbidtext.graph.propagation.Propagator;
+import de.lmu.ifi.jvmbidtext.utils.AnalysisBudget;
+import de.lmu.ifi.jvmbidtext.utils.PhaseMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+
+/**
+ * Builds the TypingGraph of a single entrypoint from its pruned SDG. All state of the construction is kept in the
+ * builder instance, so multiple TypingGraphs can be built concurrently. A builder is meant to be used only once.
+ */
+public class TypingGraphBuilder {
+    private static final Logger logger = LogManager.getLogger(TypingGraphBuilder.class);
+    private final Graph<Statement> sdg;
+    private final CGNode fakeRootNode;
+    private final AnalysisBudget budget;
+    private final TypingGraph typingGraph;
+    private final Map<SSAGetInstruction, TypingNode> ssaGet2Nodes;
+    private final Map<PointerKey, TypingNode> sFieldHeaps;
+
+    public TypingGraphBuilder(Entrypoint ep, Graph<Statement> sdg, CGNode fakeRootNode, AnalysisBudget budget) {
+        this.sdg = sdg;
+        this.fakeRootNode = fakeRootNode;
+        this.budget = budget;
+        typingGraph = new TypingGraph(ep);
+        ssaGet2Nodes = new HashMap<>();
+        sFieldHeaps = new HashMap<>();
+    }
+
+    public TypingGraph build() {
+        buildWithoutPropagation();
+        logger.info("   - Propagate Typing");
+        try (PhaseMetrics.Phase phase = PhaseMetrics.start("propagation", entrypointSignature())) {
+            new Propagator(typingGraph, budget).propagate();
+        }
+
+        debugPrintNodesAndTyping();
+        logger.info("   - Typing records: {}, records per used slot: {}", typingGraph.getNumberOfTypingRecords(),
+                typingGraph.countRecordSlotUsage());
+
+        // clear typing graph at the end - remove unused data for memory efficiency
+        typingGraph.clearAtEnd();
+        return typingGraph;
+    }
+
+    /**
+     * Construct the TypingGraph from the SDG without propagating the typing. Used by {@link #build()} and by the
+     * benchmarks that measure construction and propagation separately.
+     */
+    public TypingGraph buildWithoutPropagation() {
+        try (PhaseMetrics.Phase phase = PhaseMetrics.start("construction", entrypointSignature())) {
+            return construct();
+        }
+    }
+
+    private TypingGraph construct() {
+        logger.info("   - Visit SDG ");
+        NumberedNodeManager<Statement> statementNumbers = numberStatements();
+        int[] visitedStatementCount = new int[statementNumbers.getMaxNumber() + 1];
+        int idx = 0;
+        for (Statement stmt : sdg) {
+            logger.debug("    + SDG stmt: {} ## {}", idx, stmt.toString());
+            idx++;
+            buildTypingGraphForStmt(stmt, statementNumbers, visitedStatementCount);
+            if (budget.isExhausted()) {
+                logger.warn("   - Stop visiting the SDG: {}", budget.getCancelMessage());
+                break;
+            }
+        }
+
+        ssaGet2Nodes.clear();
+        sFieldHeaps.clear();
+        logger.info("   - Process possible incoming fields");
+        typingGraph.collectIncomingFields();
+        logger.info("   - Revisit TypingGraph for global constants");
+        new GlobalConstantStringProcessor(typingGraph).revisitTypingGraph();
+        logger.info("   - Update Typing Records for Fields");
+        typingGraph.updateFieldTypingRecords();
+        return typingGraph;
+    }
+
+    /**
+     * The pruned SDG is not numbered, so its statements are numbered once here unless the graph has numbers already.
+     */
+    private NumberedNodeManager<Statement> numberStatements() {
+        if (sdg instanceof NumberedGraph<Statement> numbered) {
+            return numbered;
+        }
+        SlowNumberedNodeManager<Statement> numbers = new SlowNumberedNodeManager<>();
+        for (Statement stmt : sdg) {
+            numbers.addNode(stmt);
+        }
+        return numbers;
+    }
+
+    private String entrypointSignature() {
+        return typingGraph.getEntrypoint().getMethod().getSignature();
+    }
+
+    private void debugPrintNodesAndTyping() {
+        logger.debug("GRAPH NODE TYPING");
+        typingGraph.node2Typing.forEach((simpleGraphNode, record) -> logger.debug("  - {} : {}",
+                typingGraph.getNode(simpleGraphNode.nodeId()), record));
+    }
+
+    private void buildTypingGraphForStmt(Statement stmt, NumberedNodeManager<Statement> statementNumbers,
+                                         int[] visitedStatementCount) {
+        // only scan top level stmt
+        if (sdg.getPredNodeCount(stmt) != 0
+            // || (stmt.getKind() == Kind.HEAP_PARAM_CALLEE && stmt.getNode().equals(cg.getFakeRootNode()))
+        ) {
+            return;
+        }
+        ConstructionWorklist worklist = new ConstructionWorklist(statementNumbers);
+        worklist.add(stmt);
+        while (!worklist.isEmpty() && !budget.isExhausted()) {
+            ConstructionWorklist.Item item = worklist.removeFirst();
+            buildTypingGraphForStmtBFS(item, visitedStatementCount, worklist);
+        }
+    }
+
+    private void buildTypingGraphForStmtBFS(ConstructionWorklist.Item item, int[] statementVisitCount,
+                                            ConstructionWorklist worklist) {
+
+        Optional<TypingNode> newCachedNode = handleStatement(item, worklist);
+        if (statementVisited(item.statement(), item.number(), statementVisitCount)) {
+            return;
+        }
+
+        Iterator<Statement> succNodes = sdg.getSuccNodes(item.statement());
+        while (succNodes.hasNext()) {
+            Statement nextStatement = succNodes.next();
+            worklist.add(nextStatement, newCachedNode);
+        }
+    }
+
+    private Optional<TypingNode> handleStatement(ConstructionWorklist.Item item, ConstructionWorklist worklist) {
+        Statement stmt = item.statement();
+        TypingNode cachedNode = item.cachedNode();
+        Kind kind = stmt.getKind();
+        logger.debug("      - Handle stmt: {}", stmt.toString());
+        return switch (kind) {
+            case PHI -> handlePhi((PhiStatement) stmt);
+            case NORMAL -> handleNormal((NormalStatement) stmt, cachedNode, worklist);
+            case PARAM_CALLER -> handleParamCaller((ParamCaller) stmt, worklist);
+            case PARAM_CALLEE -> handleParamCallee((ParamCallee) stmt, cachedNode, item.cachedParamCaller());
+            case NORMAL_RET_CALLER ->
+                    handleNormalRetCaller((NormalReturnCaller) stmt, cachedNode, item.cachedNormalStatement());
+            case NORMAL_RET_CALLEE -> Optional.ofNullable(cachedNode);
+            case HEAP_RET_CALLEE -> handleHeapRetCallee((HeapReturnCallee) stmt, cachedNode);
+            case HEAP_RET_CALLER -> handleHeapRetCaller((HeapReturnCaller) stmt);
+            case HEAP_PARAM_CALLEE -> handleHeapParamCallee((HeapParamCallee) stmt);
+            default -> Optional.empty();
+        };
+    }
+
+
+    /************************************************************/
+    /************** Handle Specific WALA Statement **************/
+
+    /**
+     * Return True if stmt has more than 1 incoming edges and all these edges
+     * have been traversed.
+     */
+    private boolean statementVisited(Statement stmt, int number, int[] visitedStatementsCount) {
+        int predNodeCount = sdg.getPredNodeCount(stmt);
+        if (predNodeCount <= 1) {
+            return false;
+        }
+        int count = ++visitedStatementsCount[number];
+        if (count >= predNodeCount) {
+            visitedStatementsCount[number] = 0;
+            // TODO for understanding: does this clear the counter for the next iteration of the outer loop (processing of all stmts of sdg)?
+            // return true; // visited = true; was comment in original code
+        }
+        return count > 1; // TODO shouldn't this be > sdg.getPredNodeCount(stmt)?
+
+    }
+
+    private Optional<TypingNode> handlePhi(PhiStatement phiStmt) {
+        CGNode cgNode = phiStmt.getNode();
+        if (cgNode.getMethod().isSynthetic()) {
+            return Optional.empty();
+        }
+        TypingSubGraph sg = typingGraph.findOrCreateSubGraph(cgNode);
+        handleSSAPhi(phiStmt, phiStmt.getPhi(), sg);
+        return Optional.empty();
+    }
+
+    private Optional<TypingNode> handleNormal(NormalStatement nstmt, TypingNode cachedNode,
+                                              ConstructionWorklist worklist) {
+        CGNode cgNode = nstmt.getNode();
+        if (cgNode.getMethod().isSynthetic()) {
+            return Optional.empty();
+        }
+        TypingSubGraph sg = typingGraph.findOrCreateSubGraph(cgNode);
+        SSAInstruction inst = nstmt.getInstruction();
+
+        TypingNode newCachedNode = null;
+        if (inst instanceof SSAPutInstruction) {
+            newCachedNode = handleSSAPut(nstmt, (SSAPutInstruction) inst, sg, worklist);
+            // System.err.println("SSAPut: " + inst + " \n\t [" + newCachedNode
+            // + "]");
+        } else if (inst instanceof SSAGetInstruction) {
+            // System.err.println("SSAGet: " + inst + " \n\t [" + cachedNode +
+            // "]");
+            handleSSAGet(nstmt, (SSAGetInstruction) inst, sg, cachedNode, worklist);
+        } else if (inst instanceof SSACheckCastInstruction) {
+            handleSSACheckCast(nstmt, (SSACheckCastInstruction) inst, sg);
+        } else if (inst instanceof SSANewInstruction) {
+            handleSSANew((SSANewInstruction) inst, sg);
+        } else if (inst instanceof SSAArrayLoadInstruction) {
+            handleSSAArrayLoad(nstmt, (SSAArrayLoadInstruction) inst, sg);
+        } else if (inst instanceof SSAArrayStoreInstruction) {
+            handleSSAArrayStore(nstmt, (SSAArrayStoreInstruction) inst, sg);
+        } else if (inst instanceof SSAReturnInstruction) {
+            newCachedNode = handleSSAReturn(nstmt, (SSAReturnInstruction) inst, sg, worklist);
+        } else if (inst instanceof SSAInstanceofInstruction) {
+            handleSSAInstanceof((SSAInstanceofInstruction) inst, sg);
+        } else if (inst instanceof SSABinaryOpInstruction) {
+            handleSSABinaryOp(nstmt, (SSABinaryOpInstruction) inst, sg);
+        } else if (!(inst instanceof SSAAbstractInvokeInstruction)) {
+            // System.err.println("Unrecognized Normal Stmt: " + stmt);
+        } // invoke is ignored.
+        return newCachedNode == null ? Optional.empty() : Optional.of(newCachedNode);
+    }
+
+    private Optional<TypingNode> handleParamCaller(ParamCaller pcstmt, ConstructionWorklist worklist) {
+        CGNode cgNode = pcstmt.getNode();
+        if (cgNode.getMethod().isSynthetic()) {
+            return Optional.empty();
+        }
+        TypingSubGraph sg = typingGraph.findOrCreateSubGraph(cgNode);
+        int nSucc = sdg.getSuccNodeCount(pcstmt);
+        if (nSucc == 0) { // API call?
+            SSAAbstractInvokeInstruction inst = pcstmt.getInstruction();
+            if (!inst.hasDef()) {
+                // AnalysisUtil.associateLayout2Activity(inst, cgNode);
+                handleSSAInvokeAPI(cgNode, pcstmt, inst, sg);
+            }
+            // hasDef(): left to be processed in NormalRetCaller?
+            return Optional.empty();
+        } else { // local call
+            int pv = pcstmt.getValueNumber();// recorded for later use in param callee
+            worklist.cacheParamCaller(pcstmt);
+            TypingNode newCachedNode = sg.findOrCreate(pv);
+            return Optional.of(newCachedNode);
+        }
+    }
+
+    private Optional<TypingNode> handleParamCallee(ParamCallee pcstmt, TypingNode cachedNode,
+                                                   Optional<ParamCaller> cachedStmt) {
+        CGNode cgNode = pcstmt.getNode();
+        if (cgNode.getMethod().isSynthetic()) {
+            return Optional.empty();
+        }
+        TypingSubGraph sg = typingGraph.findOrCreateSubGraph(cgNode);
+        constructTypingRecordsWithEQConstraintWithCachedStatement(pcstmt, cachedNode, cachedStmt, sg);
+        return Optional.empty();
+    }
+
+    private Optional<TypingNode> handleNormalRetCaller(NormalReturnCaller nrc, TypingNode cachedNode,
+                                                       Optional<NormalStatement> cachedStmt) {
+        CGNode cgNode = nrc.getNode();
+        TypingSubGraph sg = typingGraph.findOrCreateSubGraph(cgNode);
+        if (sdg.getPredNodeCount(nrc) == 0) {// API call?
+            handleSSAInvokeAPI(cgNode, nrc, nrc.getInstruction(), sg);
+        } else if (nrc.getInstruction().hasDef()) {
+            constructTypingRecordsWithEQConstraintWithCachedStatement(nrc, cachedNode, cachedStmt, sg);
+        }
+        return Optional.empty();
+    }
+
+    private <StatementWithValueNumber extends Statement & ValueNumberCarrier> void constructTypingRecordsWithEQConstraintWithCachedStatement(
+            StatementWithValueNumber statement, TypingNode predNode, Optional<? extends Statement> predStatement,
+            TypingSubGraph sg) {
+        if (predNode == null) {
+            // TODO Don't error if is entrypoint
+            System.err.println(
+                    "No predecessor Node is found for Method invocation or return from invocation: " + statement);
+        } else {
+            TypingNode node = sg.findOrCreate(statement.getValueNumber());
+            constructTypingRecordsWithEQConstraintHelper(statement, predNode, node, predStatement);
+        }
+    }
+
+    private void constructTypingRecordsWithEQConstraint(NormalStatement stmt, TypingNode lhsNode,
+                                                        TypingNode rhsNode) {
+        constructTypingRecordsWithEQConstraintHelper(stmt, lhsNode, rhsNode, Optional.empty());
+    }
+
+    private void constructTypingRecordsWithEQConstraintHelper(Statement statement, TypingNode lhsNode,
+                                                              TypingNode rhsNode,
+                                                              Optional<? extends Statement> predStatement) {
+        TypingRecord orec = typingGraph.findOrCreateTypingRecord(lhsNode.getGraphNodeId());
+        TypingRecord nrec = typingGraph.findOrCreateTypingRecord(rhsNode.getGraphNodeId());
+        TypingConstraint forwardConstraint =
+                new TypingConstraint(rhsNode.getGraphNodeId(), TypingConstraint.EQ, lhsNode.getGraphNodeId());
+        TypingConstraint backwardConstraint = forwardConstraint;
+        if (predStatement.isPresent()) {
+            forwardConstraint.addPath(predStatement.get());
+            backwardConstraint =
+                    new TypingConstraint(rhsNode.getGraphNodeId(), TypingConstraint.EQ, lhsNode.getGraphNodeId());
+            // reverse the path for backward propagation ?
+            backwardConstraint.addPath(statement);
+            backwardConstraint.addPath(predStatement.get());
+        }
+        if (statement != null) {
+            forwardConstraint.addPath(statement);
+        }
+        orec.addForwardTypingConstraint(forwardConstraint);
+        nrec.addBackwardTypingConstraint(backwardConstraint);
+    }
+
+
+    private Optional<TypingNode> handleHeapRetCallee(HeapReturnCallee hrc, TypingNode cachedNode) {
+
+        if (cachedNode == null || !cachedNode.isStaticField() || hrc.getNode().equals(fakeRootNode)) {
+            // instance field is immediately used
+            return Optional.empty();
+        }
+        PointerKey location = hrc.getLocation();
+        if (location instanceof StaticFieldKey) {
+            TypingNode existing = sFieldHeaps.get(location);
+            if (!cachedNode.equals(existing)) {
+                sFieldHeaps.put(location, cachedNode);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private Optional<TypingNode> handleHeapRetCaller(HeapReturnCaller hrc) {
+        if (hrc.getNode().equals(fakeRootNode)) {
+            return Optional.empty();
+        }
+        TypingNode newCachedNode = null;
+        PointerKey location = hrc.getLocation();
+        if (location instanceof StaticFieldKey) {
+            newCachedNode = sFieldHeaps.get(location);
+        }
+        return newCachedNode == null ? Optional.empty() : Optional.of(newCachedNode);
+    }
+
+    private Optional<TypingNode> handleHeapParamCallee(HeapParamCallee hrc) {
+        if (hrc.getNode().equals(fakeRootNode)) {
+            return Optional.empty();
+        }
+        TypingNode newCachedNode = null;
+        PointerKey location = hrc.getLocation();
+        if (location instanceof StaticFieldKey) {
+            newCachedNode = sFieldHeaps.get(location);
+        }
+        return newCachedNode == null ? Optional.empty() : Optional.of(newCachedNode);
+    }
+
+    /************************************************************/
+    /************* Handle Specific SSA Instructions *************/
+    /************************************************************/
+    private TypingNode handleSSAPut(NormalStatement stmt, SSAPutInstruction inst, TypingSubGraph sg,
+                                    ConstructionWorklist worklist) {
+        int val = inst.getVal(); // rhs
+        TypingNode valNode = sg.findOrCreate(val);
+        TypingNode refNode;
+        // typingGraph.
+        FieldReference declaredField = inst.getDeclaredField();
+        if (inst.isStatic()) {
+            refNode = sg.createStaticFieldNode(declaredField);
+        } else {
+            refNode = sg.createInstanceFieldNode(inst.getRef(), declaredField);
+        }
+
+        // link all views of the same field. Linkings with nodes that appear later will end up as backward constraints
+        worklist.getArtificialFieldNodes(declaredField)
+                // path of stmt is recorded the linking between local var and field (see below)
+                .forEach(node -> constructTypingRecordsWithEQConstraint(null, node, refNode));
+        worklist.cacheArtificialFieldNode(declaredField, refNode);
+
+        // typingGraph.mergeClass(valNode, refNode);
+        constructTypingRecordsWithEQConstraint(stmt, valNode, refNode);
+
+        typingGraph.collectOutgoingField(refNode);
+        return refNode;
+    }
+
+    private void handleSSAGet(NormalStatement stmt, SSAGetInstruction inst, TypingSubGraph sg,
+                              TypingNode cachedNode, ConstructionWorklist worklist) {
+        // if (inst.getDeclaredField()
+        // .getName().toString().equals("userMessageForWeb"))
+        // return;
+        int def = inst.getDef();
+        TypingNode defNode = sg.findOrCreate(def);
+        if (null != cachedNode) {
+            // If a GetField stmt has more than two predecessors, when it is
+            // visited at the second time, a node representing the field has
+            // been created, which is prevNode here.
+            TypingNode prevNode = ssaGet2Nodes.get(inst);
+            if (prevNode != null) {
+                // typingGraph.mergeClass(cachedNode, prevNode);
+                TypingRecord rec = typingGraph.getTypingRecord(cachedNode.getGraphNodeId());
+                if (rec == null) {
+                    rec = typingGraph.findOrCreateTypingRecord(prevNode.getGraphNodeId());
+                    typingGraph.setTypingRecord(cachedNode.getGraphNodeId(), rec);
+                } else {
+                    TypingConstraint c = new TypingConstraint(prevNode.getGraphNodeId(), TypingConstraint.EQ,
+                            cachedNode.getGraphNodeId());
+                    TypingRecord prevRec = typingGraph.findOrCreateTypingRecord(prevNode.getGraphNodeId());
+                    prevRec.addBackwardTypingConstraint(c);
+                    rec.addForwardTypingConstraint(c);
+                    // typingGraph.setTypingRecord(
+                    // prevNode.getGraphNodeId(), rec);
+                }
+
+                typingGraph.unsetPossibleExternalInput(prevNode.getGraphNodeId());
+            } else {
+                // typingGraph.mergeClass(cachedNode, defNode);
+                constructTypingRecordsWithEQConstraint(stmt, cachedNode, defNode);
+            }
+        } else {
+            // some incoming field access from other entrypoint scope
+            TypingNode refNode;
+            FieldReference declaredField = inst.getDeclaredField();
+            if (inst.isStatic()) {
+                refNode = sg.createStaticFieldNode(declaredField);
+            } else {
+                refNode = sg.createInstanceFieldNode(inst.getRef(), declaredField);
+            }
+
+            // link all views of the same field. Linkings with nodes that appear later will end up as backward constraints
+            worklist.getArtificialFieldNodes(declaredField)
+                    // path of stmt is recorded the linking between local var and field (see below)
+                    .forEach(node -> constructTypingRecordsWithEQConstraint(null, node, refNode));
+            worklist.cacheArtificialFieldNode(declaredField, refNode);
+
+            // link local variable with view of the field
+            // typingGraph.mergeClass(refNode, defNode);
+            constructTypingRecordsWithEQConstraint(stmt, refNode, defNode);
+
+            typingGraph.setPossibleExternalInput(refNode.getGraphNodeId());
+            ssaGet2Nodes.put(inst, refNode);
+        }
+    }
+
+    private void handleSSACheckCast(NormalStatement stmt, SSACheckCastInstruction inst, TypingSubGraph sg) {
+        int val = inst.getVal(); // rhs
+        int ret = inst.getResult(); // lhs
+        TypingNode valNode = sg.findOrCreate(val);
+        TypingNode retNode = sg.findOrCreate(ret);
+        // typingGraph.mergeClass(valNode, retNode);
+        constructTypingRecordsWithEQConstraint(stmt, valNode, retNode);
+    }
+
+    private void handleSSANew(SSANewInstruction inst, TypingSubGraph sg) {
+        int def = inst.getDef();
+        TypingNode defNode = sg.findOrCreate(def);
+        defNode.joke();
+    }
+
+    private void handleSSAArrayLoad(NormalStatement stmt, SSAArrayLoadInstruction inst, TypingSubGraph sg) {
+        int ref = inst.getArrayRef(); // rhs
+        int def = inst.getDef(); // lhs
+        TypingNode refNode = sg.findOrCreate(ref);
+        TypingNode defNode = sg.findOrCreate(def);
+        // typingGraph.mergeClass(refNode, defNode);
+        constructTypingRecordsWithEQConstraint(stmt, refNode, defNode);
+    }
+
+    private void handleSSAArrayStore(NormalStatement stmt, SSAArrayStoreInstruction inst, TypingSubGraph sg) {
+        int ref = inst.getArrayRef(); // lhs
+        int val = inst.getValue(); // rhs
+        TypingNode refNode = sg.findOrCreate(ref);
+        TypingNode valNode = sg.findOrCreate(val);
+        // typingGraph.mergeClass(valNode, refNode);
+        constructTypingRecordsWithEQConstraint(stmt, valNode, refNode);
+    }
+
+
+    private TypingNode handleSSAReturn(NormalStatement stmt, SSAReturnInstruction inst, TypingSubGraph sg,
+                                       ConstructionWorklist worklist) {
+        if (!inst.returnsVoid()) {
+            int ret = inst.getResult();
+            worklist.cacheCalleeOfReturn(stmt);
+            return sg.findOrCreate(ret);
+        }
+        return null;
+    }
+
+    private void handleSSAInstanceof(SSAInstanceofInstruction inst, TypingSubGraph sg) {
+        int ref = inst.getRef();
+        int def = inst.getDef();
+        TypingNode refNode = sg.findOrCreate(ref);
+        TypingNode defNode = sg.findOrCreate(def);
+        // typingGraph.mergeClass(refNode, defNode);
+        // TODO: same as "a = b"?
+    }
+
+    private void handleSSABinaryOp(NormalStatement stmt, SSABinaryOpInstruction inst, TypingSubGraph sg) {
+        int def = inst.getDef();
+        int use0 = inst.getUse(0);
+        int use1 = inst.getUse(1);
+        TypingNode defNode = sg.findOrCreate(def);
+        TypingNode use0Node = sg.findOrCreate(use0);
+        TypingNode use1Node = sg.findOrCreate(use1);
+        // typingGraph.mergeClass(defNode, use0Node);
+        // typingGraph.mergeClass(defNode, use1Node);
+        TypingRecord use0Rec = typingGraph.findOrCreateTypingRecord(use0Node.getGraphNodeId());
+        TypingRecord use1Rec = typingGraph.findOrCreateTypingRecord(use1Node.getGraphNodeId());
+        TypingRecord defRec = typingGraph.findOrCreateTypingRecord(defNode.getGraphNodeId());
+        TypingConstraint c0 =
+                new TypingConstraint(defNode.getGraphNodeId(), TypingConstraint.GE_ASSIGN, use0Node.getGraphNodeId());
+        TypingConstraint c1 =
+                new TypingConstraint(defNode.getGraphNodeId(), TypingConstraint.GE_ASSIGN, use1Node.getGraphNodeId());
+        defRec.addBackwardTypingConstraint(c0);
+        defRec.addBackwardTypingConstraint(c1);
+        use0Rec.addForwardTypingConstraint(c0);
+        use1Rec.addForwardTypingConstraint(c1);
+        c0.addPath(stmt);
+        c1.addPath(stmt);
+    }
+
+    private void handleSSAInvokeAPI(CGNode cgNode, Statement stmt, SSAAbstractInvokeInstruction inst,
+                                    TypingSubGraph sg) {
+        new ApiInvocationHandler(typingGraph, sg, cgNode, stmt, inst).handle();
+    }
+
+    private void handleSSAPhi(PhiStatement stmt, SSAPhiInstruction inst, TypingSubGraph sg) {
+        int def = inst.getDef();
+        int nUse = inst.getNumberOfUses();
+        TypingNode defNode = sg.findOrCreate(def);
+        // logger.info("PHI: {}", inst.toString());
+        Set<Integer> dupSet = new HashSet<>();
+        TypingRecord defRec = sg.getTypingGraph().findOrCreateTypingRecord(defNode.getGraphNodeId());
+        for (int i = 0; i < nUse; i++) {
+            // logger.info(" i = {}:{}", i, inst.getUse(i));
+            int valueNumber = inst.getUse(i);
+            if (valueNumber == AbstractIntStackMachine.TOP) {
+                continue;
+            }
+            if (dupSet.contains(valueNumber)) {
+                continue;
+            }
+            dupSet.add(valueNumber);
+            TypingNode useNode = sg.findOrCreate(valueNumber);
+            TypingRecord useRec = sg.getTypingGraph().findOrCreateTypingRecord(useNode.getGraphNodeId());
+            TypingConstraint c =
+                    new TypingConstraint(defNode.getGraphNodeId(), TypingConstraint.GE_PHI, useNode.getGraphNodeId());
+            defRec.addBackwardTypingConstraint(c);
+            useRec.addForwardTypingConstraint(c);
+            c.addPath(stmt);
+            // typingGraph.mergeClass(useNode, defNode);
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+package de.lmu.ifi.jvmbidtext.graph.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary that assigns dense ids to values. A TypingGraph owns one table for the texts and one for the constants,
+ * shared by all of its typing records, so a record only has to store the ids (see {@link InternedSet} and
+ * {@link InternedMap}). Ids are never reused. The table is not thread-safe; new values are interned while the typing
+ * graph is constructed and the propagation is initialized, the (parallel) propagation only looks up the ids of values
+ * that are already in the table.
+ */
+public class InternTable<T> {
+    private final Map<T, Integer> ids = new HashMap<>();
+    private final List<T> values = new ArrayList<>();
+
+    /**
+     * @return the id of the value, which is assigned if the value was not seen before
+     */
+    public int intern(T value) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = values.size();
+            values.add(value);
+            ids.put(value, id);
+        }
+        return id;
+    }
+
+    /**
+     * @return the id of the value or -1 if the value was never interned
+     */
+    public int idOf(Object value) {
+        Integer id = ids.get(value);
+        return id == null ? -1 : id;
+    }
+
+    public T valueOf(int id) {
+        return values.get(id);
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,267 @@
+package de.lmu.ifi.jvmbidtext.graph.model;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Map whose keys are stored as a bitset over the ids of an {@link InternTable}. Only the non-null values are stored,
+ * in arrays sorted by the id of their key, so a map whose values were dropped (see {@link #clearValues(Consumer)}) is
+ * just the bitset. Null values are allowed.
+ */
+public class InternedMap<K, V> extends AbstractMap<K, V> {
+    private static final int[] NO_IDS = new int[0];
+    private static final Object[] NO_VALUES = new Object[0];
+
+    private final InternTable<K> table;
+    private final BitSet keys = new BitSet();
+    private int[] valueIds = NO_IDS;
+    private Object[] values = NO_VALUES;
+    private int valueCount;
+    private Set<Entry<K, V>> entrySet;
+
+    public InternedMap(InternTable<K> table) {
+        this.table = table;
+    }
+
+    @Override
+    public int size() {
+        return keys.cardinality();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return keys.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int id = table.idOf(key);
+        return id >= 0 && keys.get(id);
+    }
+
+    @Override
+    public V get(Object key) {
+        int id = table.idOf(key);
+        return id >= 0 && keys.get(id) ? valueOf(id) : null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return putId(table.intern(key), value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        int id = table.idOf(key);
+        if (id < 0 || !keys.get(id)) {
+            return null;
+        }
+        return removeId(id);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void putAll(Map<? extends K, ? extends V> map) {
+        if (map instanceof InternedMap<?, ?> other && other.table == table) {
+            for (int id = other.keys.nextSetBit(0); id >= 0; id = other.keys.nextSetBit(id + 1)) {
+                putId(id, (V) other.valueOf(id));
+            }
+        } else {
+            super.putAll(map);
+        }
+    }
+
+    /**
+     * Add the entries of the other map whose keys are not in this map yet. The absent keys are found by a word-wise
+     * operation on the bitsets, so the common case that nothing changes does not touch any value.
+     *
+     * @param copy applied to the non-null values added to this map
+     * @return true if a key was added
+     */
+    public boolean putAbsent(InternedMap<K, V> other, UnaryOperator<V> copy) {
+        if (other.table != table) {
+            boolean changed = false;
+            for (Entry<K, V> entry : other.entrySet()) {
+                if (!containsKey(entry.getKey())) {
+                    V value = entry.getValue();
+                    put(entry.getKey(), value != null ? copy.apply(value) : null);
+                    changed = true;
+                }
+            }
+            return changed;
+        }
+        BitSet absent = (BitSet) other.keys.clone();
+        absent.andNot(keys);
+        if (absent.isEmpty()) {
+            return false;
+        }
+        keys.or(absent);
+        for (int id = absent.nextSetBit(0); id >= 0; id = absent.nextSetBit(id + 1)) {
+            V value = other.valueOf(id);
+            if (value != null) {
+                setValue(id, copy.apply(value));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Set all values to null and pass the previous non-null values to the action. The keys are kept.
+     */
+    @SuppressWarnings("unchecked")
+    public void clearValues(Consumer<V> action) {
+        for (int i = 0; i < valueCount; i++) {
+            action.accept((V) values[i]);
+        }
+        valueIds = NO_IDS;
+        values = NO_VALUES;
+        valueCount = 0;
+    }
+
+    @Override
+    public void clear() {
+        keys.clear();
+        clearValues(value -> {
+        });
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    private V putId(int id, V value) {
+        V previous = keys.get(id) ? valueOf(id) : null;
+        keys.set(id);
+        setValue(id, value);
+        return previous;
+    }
+
+    private V removeId(int id) {
+        V previous = valueOf(id);
+        setValue(id, null);
+        keys.clear(id);
+        return previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueOf(int id) {
+        int index = Arrays.binarySearch(valueIds, 0, valueCount, id);
+        return index >= 0 ? (V) values[index] : null;
+    }
+
+    private void setValue(int id, V value) {
+        int index = Arrays.binarySearch(valueIds, 0, valueCount, id);
+        if (index >= 0) {
+            if (value != null) {
+                values[index] = value;
+            } else {
+                valueCount--;
+                System.arraycopy(valueIds, index + 1, valueIds, index, valueCount - index);
+                System.arraycopy(values, index + 1, values, index, valueCount - index);
+                values[valueCount] = null;
+            }
+        } else if (value != null) {
+            index = -index - 1;
+            if (valueCount == valueIds.length) {
+                int capacity = Math.max(4, valueCount * 2);
+                valueIds = Arrays.copyOf(valueIds, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            System.arraycopy(valueIds, index, valueIds, index + 1, valueCount - index);
+            System.arraycopy(values, index, values, index + 1, valueCount - index);
+            valueIds[index] = id;
+            values[index] = value;
+            valueCount++;
+        }
+    }
+
+    private class EntrySet extends AbstractSet<Entry<K, V>> {
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            return new Iterator<>() {
+                private int next = keys.nextSetBit(0);
+                private int last = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                public Entry<K, V> next() {
+                    if (next < 0) {
+                        throw new NoSuchElementException();
+                    }
+                    last = next;
+                    next = keys.nextSetBit(next + 1);
+                    return new IdEntry(last);
+                }
+
+                @Override
+                public void remove() {
+                    if (last < 0) {
+                        throw new IllegalStateException();
+                    }
+                    removeId(last);
+                    last = -1;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return InternedMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            InternedMap.this.clear();
+        }
+    }
+
+    private class IdEntry implements Entry<K, V> {
+        private final int id;
+
+        IdEntry(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public K getKey() {
+            return table.valueOf(id);
+        }
+
+        @Override
+        public V getValue() {
+            return valueOf(id);
+        }
+
+        @Override
+        public V setValue(V value) {
+            V previous = valueOf(id);
+            InternedMap.this.setValue(id, value);
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry<?, ?> entry && Objects.equals(getKey(), entry.getKey())
+                    && Objects.equals(getValue(), entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
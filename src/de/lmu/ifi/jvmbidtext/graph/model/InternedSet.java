@@ -0,0 +1,109 @@
+package de.lmu.ifi.jvmbidtext.graph.model;
+
+import java.util.*;
+
+/**
+ * Set of values stored as a bitset over the ids of an {@link InternTable}. Adding or removing all elements of another
+ * set over the same table is a word-wise operation on the bitsets.
+ */
+public class InternedSet<T> extends AbstractSet<T> {
+    private final InternTable<T> table;
+    private final BitSet bits = new BitSet();
+
+    public InternedSet(InternTable<T> table) {
+        this.table = table;
+    }
+
+    @Override
+    public boolean add(T value) {
+        int id = table.intern(value);
+        if (bits.get(id)) {
+            return false;
+        }
+        bits.set(id);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        int id = table.idOf(value);
+        return id >= 0 && bits.get(id);
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        int id = table.idOf(value);
+        if (id < 0 || !bits.get(id)) {
+            return false;
+        }
+        bits.clear(id);
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> values) {
+        if (values instanceof InternedSet<?> other && other.table == table) {
+            int size = bits.cardinality();
+            bits.or(other.bits);
+            return bits.cardinality() != size;
+        }
+        return super.addAll(values);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> values) {
+        if (values instanceof InternedSet<?> other && other.table == table) {
+            int size = bits.cardinality();
+            bits.andNot(other.bits);
+            return bits.cardinality() != size;
+        }
+        return super.removeAll(values);
+    }
+
+    @Override
+    public int size() {
+        return bits.cardinality();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return bits.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        bits.clear();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int next = bits.nextSetBit(0);
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public T next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = bits.nextSetBit(next + 1);
+                return table.valueOf(last);
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                bits.clear(last);
+                last = -1;
+            }
+        };
+    }
+}
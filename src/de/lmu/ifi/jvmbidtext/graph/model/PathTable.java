@@ -0,0 +1,107 @@
+package de.lmu.ifi.jvmbidtext.graph.model;
+
+import com.ibm.wala.ipa.slicer.Statement;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hash-consed nodes of the propagation paths of a TypingGraph. A path ({@link SharedPath}) points to the last node of a
+ * chain of immutable nodes; each node holds a segment of statements that follows the statements of its parent.
+ * Extending a path adds (or reuses) a single node instead of copying the path, and paths that were propagated along the
+ * same constraints share their nodes. The statements of a path are only collected when the path is iterated.
+ * <p>
+ * Nodes can be added concurrently, e.g. by the parallel propagation; the paths themselves are not thread-safe.
+ */
+public class PathTable {
+    private final Map<Node, Node> nodes = new ConcurrentHashMap<>();
+
+    public SharedPath newPath() {
+        return new SharedPath(this, null);
+    }
+
+    public SharedPath copyOf(List<Statement> path) {
+        return new SharedPath(this, tailOf(path));
+    }
+
+    /**
+     * @return a new path with the statements of the path followed by the statements of the segment
+     */
+    public SharedPath extend(List<Statement> path, List<Statement> segment) {
+        return new SharedPath(this, append(tailOf(path), segment));
+    }
+
+    /**
+     * @return the number of distinct nodes
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Forget the nodes, e.g. after the propagation. Existing paths keep their nodes.
+     */
+    public void clear() {
+        nodes.clear();
+    }
+
+    private Node tailOf(List<Statement> path) {
+        if (path instanceof SharedPath shared && shared.table == this) {
+            return shared.tail;
+        }
+        return append(null, path);
+    }
+
+    Node append(Node parent, Collection<? extends Statement> segment) {
+        if (segment.isEmpty()) {
+            return parent;
+        }
+        if (parent == null && segment instanceof SharedPath shared && shared.table == this) {
+            return shared.tail;
+        }
+        Node node = new Node(parent, segment.toArray(new Statement[0]));
+        Node existing = nodes.putIfAbsent(node, node);
+        return existing != null ? existing : node;
+    }
+
+    static final class Node {
+        final Node parent;
+        final Statement[] segment;
+        final int length;
+        private final int hash;
+
+        Node(Node parent, Statement[] segment) {
+            this.parent = parent;
+            this.segment = segment;
+            length = (parent != null ? parent.length : 0) + segment.length;
+            hash = 31 * System.identityHashCode(parent) + Arrays.hashCode(segment);
+        }
+
+        Statement get(int index) {
+            Node node = this;
+            while (index < node.length - node.segment.length) {
+                node = node.parent;
+            }
+            return node.segment[index - (node.length - node.segment.length)];
+        }
+
+        Statement[] toArray() {
+            Statement[] statements = new Statement[length];
+            for (Node node = this; node != null; node = node.parent) {
+                System.arraycopy(node.segment, 0, statements, node.length - node.segment.length, node.segment.length);
+            }
+            return statements;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            // parents are hash-consed already
+            return o instanceof Node node && node.parent == parent && Arrays.equals(node.segment, segment);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
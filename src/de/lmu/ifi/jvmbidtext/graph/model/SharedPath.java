@@ -0,0 +1,64 @@
+package de.lmu.ifi.jvmbidtext.graph.model;
+
+import com.ibm.wala.ipa.slicer.Statement;
+
+import java.util.*;
+
+/**
+ * Propagation path backed by the nodes of a {@link PathTable}. The path can only be appended to or cleared; both
+ * replace the last node and never copy the statements. Iterating the path collects its statements.
+ */
+public class SharedPath extends AbstractList<Statement> {
+    final PathTable table;
+    PathTable.Node tail;
+
+    SharedPath(PathTable table, PathTable.Node tail) {
+        this.table = table;
+        this.tail = tail;
+    }
+
+    @Override
+    public int size() {
+        return tail != null ? tail.length : 0;
+    }
+
+    @Override
+    public Statement get(int index) {
+        Objects.checkIndex(index, size());
+        return tail.get(index);
+    }
+
+    @Override
+    public boolean add(Statement statement) {
+        tail = table.append(tail, List.of(statement));
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Statement> statements) {
+        if (statements.isEmpty()) {
+            return false;
+        }
+        tail = table.append(tail, statements);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        tail = null;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<Statement> iterator() {
+        return listIterator(0);
+    }
+
+    @Override
+    public ListIterator<Statement> listIterator(int index) {
+        Statement[] statements = tail != null ? tail.toArray() : new Statement[0];
+        return Collections.unmodifiableList(Arrays.asList(statements)).listIterator(index);
+    }
+}
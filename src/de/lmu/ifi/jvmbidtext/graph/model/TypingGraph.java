@@ -18,12 +18,21 @@ public class TypingGraph {
     private Map<String, Set<TypingNode>> fieldIncoming; // possible incoming fields
     private Map<String, Set<TypingNode>> fieldOutgoing; // possible outgoing fields
     private final DelegatingNumberedNodeManager<TypingNode> nodeManager;
+    private final TypingRecordTable records;
+    private final InternTable<String> textTable;
+    private final InternTable<Object> constantTable;
+    private final PathTable pathTable;
+    // map view of the records, only kept for compatibility; use the int-keyed methods
     public final Map<SimpleGraphNode, TypingRecord> node2Typing;
 
     public TypingGraph(Entrypoint e) {
         entrypoint = e;
         subGraphs = new HashMap<>();
-        node2Typing = new HashMap<>();
+        records = new TypingRecordTable();
+        node2Typing = records.asMap();
+        textTable = new InternTable<>();
+        constantTable = new InternTable<>();
+        pathTable = new PathTable();
         nodeManager = new DelegatingNumberedNodeManager<>();
     }
 
@@ -88,24 +97,55 @@ public class TypingGraph {
         return node2Typing.entrySet().iterator();
     }
 
+    /**
+     * Iterate the records without allocating map entries. A record shared by multiple nodes is returned multiple
+     * times.
+     */
+    public Iterator<TypingRecord> iterateTypingRecords() {
+        return records.iterator();
+    }
+
     public TypingRecord findOrCreateTypingRecord(int nodeId) {
-        SimpleGraphNode n = SimpleGraphNode.make(nodeId);
-        TypingRecord r = node2Typing.get(n);
+        TypingRecord r = records.get(nodeId);
         if (r == null) {
-            r = new TypingRecord(n);
-            node2Typing.put(n, r);
+            r = new TypingRecord(SimpleGraphNode.make(nodeId), textTable, constantTable, pathTable);
+            records.put(nodeId, r);
         }
         return r;
     }
 
     public TypingRecord getTypingRecord(int nodeId) {
-        SimpleGraphNode n = SimpleGraphNode.make(nodeId);
-        return node2Typing.get(n);
+        return records.get(nodeId);
+    }
+
+    public PathTable getPathTable() {
+        return pathTable;
+    }
+
+    public int getNumberOfTypingRecords() {
+        return records.size();
+    }
+
+    /**
+     * @return for each slot of the typing records, the number of records that ever allocated it
+     */
+    public Map<TypingRecord.Slot, Integer> countRecordSlotUsage() {
+        Map<TypingRecord.Slot, Integer> usage = new EnumMap<>(TypingRecord.Slot.class);
+        for (TypingRecord.Slot slot : TypingRecord.Slot.values()) {
+            usage.put(slot, 0);
+        }
+        for (TypingRecord rec : records) {
+            for (TypingRecord.Slot slot : TypingRecord.Slot.values()) {
+                if (rec.usesSlot(slot)) {
+                    usage.merge(slot, 1, Integer::sum);
+                }
+            }
+        }
+        return usage;
     }
 
     public void setTypingRecord(int nodeId, TypingRecord rec) {
-        SimpleGraphNode n = SimpleGraphNode.make(nodeId);
-        node2Typing.put(n, rec);
+        records.put(nodeId, rec);
     }
 
     @Override
@@ -150,6 +190,14 @@ public class TypingGraph {
         nodeSet.add(node);
     }
 
+    public Set<String> getIncomingFieldSignatures() {
+        return fieldIncoming == null ? Collections.emptySet() : fieldIncoming.keySet();
+    }
+
+    public Set<String> getOutgoingFieldSignatures() {
+        return fieldOutgoing == null ? Collections.emptySet() : fieldOutgoing.keySet();
+    }
+
     public Iterator<TypingNode> iterateAllOutgoingFields(String sig) {
         Set<TypingNode> nodeSet;
         if (fieldOutgoing == null || (nodeSet = fieldOutgoing.get(sig)) == null) {
@@ -260,8 +308,7 @@ public class TypingGraph {
     }
 
     private void removeTypingRecord(int nodeId) {
-        SimpleGraphNode sgn = SimpleGraphNode.make(nodeId);
-        node2Typing.remove(sgn);
+        records.remove(nodeId);
     }
 
     /**
@@ -283,6 +330,7 @@ public class TypingGraph {
             nodeManager.removeNode(tn);
         }
         possibleExternalInput = null;
+        pathTable.clear();
         subGraphs.clear(); // no use later
         subGraphs = null;
         // System.gc();
@@ -5,6 +5,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.*;
+import java.util.function.Predicate;
 
 public class TypingRecord {
     private static final Logger logger = LogManager.getLogger(TypingRecord.class);
@@ -13,39 +14,73 @@ public class TypingRecord {
     public static final String APPEND_VAR_PREFIX = "+*^";
     public static final String APPEND_VAR_POSTFIX = "^*+";
     private final SimpleGraphNode nodeIdInTypingGraph;
-    private Map<String, List<Statement>> typingTexts;
-    private Set<Object> typingConstants;
+    private final InternTable<String> textTable;
+    private final InternTable<Object> constantTable;
+    private final PathTable pathTable;
+    // Most records never use most of the collections, so they are allocated on the first write. The getters return
+    // immutable empty collections until then.
+    private InternedMap<String, List<Statement>> typingTexts;
+    private InternedSet<Object> typingConstants;
     private Map<SimpleGraphNode, List<Statement>> inputFields;
     private Map<SimpleGraphNode, List<Statement>> outputFields;
     private Set<TypingConstraint> forwardConstraints;
     private Set<TypingConstraint> backwardConstraints;
     private Set<StringBuilder> appendResults;
+    private int usedSlots; // bit set of the slots that were ever allocated
 
-    public TypingRecord(SimpleGraphNode id) {
+    /**
+     * @param textTable     dictionary of the texts, shared by the records of a TypingGraph
+     * @param constantTable dictionary of the constants, shared by the records of a TypingGraph
+     * @param pathTable     nodes of the paths, shared by the records of a TypingGraph
+     */
+    public TypingRecord(SimpleGraphNode id, InternTable<String> textTable, InternTable<Object> constantTable,
+                        PathTable pathTable) {
         nodeIdInTypingGraph = id;
-        typingTexts = new HashMap<>();
-        typingConstants = new HashSet<>();
-        inputFields = new HashMap<>();
-        outputFields = new HashMap<>();
-        forwardConstraints = new HashSet<>();
-        backwardConstraints = new HashSet<>();
-        appendResults = new HashSet<>();
+        this.textTable = textTable;
+        this.constantTable = constantTable;
+        this.pathTable = pathTable;
+    }
+
+    /**
+     * The collections of a record, for the occupancy statistics of a TypingGraph.
+     */
+    public enum Slot {
+        TEXTS, CONSTANTS, INPUT_FIELDS, OUTPUT_FIELDS, FORWARD_CONSTRAINTS, BACKWARD_CONSTRAINTS, APPEND_RESULTS
+    }
+
+    /**
+     * @return true if the collection of the slot was ever allocated, i.e. written, even if it is empty or released now
+     */
+    public boolean usesSlot(Slot slot) {
+        return (usedSlots & 1 << slot.ordinal()) != 0;
+    }
+
+    private void markUsed(Slot slot) {
+        usedSlots |= 1 << slot.ordinal();
     }
 
     // True - changed; False - unchanged.
     @Deprecated
     public boolean merge(TypingRecord rec) {
-        int tSize = typingTexts.size();
-        int cSize = typingConstants.size();
-        int ifSize = inputFields.size();
-        int ofSize = outputFields.size();
-        typingTexts.putAll(rec.typingTexts);
-        typingConstants.addAll(rec.typingConstants);
-        inputFields.putAll(rec.inputFields);
-        outputFields.putAll(rec.outputFields);
-        if (tSize != typingTexts.size() || cSize != typingConstants.size()
-                || ifSize != inputFields.size()
-                || ofSize != outputFields.size()) {
+        int tSize = getTypingTexts().size();
+        int cSize = getTypingConstants().size();
+        int ifSize = getInputFields().size();
+        int ofSize = getOutputFields().size();
+        if (!rec.getTypingTexts().isEmpty()) {
+            findOrCreateTypingTexts().putAll(rec.typingTexts);
+        }
+        if (!rec.getTypingConstants().isEmpty()) {
+            findOrCreateTypingConstants().addAll(rec.typingConstants);
+        }
+        if (!rec.getInputFields().isEmpty()) {
+            findOrCreateInputFields().putAll(rec.inputFields);
+        }
+        if (!rec.getOutputFields().isEmpty()) {
+            findOrCreateOutputFields().putAll(rec.outputFields);
+        }
+        if (tSize != getTypingTexts().size() || cSize != getTypingConstants().size()
+                || ifSize != getInputFields().size()
+                || ofSize != getOutputFields().size()) {
             return true;
         }
         return false;
@@ -59,70 +94,50 @@ public class TypingRecord {
      * @return True - changed; False - unchanged.
      */
     public boolean merge(TypingRecord rec, List<Statement> path) {
-        Map<String, List<Statement>> localTexts = typingTexts;
-        Map<SimpleGraphNode, List<Statement>> localInputs = inputFields;
-        Map<SimpleGraphNode, List<Statement>> localOutputs = outputFields;
-        int tSize = localTexts.size();
-        int cSize = typingConstants.size();
-        int ifSize = localInputs.size();
-        int ofSize = localOutputs.size();
-        Set<Map.Entry<String, List<Statement>>> set = rec.typingTexts.entrySet();
-        for (Map.Entry<String, List<Statement>> entry : set) {
-            String key = entry.getKey();
-            if (!localTexts.containsKey(key)) {
-                List<Statement> existingPath = entry.getValue();
-                List<Statement> list = null;
-                if (existingPath != null) {
-                    list = new LinkedList<>();
-                    list.addAll(existingPath);
-                    list.addAll(path);
-                }
-                localTexts.put(key, list);
-            }
+        boolean changed = false;
+        // texts and constants of the records of a graph share the dictionaries, so both are merged bitwise
+        if (!rec.getTypingTexts().isEmpty()) {
+            changed = findOrCreateTypingTexts().putAbsent(rec.typingTexts,
+                    existingPath -> pathTable.extend(existingPath, path));
+        }
+        if (!rec.getTypingConstants().isEmpty()) {
+            changed |= findOrCreateTypingConstants().addAll(rec.typingConstants);
         }
-        typingConstants.addAll(rec.typingConstants);
         // with emptyThePaths, sometimes the existing paths is null. the cause
         // is not checked. should be verified in future.
         // input fields
-        Set<Map.Entry<SimpleGraphNode, List<Statement>>> fieldSet = rec.inputFields.entrySet();
+        Set<Map.Entry<SimpleGraphNode, List<Statement>>> fieldSet = rec.getInputFields().entrySet();
         for (Map.Entry<SimpleGraphNode, List<Statement>> entry : fieldSet) {
             SimpleGraphNode key = entry.getKey();
-            if (!localInputs.containsKey(key)) {
+            if (!getInputFields().containsKey(key)) {
                 List<Statement> existingPath = entry.getValue();
                 List<Statement> list = null;
                 if (existingPath != null) {
-                    list = new LinkedList<Statement>();
-                    list.addAll(entry.getValue());
-                    list.addAll(path);
+                    list = pathTable.extend(existingPath, path);
                 }
-                localInputs.put(key, list);
+                findOrCreateInputFields().put(key, list);
+                changed = true;
             }
         }
         // output fields
-        fieldSet = rec.outputFields.entrySet();
+        fieldSet = rec.getOutputFields().entrySet();
         for (Map.Entry<SimpleGraphNode, List<Statement>> entry : fieldSet) {
             SimpleGraphNode key = entry.getKey();
-            if (!localOutputs.containsKey(key)) {
+            if (!getOutputFields().containsKey(key)) {
                 List<Statement> existingPath = entry.getValue();
                 List<Statement> list = null;
                 if (existingPath != null) {
-                    list = new LinkedList<>();
-                    list.addAll(entry.getValue());
-                    list.addAll(path);
+                    list = pathTable.extend(existingPath, path);
                 }
-                localOutputs.put(key, list);
+                findOrCreateOutputFields().put(key, list);
+                changed = true;
             }
         }
-        if (tSize != localTexts.size() || cSize != typingConstants.size()
-                || ifSize != localInputs.size()
-                || ofSize != localOutputs.size()) {
-            return true;
-        }
-        return false;
+        return changed;
     }
 
     public boolean mergeIfEmptyTexts(TypingRecord rec, List<Statement> path) {
-        if (typingTexts.isEmpty()) {
+        if (getTypingTexts().isEmpty()) {
             return merge(rec, path);
         }
         return false;
@@ -130,7 +145,7 @@ public class TypingRecord {
 
     @Deprecated
     public boolean mergeIfEmptyTexts(TypingRecord rec) {
-        if (typingTexts.isEmpty()) {
+        if (getTypingTexts().isEmpty()) {
             return merge(rec);
         }
         return false;
@@ -141,7 +156,7 @@ public class TypingRecord {
             Iterator<StringBuilder> iter;
 
             {
-                iter = appendResults.iterator();
+                iter = appendResults != null ? appendResults.iterator() : Collections.emptyIterator();
             }
 
             @Override
@@ -163,18 +178,22 @@ public class TypingRecord {
     }
 
     public void addTypingAppend(TypingRecord rec) {
+        if (rec.appendResults == null) {
+            return;
+        }
         for (StringBuilder b : rec.appendResults) {
             StringBuilder builder = new StringBuilder();
             builder.append(b.toString());
-            appendResults.add(builder);
+            findOrCreateAppendResults().add(builder);
         }
     }
 
     public void addTypingAppend(String str) {
-        if (appendResults.isEmpty()) {
-            appendResults.add(new StringBuilder());
+        Set<StringBuilder> builders = findOrCreateAppendResults();
+        if (builders.isEmpty()) {
+            builders.add(new StringBuilder());
         }
-        for (StringBuilder builder : appendResults) {
+        for (StringBuilder builder : builders) {
             boolean emptyBuilder = builder.isEmpty();
 
             if (emptyBuilder) {
@@ -190,10 +209,11 @@ public class TypingRecord {
     }
 
     public void addTypingAppend(int nodeId) {
-        if (appendResults.isEmpty()) {
-            appendResults.add(new StringBuilder());
+        Set<StringBuilder> builders = findOrCreateAppendResults();
+        if (builders.isEmpty()) {
+            builders.add(new StringBuilder());
         }
-        for (StringBuilder builder : appendResults) {
+        for (StringBuilder builder : builders) {
             boolean emptyBuilder = builder.isEmpty();
 
             if (emptyBuilder) {
@@ -213,28 +233,26 @@ public class TypingRecord {
     }
 
     public boolean addTypingText(String s) {
-        Map<String, List<Statement>> m = typingTexts;
-        if (!m.containsKey(s)) {
+        if (!getTypingTexts().containsKey(s)) {
             List<Statement> l = null;
 //            if (TextAnalysis.maybeKeyword(s)) {
-            l = new LinkedList<>();
+            l = pathTable.newPath();
 //            }
-            m.put(s, l);
+            findOrCreateTypingTexts().put(s, l);
             return true;
         }
         return false;
     }
 
     public boolean addTypingConstant(Object i) {
-        return typingConstants.add(i);
+        return findOrCreateTypingConstants().add(i);
     }
 
     public boolean addInputField(int nodeId) {
         SimpleGraphNode sgn = SimpleGraphNode.make(nodeId);
-        Map<SimpleGraphNode, List<Statement>> m = inputFields;
-        if (!m.containsKey(sgn)) {
-            List<Statement> l = new LinkedList<>();
-            m.put(sgn, l);
+        if (!getInputFields().containsKey(sgn)) {
+            List<Statement> l = pathTable.newPath();
+            findOrCreateInputFields().put(sgn, l);
             return true;
         }
         return false;
@@ -242,10 +260,9 @@ public class TypingRecord {
 
     public boolean addOutputField(int nodeId) {
         SimpleGraphNode sgn = SimpleGraphNode.make(nodeId);
-        Map<SimpleGraphNode, List<Statement>> m = outputFields;
-        if (!m.containsKey(sgn)) {
-            List<Statement> l = new LinkedList<>();
-            m.put(sgn, l);
+        if (!getOutputFields().containsKey(sgn)) {
+            List<Statement> l = pathTable.newPath();
+            findOrCreateOutputFields().put(sgn, l);
             return true;
         }
         return false;
@@ -256,7 +273,7 @@ public class TypingRecord {
             throw new IllegalArgumentException("ForwardTypingConstraint's rhs is not initialId");
 //            c.setRhs(initialId);
         }
-        boolean newlyAdded = forwardConstraints.add(c);
+        boolean newlyAdded = findOrCreateForwardConstraints().add(c);
         logger.debug("          Set constraint {} as forward for node {}", c, nodeIdInTypingGraph);
         return newlyAdded;
     }
@@ -266,80 +283,192 @@ public class TypingRecord {
             throw new IllegalArgumentException("BackwardTypingConstraint's lhs is not initialId");
 //            c.setLhs(initialId);
         }
-        boolean newlyAdded = backwardConstraints.add(c);
+        boolean newlyAdded = findOrCreateBackwardConstraints().add(c);
         logger.debug("          Set constraint {} as backward for node {}", c, nodeIdInTypingGraph);
         return newlyAdded;
     }
 
+    /**
+     * Take over the typing, the constraints and the append results of a record whose node shares this record from now
+     * on, e.g. because the nodes form a cycle of EQ constraints. Unlike {@link #addForwardTypingConstraint} the
+     * constraints do not have to belong to the node of this record.
+     *
+     * @param dropped constraints that are not taken over, e.g. the constraints between the nodes sharing this record
+     */
+    public void absorb(TypingRecord rec, Predicate<TypingConstraint> dropped) {
+        merge(rec, List.of());
+        for (TypingConstraint c : rec.getForwardTypingConstraints()) {
+            if (!dropped.test(c)) {
+                findOrCreateForwardConstraints().add(c);
+            }
+        }
+        for (TypingConstraint c : rec.getBackwardTypingConstraints()) {
+            if (!dropped.test(c)) {
+                findOrCreateBackwardConstraints().add(c);
+            }
+        }
+        addTypingAppend(rec);
+    }
+
+    public void removeTypingConstraints(Predicate<TypingConstraint> filter) {
+        if (forwardConstraints != null) {
+            forwardConstraints.removeIf(filter);
+        }
+        if (backwardConstraints != null) {
+            backwardConstraints.removeIf(filter);
+        }
+    }
+
     public boolean hasConstants() {
-        return !typingTexts.isEmpty() || !typingConstants.isEmpty();
+        return !getTypingTexts().isEmpty() || !getTypingConstants().isEmpty();
     }
 
     public boolean hasExternalFields() {
-        return !inputFields.isEmpty() || !outputFields.isEmpty();
+        return !getInputFields().isEmpty() || !getOutputFields().isEmpty();
     }
 
     public boolean hasForwardConstraints() {
-        return !forwardConstraints.isEmpty();
+        return !getForwardTypingConstraints().isEmpty();
     }
 
     public boolean hasBackwardConstraints() {
-        return !backwardConstraints.isEmpty();
+        return !getBackwardTypingConstraints().isEmpty();
     }
 
+    /**
+     * @return the forward constraints, an immutable empty set if the record has none
+     */
     public Set<TypingConstraint> getForwardTypingConstraints() {
-        return forwardConstraints;
+        return forwardConstraints != null ? forwardConstraints : Collections.emptySet();
     }
 
+    /**
+     * @return the backward constraints, an immutable empty set if the record has none
+     */
     public Set<TypingConstraint> getBackwardTypingConstraints() {
-        return backwardConstraints;
+        return backwardConstraints != null ? backwardConstraints : Collections.emptySet();
     }
 
+    /**
+     * @return the texts, an immutable empty map if the record has none; use {@link #findOrCreateTypingTexts()} to
+     * modify them
+     */
     public Map<String, List<Statement>> getTypingTexts() {
-        return typingTexts;
+        return typingTexts != null ? typingTexts : Collections.emptyMap();
     }
 
+    /**
+     * @return the constants, an immutable empty set if the record has none; use
+     * {@link #findOrCreateTypingConstants()} to modify them
+     */
     public Set<Object> getTypingConstants() {
-        return typingConstants;
+        return typingConstants != null ? typingConstants : Collections.emptySet();
     }
 
+    /**
+     * @return the input fields, an immutable empty map if the record has none; use
+     * {@link #findOrCreateInputFields()} to modify them
+     */
     public Map<SimpleGraphNode, List<Statement>> getInputFields() {
-        return inputFields;
+        return inputFields != null ? inputFields : Collections.emptyMap();
     }
 
+    /**
+     * @return the output fields, an immutable empty map if the record has none; use
+     * {@link #findOrCreateOutputFields()} to modify them
+     */
     public Map<SimpleGraphNode, List<Statement>> getOutputFields() {
+        return outputFields != null ? outputFields : Collections.emptyMap();
+    }
+
+    public InternedMap<String, List<Statement>> findOrCreateTypingTexts() {
+        if (typingTexts == null) {
+            typingTexts = new InternedMap<>(textTable);
+            markUsed(Slot.TEXTS);
+        }
+        return typingTexts;
+    }
+
+    public InternedSet<Object> findOrCreateTypingConstants() {
+        if (typingConstants == null) {
+            typingConstants = new InternedSet<>(constantTable);
+            markUsed(Slot.CONSTANTS);
+        }
+        return typingConstants;
+    }
+
+    public Map<SimpleGraphNode, List<Statement>> findOrCreateInputFields() {
+        if (inputFields == null) {
+            inputFields = new HashMap<>();
+            markUsed(Slot.INPUT_FIELDS);
+        }
+        return inputFields;
+    }
+
+    public Map<SimpleGraphNode, List<Statement>> findOrCreateOutputFields() {
+        if (outputFields == null) {
+            outputFields = new HashMap<>();
+            markUsed(Slot.OUTPUT_FIELDS);
+        }
         return outputFields;
     }
 
+    private Set<TypingConstraint> findOrCreateForwardConstraints() {
+        if (forwardConstraints == null) {
+            forwardConstraints = new HashSet<>();
+            markUsed(Slot.FORWARD_CONSTRAINTS);
+        }
+        return forwardConstraints;
+    }
+
+    private Set<TypingConstraint> findOrCreateBackwardConstraints() {
+        if (backwardConstraints == null) {
+            backwardConstraints = new HashSet<>();
+            markUsed(Slot.BACKWARD_CONSTRAINTS);
+        }
+        return backwardConstraints;
+    }
+
+    private Set<StringBuilder> findOrCreateAppendResults() {
+        if (appendResults == null) {
+            appendResults = new HashSet<>();
+            markUsed(Slot.APPEND_RESULTS);
+        }
+        return appendResults;
+    }
+
     public void endOfLife(boolean all) {
         if (all) {
-            typingTexts.clear();
+            if (typingTexts != null) {
+                typingTexts.clear();
+            }
             typingTexts = null;
             typingConstants = null;
-            inputFields.clear();
+            if (inputFields != null) {
+                inputFields.clear();
+            }
             inputFields = null;
-            outputFields.clear();
+            if (outputFields != null) {
+                outputFields.clear();
+            }
             outputFields = null;
         }
-        forwardConstraints.clear();
+        if (forwardConstraints != null) {
+            forwardConstraints.clear();
+        }
         forwardConstraints = null;
-        backwardConstraints.clear();
+        if (backwardConstraints != null) {
+            backwardConstraints.clear();
+        }
         backwardConstraints = null;
         appendResults = null;
     }
 
     public void emptyThePaths() {
-        Map<String, List<Statement>> localTexts = typingTexts;
-        Map<SimpleGraphNode, List<Statement>> localInputs = inputFields;
-        Map<SimpleGraphNode, List<Statement>> localOutputs = outputFields;
-        Set<Map.Entry<String, List<Statement>>> texts = localTexts.entrySet();
-        for (Map.Entry<String, List<Statement>> entry : texts) {
-            String key = entry.getKey();
-            List<Statement> path = entry.getValue();
-            if (path != null) {
-                path.clear();
-            }
-            localTexts.put(key, null);// the path is useless later
+        Map<SimpleGraphNode, List<Statement>> localInputs = getInputFields();
+        Map<SimpleGraphNode, List<Statement>> localOutputs = getOutputFields();
+        if (typingTexts != null) {
+            typingTexts.clearValues(List::clear);// the path is useless later
         }
         Set<Map.Entry<SimpleGraphNode, List<Statement>>> inputs = localInputs.entrySet();
         for (Map.Entry<SimpleGraphNode, List<Statement>> entry : inputs) {
@@ -368,9 +497,9 @@ public class TypingRecord {
     @Override
     public String toString() {
         return "TypingRecord{" +
-                "typingTexts=" + typingTexts.keySet() +
-                ", forwardConstraints=" + forwardConstraints +
-                ", backwardConstraints=" + backwardConstraints +
+                "typingTexts=" + getTypingTexts().keySet() +
+                ", forwardConstraints=" + getForwardTypingConstraints() +
+                ", backwardConstraints=" + getBackwardTypingConstraints() +
                 '}';
     }
 }
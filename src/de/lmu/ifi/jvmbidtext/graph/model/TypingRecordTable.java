@@ -0,0 +1,164 @@
+package de.lmu.ifi.jvmbidtext.graph.model;
+
+import java.util.*;
+
+/**
+ * Typing records of a TypingGraph indexed by the id of the graph node. The ids assigned by the node manager of the
+ * TypingGraph are dense, so the records are kept in an array. Lookups in the propagation do not need to allocate a
+ * {@link SimpleGraphNode} key as with a hash map. The same record can be stored for multiple node ids.
+ */
+public class TypingRecordTable implements Iterable<TypingRecord> {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private TypingRecord[] records = new TypingRecord[INITIAL_CAPACITY];
+    private int size;
+    private final Map<SimpleGraphNode, TypingRecord> mapView = new MapView();
+
+    public TypingRecord get(int nodeId) {
+        if (nodeId < 0 || nodeId >= records.length) {
+            return null;
+        }
+        return records[nodeId];
+    }
+
+    /**
+     * @return the record previously stored for the node id or null
+     */
+    public TypingRecord put(int nodeId, TypingRecord record) {
+        Objects.requireNonNull(record);
+        if (nodeId < 0) {
+            throw new IllegalArgumentException("Invalid node id " + nodeId);
+        }
+        if (nodeId >= records.length) {
+            records = Arrays.copyOf(records, Math.max(nodeId + 1, records.length * 2));
+        }
+        TypingRecord previous = records[nodeId];
+        records[nodeId] = record;
+        if (previous == null) {
+            size++;
+        }
+        return previous;
+    }
+
+    /**
+     * @return the removed record or null
+     */
+    public TypingRecord remove(int nodeId) {
+        TypingRecord previous = get(nodeId);
+        if (previous != null) {
+            records[nodeId] = null;
+            size--;
+        }
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Iterate all stored records in the order of the node ids. A record stored for multiple node ids is returned
+     * multiple times.
+     */
+    @Override
+    public Iterator<TypingRecord> iterator() {
+        return new SlotIterator<>((nodeId, record) -> record);
+    }
+
+    /**
+     * @return a map view of the table keyed by {@link SimpleGraphNode}, for code that still expects a map
+     */
+    public Map<SimpleGraphNode, TypingRecord> asMap() {
+        return mapView;
+    }
+
+    private interface SlotMapper<T> {
+        T map(int nodeId, TypingRecord record);
+    }
+
+    private class SlotIterator<T> implements Iterator<T> {
+        private final SlotMapper<T> mapper;
+        private int next = -1;
+        private int last = -1;
+
+        SlotIterator(SlotMapper<T> mapper) {
+            this.mapper = mapper;
+            advance();
+        }
+
+        private void advance() {
+            do {
+                next++;
+            } while (next < records.length && records[next] == null);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < records.length;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            advance();
+            return mapper.map(last, records[last]);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            TypingRecordTable.this.remove(last);
+            last = -1;
+        }
+    }
+
+    private class MapView extends AbstractMap<SimpleGraphNode, TypingRecord> {
+        private final Set<Entry<SimpleGraphNode, TypingRecord>> entrySet = new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<SimpleGraphNode, TypingRecord>> iterator() {
+                return new SlotIterator<>((nodeId, record) -> new SimpleImmutableEntry<>(SimpleGraphNode.make(nodeId),
+                        record));
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+
+        @Override
+        public Set<Entry<SimpleGraphNode, TypingRecord>> entrySet() {
+            return entrySet;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof SimpleGraphNode node && TypingRecordTable.this.get(node.nodeId()) != null;
+        }
+
+        @Override
+        public TypingRecord get(Object key) {
+            return key instanceof SimpleGraphNode node ? TypingRecordTable.this.get(node.nodeId()) : null;
+        }
+
+        @Override
+        public TypingRecord put(SimpleGraphNode key, TypingRecord value) {
+            return TypingRecordTable.this.put(key.nodeId(), value);
+        }
+
+        @Override
+        public TypingRecord remove(Object key) {
+            return key instanceof SimpleGraphNode node ? TypingRecordTable.this.remove(node.nodeId()) : null;
+        }
+    }
+}
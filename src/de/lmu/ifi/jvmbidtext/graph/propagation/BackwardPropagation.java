@@ -6,11 +6,13 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 class BackwardPropagation {
     private static final Logger logger = LogManager.getLogger(BackwardPropagation.class);
     private final TypingGraph typingGraph;
-    private List<TypingRecord> worklist;
+    private PropagationWorklist worklist;
     private TypingRecord record;
     private List<TypingConstraint> phiList;
     private List<TypingConstraint> geAssignList;
@@ -19,7 +21,7 @@ class BackwardPropagation {
         this.typingGraph = typingGraph;
     }
 
-    boolean propagateOneRecordBackward(List<TypingRecord> worklist, TypingRecord typingRecord) {
+    boolean propagateOneRecordBackward(PropagationWorklist worklist, TypingRecord typingRecord) {
         this.worklist = worklist;
         this.record = typingRecord;
         boolean changed = setupLists();
@@ -46,7 +48,7 @@ class BackwardPropagation {
         TypingNode nextNode = typingGraph.getNode(c.getRhs());
         TypingRecord nextRec = typingGraph.getTypingRecord(c.getRhs());
         if (nextNode != null && !nextNode.isConstant() && nextRec.merge(record, c.getPath())) {
-            worklist.add(nextRec);
+            worklist.addChanged(nextRec);
             return true;
         }
         return false;
@@ -71,11 +73,11 @@ class BackwardPropagation {
         // propagate
         boolean changed = false;
         if (changeTracker.isChanged0()) {
-            worklist.add(rec0);
+            worklist.addChanged(rec0);
             changed = true;
         }
         if (changeTracker.isChanged1()) {
-            worklist.add(rec1);
+            worklist.addChanged(rec1);
             changed = true;
         }
         return changed;
@@ -89,19 +91,19 @@ class BackwardPropagation {
         Set<Object> constr = record.getTypingConstants();
         if (!constr.isEmpty()) {
             if (const0.isEmpty() && const1.isEmpty()) {
-                const0.addAll(constr);
-                const1.addAll(constr);
+                rec0.findOrCreateTypingConstants().addAll(constr);
+                rec1.findOrCreateTypingConstants().addAll(constr);
                 changeTracker.changeBoth();
             } else if (const0.isEmpty() || const1.isEmpty()) {
                 Set<Object> empty, nonEmpty;
                 boolean isZero;
                 if (const0.isEmpty()) {
                     isZero = true;
-                    empty = const0;
+                    empty = rec0.findOrCreateTypingConstants();
                     nonEmpty = const1;
                 } else {
                     isZero = false;
-                    empty = const1;
+                    empty = rec1.findOrCreateTypingConstants();
                     nonEmpty = const0; // was also const1 before! But that seems wrong.
                 }
                 empty.addAll(constr);
@@ -115,42 +117,42 @@ class BackwardPropagation {
 
     private void propagateTexts(TypingRecord rec0, TypingRecord rec1, TypingConstraint tc0,
                                 DoubleChangeTracker changeTracker) {
-        Map<String, List<Statement>> texts0 = rec0.getTypingTexts();
-        Map<String, List<Statement>> texts1 = rec1.getTypingTexts();
-        Map<String, List<Statement>> texts = record.getTypingTexts();
-
-        propagationHelperMaps(tc0, changeTracker, texts0, texts1, texts, true);
+        propagationHelperMaps(tc0, changeTracker, rec0, rec1, TypingRecord::getTypingTexts,
+                TypingRecord::findOrCreateTypingTexts, true);
     }
 
     private void propagateInputs(TypingRecord rec0, TypingRecord rec1, TypingConstraint tc0,
                                  DoubleChangeTracker changeTracker) {
-        Map<SimpleGraphNode, List<Statement>> input0 = rec0.getInputFields();
-        Map<SimpleGraphNode, List<Statement>> input1 = rec1.getInputFields();
-        Map<SimpleGraphNode, List<Statement>> inputs = record.getInputFields();
-        propagationHelperMaps(tc0, changeTracker, input0, input1, inputs, false);
+        propagationHelperMaps(tc0, changeTracker, rec0, rec1, TypingRecord::getInputFields,
+                TypingRecord::findOrCreateInputFields, false);
     }
 
     private void propagateOutputs(TypingRecord rec0, TypingRecord rec1,
                                   TypingConstraint tc0, DoubleChangeTracker changeTracker) {
-        Map<SimpleGraphNode, List<Statement>> output0 = rec0.getOutputFields();
-        Map<SimpleGraphNode, List<Statement>> output1 = rec1.getOutputFields();
-        Map<SimpleGraphNode, List<Statement>> outputs = record.getOutputFields();
-        propagationHelperMaps(tc0, changeTracker, output0, output1, outputs, false);
+        propagationHelperMaps(tc0, changeTracker, rec0, rec1, TypingRecord::getOutputFields,
+                TypingRecord::findOrCreateOutputFields, false);
     }
 
+    /**
+     * @param maps      the read-only maps of a record
+     * @param writeMaps the maps of a record, allocated if the record has none yet
+     */
     private <T> void propagationHelperMaps(TypingConstraint tc0, DoubleChangeTracker changeTracker,
-                                           Map<T, List<Statement>> map0,
-                                           Map<T, List<Statement>> map1,
-                                           Map<T, List<Statement>> map,
+                                           TypingRecord rec0, TypingRecord rec1,
+                                           Function<TypingRecord, Map<T, List<Statement>>> maps,
+                                           Function<TypingRecord, Map<T, List<Statement>>> writeMaps,
                                            boolean modifyOnBothEmpty) {
+        Map<T, List<Statement>> map = maps.apply(record);
         if (map.isEmpty()) {
             return;
         }
+        Map<T, List<Statement>> map0 = maps.apply(rec0);
+        Map<T, List<Statement>> map1 = maps.apply(rec1);
         Map<T, List<Statement>> usedForPathUpdate = new HashMap<>(0);
         if (map0.isEmpty() && map1.isEmpty()) {
             if (modifyOnBothEmpty) {
-                map0.putAll(map);
-                map1.putAll(map);
+                writeMaps.apply(rec0).putAll(map);
+                writeMaps.apply(rec1).putAll(map);
                 changeTracker.changeBoth();
             }
             usedForPathUpdate = map;
@@ -159,11 +161,11 @@ class BackwardPropagation {
             boolean isZero;
             if (map0.isEmpty()) {
                 isZero = true;
-                empty = map0;
+                empty = writeMaps.apply(rec0);
                 nonEmpty = map1;
             } else {
                 isZero = false;
-                empty = map1;
+                empty = writeMaps.apply(rec1);
                 nonEmpty = map0;
             }
             empty.putAll(map);
@@ -198,7 +200,7 @@ class BackwardPropagation {
             if (sym == TypingConstraint.EQ || sym == TypingConstraint.GE) {
                 nextNode = typingGraph.getNode(nextId);
                 if (nextNode != null && !nextNode.isConstant() && nextRec.merge(record, ct.getPath())) {
-                    worklist.add(nextRec);
+                    worklist.addChanged(nextRec);
                     changed = true;
                 }
             } else if (sym == TypingConstraint.GE_ASSIGN) {
@@ -206,7 +208,7 @@ class BackwardPropagation {
             } else if (sym == TypingConstraint.GE_APPEND) {
                 nextNode = typingGraph.getNode(nextId);
                 if (nextNode != null && !nextNode.isConstant() && nextRec.mergeIfEmptyTexts(record, ct.getPath())) {
-                    worklist.add(nextRec);
+                    worklist.addChanged(nextRec);
                     changed = true;
                 }
             } else if (sym == TypingConstraint.GE_PHI) {
@@ -261,7 +263,7 @@ class BackwardPropagation {
 
             if (changed) {
                 anyChanged = true;
-                worklist.add(typingRecord);
+                worklist.addChanged(typingRecord);
             }
         }
         return anyChanged;
@@ -271,32 +273,35 @@ class BackwardPropagation {
         Set<Object> recConsts = record.getTypingConstants();
         Set<Object> tmpConst = new HashSet<>(recConsts);
         tmpConst.removeAll(allConst);
-        Set<Object> targetConsts = typingRecord.getTypingConstants();
+        if (tmpConst.isEmpty()) {
+            return false;
+        }
+        Set<Object> targetConsts = typingRecord.findOrCreateTypingConstants();
         targetConsts.addAll(tmpConst);
-        return !tmpConst.isEmpty();
+        return true;
     }
 
     private boolean phiPropagateOutputs(TypingConstraint typingConstraint, Set<SimpleGraphNode> allOutputs,
                                         TypingRecord typingRecord) {
         return phiPropagationHelperMaps(typingConstraint, allOutputs, record.getOutputFields(),
-                typingRecord.getOutputFields());
+                typingRecord::findOrCreateOutputFields);
     }
 
     private boolean phiPropagateInputs(TypingConstraint typingConstraint, Set<SimpleGraphNode> allInputs,
                                        TypingRecord typingRecord) {
         return phiPropagationHelperMaps(typingConstraint, allInputs, record.getInputFields(),
-                typingRecord.getInputFields());
+                typingRecord::findOrCreateInputFields);
     }
 
     private boolean phiPropagateTexts(TypingConstraint typingConstraint, Set<String> allTexts,
                                       TypingRecord typingRecord) {
         return phiPropagationHelperMaps(typingConstraint, allTexts, record.getTypingTexts(),
-                typingRecord.getTypingTexts());
+                typingRecord::findOrCreateTypingTexts);
     }
 
     private <T> boolean phiPropagationHelperMaps(TypingConstraint typingConstraint, Set<T> allElems,
                                                  Map<T, List<Statement>> recElems,
-                                                 Map<T, List<Statement>> targetElems) {
+                                                 Supplier<? extends Map<T, List<Statement>>> targetElems) {
         Set<T> tmpElems = new HashSet<>(recElems.keySet());
         // remove all states coming from phi nodes; keep only public states
         tmpElems.removeAll(allElems);
@@ -305,9 +310,9 @@ class BackwardPropagation {
             List<Statement> existingPath = recElems.get(elem);
             List<Statement> path = null;
             if (existingPath != null) {
-                path = new LinkedList<>(typingConstraint.getPath());
+                path = typingGraph.getPathTable().copyOf(typingConstraint.getPath());
             }
-            targetElems.put(elem, path);
+            targetElems.get().put(elem, path);
         }
         return !tmpElems.isEmpty();
     }
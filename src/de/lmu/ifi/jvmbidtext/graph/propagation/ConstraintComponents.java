@@ -0,0 +1,77 @@
+package de.lmu.ifi.jvmbidtext.graph.propagation;
+
+import de.lmu.ifi.jvmbidtext.graph.model.TypingConstraint;
+import de.lmu.ifi.jvmbidtext.graph.model.TypingGraph;
+import de.lmu.ifi.jvmbidtext.graph.model.TypingRecord;
+
+import java.util.Iterator;
+
+/**
+ * Connected components of the typing records, connected by their forward and backward constraints. The propagation of
+ * a record only reads and merges the records of its constraints, so records of different components never affect each
+ * other and the components can be propagated concurrently (see {@link PropagationWorklist#partition(int[])}).
+ */
+class ConstraintComponents {
+    private final TypingGraph typingGraph;
+    private int[] parent;
+
+    private ConstraintComponents(TypingGraph typingGraph) {
+        this.typingGraph = typingGraph;
+    }
+
+    /**
+     * @return the component of each typing record, indexed by the id of its node; the component is the smallest id
+     */
+    static int[] of(TypingGraph typingGraph) {
+        return new ConstraintComponents(typingGraph).find();
+    }
+
+    private int[] find() {
+        int maxId = -1;
+        Iterator<TypingRecord> iter = typingGraph.iterateTypingRecords();
+        while (iter.hasNext()) {
+            maxId = Math.max(maxId, iter.next().getInitialId());
+        }
+        parent = new int[maxId + 1];
+        for (int id = 0; id < parent.length; id++) {
+            parent[id] = id;
+        }
+        iter = typingGraph.iterateTypingRecords();
+        while (iter.hasNext()) {
+            TypingRecord record = iter.next();
+            for (TypingConstraint c : record.getForwardTypingConstraints()) {
+                union(record.getInitialId(), c.getLhs());
+            }
+            for (TypingConstraint c : record.getBackwardTypingConstraints()) {
+                union(record.getInitialId(), c.getRhs());
+            }
+        }
+        for (int id = 0; id < parent.length; id++) {
+            parent[id] = find(id);
+        }
+        return parent;
+    }
+
+    private int find(int id) {
+        while (parent[id] != id) {
+            parent[id] = parent[parent[id]];
+            id = parent[id];
+        }
+        return id;
+    }
+
+    // the records of collapsed nodes are shared, so the ids of the constraints are mapped to the id of their record
+    private void union(int id, int otherNodeId) {
+        TypingRecord other = typingGraph.getTypingRecord(otherNodeId);
+        if (other == null || other.getInitialId() >= parent.length) {
+            return;
+        }
+        int rootA = find(id);
+        int rootB = find(other.getInitialId());
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package de.lmu.ifi.jvmbidtext.graph.propagation;
+
+import de.lmu.ifi.jvmbidtext.graph.model.TypingConstraint;
+import de.lmu.ifi.jvmbidtext.graph.model.TypingGraph;
+import de.lmu.ifi.jvmbidtext.graph.model.TypingNode;
+import de.lmu.ifi.jvmbidtext.graph.model.TypingRecord;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.function.Predicate;
+
+/**
+ * Collapses the typing records of nodes that are connected by EQ constraints in both directions (forward and backward)
+ * into a single record before the propagation. Such nodes form strongly connected components of the constraint graph
+ * and end up with the same typing anyway, but the worklist only gets there by propagating the typing around the
+ * cycles until nothing changes. With both directions the components are the connected components of the EQ edges, so
+ * they are found with union-find.
+ * <p>
+ * Only plain local nodes are collapsed. Constants, fields and special nodes keep their own records, because the
+ * propagation treats them differently and the records of fields and special nodes are used after the propagation. All
+ * nodes reachable from a constant over EQ constraints are skipped as well: they can become fake constants, one after
+ * the other, which stops the propagation into them. GE_ASSIGN, GE_APPEND and GE_PHI constraints depend on the
+ * individual records on both of their ends (e.g. GE_APPEND only propagates backward into a record without texts), so
+ * the nodes on either end of them are skipped too.
+ */
+class EqCycleCollapser {
+    private final TypingGraph typingGraph;
+    private int[] parent;
+
+    EqCycleCollapser(TypingGraph typingGraph) {
+        this.typingGraph = typingGraph;
+    }
+
+    /**
+     * @return the number of records that were collapsed into another record
+     */
+    int collapse() {
+        BitSet eligible = findEligibleNodes();
+        parent = new int[eligible.length()];
+        for (int id = 0; id < parent.length; id++) {
+            parent[id] = id;
+        }
+        for (int id = eligible.nextSetBit(0); id >= 0; id = eligible.nextSetBit(id + 1)) {
+            for (TypingConstraint c : typingGraph.getTypingRecord(id).getForwardTypingConstraints()) {
+                int lhs = c.getLhs();
+                if (c.getSym() == TypingConstraint.EQ && eligible.get(lhs)
+                        && typingGraph.getTypingRecord(lhs).getBackwardTypingConstraints().contains(c)) {
+                    union(id, lhs);
+                }
+            }
+        }
+
+        Predicate<TypingConstraint> internal = c -> c.getSym() == TypingConstraint.EQ
+                && find(c.getLhs()) == find(c.getRhs());
+        BitSet representatives = new BitSet();
+        int collapsed = 0;
+        for (int id = eligible.nextSetBit(0); id >= 0; id = eligible.nextSetBit(id + 1)) {
+            int root = find(id);
+            if (root == id) {
+                continue;
+            }
+            TypingRecord representative = typingGraph.getTypingRecord(root);
+            representative.absorb(typingGraph.getTypingRecord(id), internal);
+            typingGraph.setTypingRecord(id, representative);
+            representatives.set(root);
+            collapsed++;
+        }
+        for (int id = representatives.nextSetBit(0); id >= 0; id = representatives.nextSetBit(id + 1)) {
+            typingGraph.getTypingRecord(id).removeTypingConstraints(internal);
+        }
+        return collapsed;
+    }
+
+    private BitSet findEligibleNodes() {
+        BitSet eligible = new BitSet();
+        BitSet excluded = new BitSet();
+        Deque<Integer> constants = new ArrayDeque<>();
+        Iterator<TypingNode> iter = typingGraph.iterateNodes();
+        while (iter.hasNext()) {
+            TypingNode tn = iter.next();
+            int id = tn.getGraphNodeId();
+            TypingRecord rec = typingGraph.getTypingRecord(id);
+            if (rec == null || rec.getInitialId() != id) {
+                continue;
+            }
+            for (TypingConstraint c : rec.getBackwardTypingConstraints()) {
+                if (isRecordSpecific(c)) {
+                    excluded.set(c.getLhs());
+                    excluded.set(c.getRhs());
+                }
+            }
+            if (tn.isConstant()) {
+                constants.add(id);
+            } else if (!tn.isField() && !tn.isSpecialNode()) {
+                eligible.set(id);
+            }
+        }
+        excludeEqClosure(constants, excluded);
+        eligible.andNot(excluded);
+        return eligible;
+    }
+
+    /**
+     * Exclude all nodes that are reachable from the given nodes over forward EQ constraints.
+     */
+    private void excludeEqClosure(Deque<Integer> worklist, BitSet excluded) {
+        BitSet visited = new BitSet();
+        while (!worklist.isEmpty()) {
+            int id = worklist.removeFirst();
+            if (visited.get(id)) {
+                continue;
+            }
+            visited.set(id);
+            TypingRecord rec = typingGraph.getTypingRecord(id);
+            if (rec == null) {
+                continue;
+            }
+            for (TypingConstraint c : rec.getForwardTypingConstraints()) {
+                if (c.getSym() == TypingConstraint.EQ && !visited.get(c.getLhs())) {
+                    excluded.set(c.getLhs());
+                    worklist.add(c.getLhs());
+                }
+            }
+        }
+    }
+
+    private static boolean isRecordSpecific(TypingConstraint c) {
+        int sym = c.getSym();
+        return sym == TypingConstraint.GE_ASSIGN || sym == TypingConstraint.GE_APPEND || sym == TypingConstraint.GE_PHI;
+    }
+
+    private int find(int id) {
+        if (id < 0 || id >= parent.length) {
+            return id;
+        }
+        while (parent[id] != id) {
+            parent[id] = parent[parent[id]];
+            id = parent[id];
+        }
+        return id;
+    }
+
+    // the smaller id becomes the representative
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+}
@@ -7,7 +7,6 @@ import de.lmu.ifi.jvmbidtext.graph.model.TypingRecord;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.List;
 import java.util.Set;
 
 public class ForwardPropagation {
@@ -18,7 +17,7 @@ public class ForwardPropagation {
         this.typingGraph = typingGraph;
     }
 
-    public boolean propagateOneRecordForward(List<TypingRecord> worklist, TypingRecord record) {
+    public boolean propagateOneRecordForward(PropagationWorklist worklist, TypingRecord record) {
         boolean changed = false;
         Set<TypingConstraint> constraints = record.getForwardTypingConstraints();
         for (TypingConstraint ct : constraints) {
@@ -29,7 +28,7 @@ public class ForwardPropagation {
             // e.g. for put operations in Map<String, String> where the value is a constant
             // if value is leaked before put, no leak will be detected because we skipped the propagation
             if (nextNode != null && !nextNode.isConstant() && nextRec.merge(record, ct.getPath())) {
-                worklist.add(nextRec);
+                worklist.addChanged(nextRec);
                 changed = true;
                 if (ct.getSym() == TypingConstraint.EQ) {
                     TypingNode currNode = typingGraph.getNode(ct.getRhs());
@@ -0,0 +1,246 @@
+package de.lmu.ifi.jvmbidtext.graph.propagation;
+
+import de.lmu.ifi.jvmbidtext.graph.model.TypingConstraint;
+import de.lmu.ifi.jvmbidtext.graph.model.TypingGraph;
+import de.lmu.ifi.jvmbidtext.graph.model.TypingRecord;
+
+import java.util.*;
+
+/**
+ * Worklist of the typing records to propagate. A record is in the worklist at most once: adding a record that is still
+ * waiting has no effect besides the counters, because everything merged into it until then is propagated when it is
+ * taken. The order in which the records are taken is configurable, see {@link Order}.
+ */
+public class PropagationWorklist {
+    public enum Order {
+        /**
+         * first in, first out like the LinkedList worklist before
+         */
+        FIFO,
+        /**
+         * reverse postorder of the forward constraints: a record is taken before the records it propagates to, so
+         * the records of a strongly connected component are visited together and typing flows along the order
+         */
+        REVERSE_POSTORDER,
+        /**
+         * the record with the most merges since it was added is taken first
+         */
+        LARGEST_DELTA
+    }
+
+    private final Order order;
+    private final BitSet queued = new BitSet();
+    private final Queue<TypingRecord> fifo;
+    private final Queue<Entry> priorityQueue;
+    private final int[] ranks;
+    private int[] deltas;
+    private int takenDelta;
+    private int size;
+    private long enqueues;
+    private long duplicates;
+    private long dequeues;
+    private long merges;
+
+    public PropagationWorklist(TypingGraph typingGraph, Order order) {
+        this(order, order == Order.REVERSE_POSTORDER ? reversePostorder(typingGraph) : null);
+    }
+
+    private PropagationWorklist(Order order, int[] ranks) {
+        this.order = order;
+        this.ranks = ranks;
+        // ties are broken by the node id, so the order does not depend on the other records in the worklist
+        Comparator<Entry> byId = Comparator.comparingInt(entry -> entry.record().getInitialId());
+        switch (order) {
+            case REVERSE_POSTORDER -> {
+                fifo = null;
+                priorityQueue = new PriorityQueue<>(Comparator.comparingInt(Entry::priority).thenComparing(byId));
+            }
+            case LARGEST_DELTA -> {
+                deltas = new int[0];
+                fifo = null;
+                priorityQueue = new PriorityQueue<>(
+                        Comparator.comparingInt(Entry::priority).reversed().thenComparing(byId));
+            }
+            default -> {
+                fifo = new ArrayDeque<>();
+                priorityQueue = null;
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return false if the record is already in the worklist
+     */
+    public boolean add(TypingRecord record) {
+        int id = record.getInitialId();
+        int delta = 0;
+        if (order == Order.LARGEST_DELTA) {
+            growDeltas(id);
+            delta = ++deltas[id];
+            if (queued.get(id)) {
+                // the old entry becomes stale, see poll()
+                priorityQueue.add(new Entry(record, delta));
+            }
+        }
+        if (queued.get(id)) {
+            duplicates++;
+            return false;
+        }
+        enqueues++;
+        enqueue(record, delta);
+        return true;
+    }
+
+    private void enqueue(TypingRecord record, int delta) {
+        int id = record.getInitialId();
+        queued.set(id);
+        size++;
+        switch (order) {
+            case REVERSE_POSTORDER -> priorityQueue.add(new Entry(record, id < ranks.length ? ranks[id] : 0));
+            case LARGEST_DELTA -> {
+                growDeltas(id);
+                deltas[id] = delta;
+                priorityQueue.add(new Entry(record, delta));
+            }
+            default -> fifo.add(record);
+        }
+    }
+
+    private void growDeltas(int id) {
+        if (id >= deltas.length) {
+            deltas = Arrays.copyOf(deltas, Math.max(id + 1, deltas.length * 2));
+        }
+    }
+
+    /**
+     * Add a record whose typing was changed by a merge.
+     */
+    public boolean addChanged(TypingRecord record) {
+        merges++;
+        return add(record);
+    }
+
+    public TypingRecord poll() {
+        dequeues++;
+        return take();
+    }
+
+    /**
+     * Move the records of this worklist to one worklist per partition, keeping their order. Records of different
+     * partitions must not affect each other: a partition then sees the same sequence of records as with this worklist.
+     * The counters of the partitions can be added with {@link #addCounters}.
+     *
+     * @param partitionOf the partition of each record, indexed by the id of its node
+     */
+    public List<PropagationWorklist> partition(int[] partitionOf) {
+        Map<Integer, PropagationWorklist> partitions = new LinkedHashMap<>();
+        while (size > 0) {
+            TypingRecord record = take();
+            // the counters stay with this worklist, the record keeps its delta
+            partitions.computeIfAbsent(partitionOf[record.getInitialId()], __ -> new PropagationWorklist(order, ranks))
+                    .enqueue(record, takenDelta);
+        }
+        return new ArrayList<>(partitions.values());
+    }
+
+    public void addCounters(PropagationWorklist other) {
+        enqueues += other.enqueues;
+        duplicates += other.duplicates;
+        dequeues += other.dequeues;
+        merges += other.merges;
+    }
+
+    private TypingRecord take() {
+        TypingRecord record;
+        if (fifo != null) {
+            record = fifo.remove();
+        } else {
+            Entry entry = priorityQueue.remove();
+            while (order == Order.LARGEST_DELTA && isStale(entry)) {
+                entry = priorityQueue.remove();
+            }
+            record = entry.record();
+        }
+        int id = record.getInitialId();
+        queued.clear(id);
+        if (deltas != null) {
+            takenDelta = deltas[id];
+            deltas[id] = 0;
+        }
+        size--;
+        return record;
+    }
+
+    private boolean isStale(Entry entry) {
+        int id = entry.record().getInitialId();
+        return !queued.get(id) || entry.priority() != deltas[id];
+    }
+
+    public Counters getCounters() {
+        return new Counters(order, enqueues, duplicates, dequeues, merges);
+    }
+
+    private static int[] reversePostorder(TypingGraph typingGraph) {
+        int maxId = -1;
+        Iterator<TypingRecord> iter = typingGraph.iterateTypingRecords();
+        while (iter.hasNext()) {
+            maxId = Math.max(maxId, iter.next().getInitialId());
+        }
+        int[] ranks = new int[maxId + 1];
+        BitSet visited = new BitSet(maxId + 1);
+        int postorder = 0;
+        Deque<Iterator<TypingConstraint>> stack = new ArrayDeque<>();
+        Deque<Integer> ids = new ArrayDeque<>();
+        iter = typingGraph.iterateTypingRecords();
+        while (iter.hasNext()) {
+            TypingRecord root = iter.next();
+            if (visited.get(root.getInitialId())) {
+                continue;
+            }
+            visited.set(root.getInitialId());
+            stack.push(root.getForwardTypingConstraints().iterator());
+            ids.push(root.getInitialId());
+            // iterative depth-first search, the constraint graph can be too deep for recursion
+            while (!stack.isEmpty()) {
+                Iterator<TypingConstraint> successors = stack.peek();
+                if (successors.hasNext()) {
+                    TypingRecord next = typingGraph.getTypingRecord(successors.next().getLhs());
+                    if (next != null && next.getInitialId() <= maxId && !visited.get(next.getInitialId())) {
+                        visited.set(next.getInitialId());
+                        stack.push(next.getForwardTypingConstraints().iterator());
+                        ids.push(next.getInitialId());
+                    }
+                } else {
+                    stack.pop();
+                    ranks[ids.pop()] = postorder++;
+                }
+            }
+        }
+        // reverse: the last finished record comes first
+        for (int id = 0; id < ranks.length; id++) {
+            ranks[id] = postorder - ranks[id];
+        }
+        return ranks;
+    }
+
+    private record Entry(TypingRecord record, int priority) {
+    }
+
+    /**
+     * @param enqueues   records added to the worklist
+     * @param duplicates additions of records that were already in the worklist
+     * @param dequeues   records taken from the worklist, i.e. record visits
+     * @param merges     merges that changed the typing of a record
+     */
+    public record Counters(Order order, long enqueues, long duplicates, long dequeues, long merges) {
+        @Override
+        public String toString() {
+            return String.format("%s order: %d enqueues, %d duplicates, %d dequeues, %d merges", order, enqueues,
+                    duplicates, dequeues, merges);
+        }
+    }
+}
@@ -1,51 +1,108 @@
 package de.lmu.ifi.jvmbidtext.graph.propagation;
 
-import de.lmu.ifi.jvmbidtext.graph.model.SimpleGraphNode;
 import de.lmu.ifi.jvmbidtext.graph.model.TypingGraph;
 import de.lmu.ifi.jvmbidtext.graph.model.TypingNode;
 import de.lmu.ifi.jvmbidtext.graph.model.TypingRecord;
+import de.lmu.ifi.jvmbidtext.utils.AnalysisBudget;
+import de.lmu.ifi.jvmbidtext.utils.SimpleConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class Propagator {
+    private static final Logger logger = LogManager.getLogger(Propagator.class);
 
     private static final Pattern NAME_VALUE_PATTERN = Pattern.compile("((\\w|-|\\s)+[=:]\\+\\*\\^\\d+\\^\\*\\+)");
+    private static final PropagationWorklist.Order ORDER;
+    private static final boolean COLLAPSE_EQ_CYCLES;
+    private static final ForkJoinPool POOL;
+    static {
+        try {
+            ORDER = PropagationWorklist.Order.valueOf(SimpleConfig.getPropagationOrder());
+            COLLAPSE_EQ_CYCLES = SimpleConfig.isCollapseEqCyclesEnabled();
+            int threads = SimpleConfig.getPropagationThreads();
+            POOL = threads > 1 ? new ForkJoinPool(threads) : null;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load config", e);
+        }
+    }
     private final TypingGraph typingGraph;
     private final BackwardPropagation backwardPropagation;
     private final ForwardPropagation forwardPropagation;
-    private List<TypingRecord> worklist;
+    private final AnalysisBudget budget;
+    private final PropagationWorklist.Order order;
+    private final boolean collapseEqCycles;
+    private PropagationWorklist worklist;
+    private int[] components;
 
     public Propagator(TypingGraph graph) {
+        this(graph, AnalysisBudget.unlimited());
+    }
+
+    /**
+     * @param budget the propagation stops early if the budget is exhausted; the typing found so far is kept
+     */
+    public Propagator(TypingGraph graph, AnalysisBudget budget) {
+        this(graph, budget, ORDER);
+    }
+
+    /**
+     * @param order order of the worklist instead of the configured PROPAGATION_ORDER
+     */
+    public Propagator(TypingGraph graph, AnalysisBudget budget, PropagationWorklist.Order order) {
+        this(graph, budget, order, COLLAPSE_EQ_CYCLES);
+    }
+
+    /**
+     * @param collapseEqCycles collapse the cycles of EQ constraints instead of the configured COLLAPSE_EQ_CYCLES
+     */
+    Propagator(TypingGraph graph, AnalysisBudget budget, PropagationWorklist.Order order, boolean collapseEqCycles) {
         this.typingGraph = graph;
         this.backwardPropagation = new BackwardPropagation(graph);
         this.forwardPropagation = new ForwardPropagation(graph);
+        this.budget = budget;
+        this.order = order;
+        this.collapseEqCycles = collapseEqCycles;
     }
 
     public void propagate() {
-        worklist = new LinkedList<>();
-        // PASS 1: forward
+        propagatePassOne();
+        propagatePassTwo();
+    }
+
+    /**
+     * PASS 1: forward, after collapsing the cycles of EQ constraints if enabled
+     */
+    public void propagatePassOne() {
+        if (collapseEqCycles) {
+            int collapsed = new EqCycleCollapser(typingGraph).collapse();
+            logger.info("     Collapsed {} typing records of EQ cycles", collapsed);
+        }
+        worklist = new PropagationWorklist(typingGraph, order);
         initWorklistPassOne();
         // currentTypingGraph.simplify();
-        while (!worklist.isEmpty()) {
-            TypingRecord rec = worklist.removeFirst();
-            forwardPropagation.propagateOneRecordForward(worklist, rec);
-        }
-        // PASS 2: forward & backward
+        drain(false);
+        logger.info("     Pass one: {}", worklist.getCounters());
+    }
+
+    /**
+     * PASS 2: forward & backward, expects that {@link #propagatePassOne()} is done
+     */
+    public void propagatePassTwo() {
+        worklist = new PropagationWorklist(typingGraph, order);
         initWorklistPassTwo();
-        while (!worklist.isEmpty()) {
-            TypingRecord rec = worklist.removeFirst();
-            backwardPropagation.propagateOneRecordBackward(worklist, rec);
-            forwardPropagation.propagateOneRecordForward(worklist, rec);
-            TypingNode node = typingGraph.getNode(rec.getInitialId());
-            if (node != null && !(node.isField() || node.isSpecialNode())) {
-                rec.emptyThePaths();
-            }
-        }
+        drain(true);
+        logger.info("     Pass two: {}", worklist.getCounters());
         // // old implementation which cannot leverage emptyThePaths to improve
         // // memory efficiency
         // while (true) {
@@ -71,6 +128,59 @@ public class Propagator {
         // }
     }
 
+    /**
+     * Propagate until the worklist is empty. With PROPAGATION_THREADS the worklist is partitioned by the connected
+     * components of the constraints and the components are propagated concurrently. Every component takes its records
+     * in the same order as the sequential propagation, so the typing is exactly the same.
+     */
+    private void drain(boolean passTwo) {
+        if (POOL == null) {
+            drain(worklist, backwardPropagation, passTwo);
+            return;
+        }
+        if (components == null) {
+            components = ConstraintComponents.of(typingGraph);
+        }
+        List<PropagationWorklist> partitions = worklist.partition(components);
+        List<Callable<Void>> tasks = new ArrayList<>(partitions.size());
+        for (PropagationWorklist partition : partitions) {
+            // the backward propagation keeps the state of the current record
+            tasks.add(() -> {
+                drain(partition, new BackwardPropagation(typingGraph), passTwo);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> future : POOL.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Failed to propagate", e.getCause());
+        }
+        partitions.forEach(worklist::addCounters);
+    }
+
+    private void drain(PropagationWorklist worklist, BackwardPropagation backwardPropagation, boolean passTwo) {
+        while (!worklist.isEmpty() && !budget.isExhausted()) {
+            TypingRecord rec = worklist.poll();
+            if (!passTwo) {
+                forwardPropagation.propagateOneRecordForward(worklist, rec);
+                continue;
+            }
+            backwardPropagation.propagateOneRecordBackward(worklist, rec);
+            forwardPropagation.propagateOneRecordForward(worklist, rec);
+            TypingNode node = typingGraph.getNode(rec.getInitialId());
+            if (node != null && !(node.isField() || node.isSpecialNode())) {
+                rec.emptyThePaths();
+            }
+        }
+    }
+
     private void initWorklistPassOne() {
         Iterator<TypingNode> iter = typingGraph.iterateNodes();
         while (iter.hasNext()) {
@@ -133,10 +243,9 @@ public class Propagator {
     }
 
     private void initWorklistPassTwo() {
-        Iterator<Map.Entry<SimpleGraphNode, TypingRecord>> iter = typingGraph.iterateRecords();
+        Iterator<TypingRecord> iter = typingGraph.iterateTypingRecords();
         while (iter.hasNext()) {
-            Map.Entry<SimpleGraphNode, TypingRecord> entry = iter.next();
-            TypingRecord record = entry.getValue();
+            TypingRecord record = iter.next();
             if (record.hasBackwardConstraints() && (record.hasConstants() || record.hasExternalFields())) {
                 worklist.add(record);
             }
@@ -144,11 +253,10 @@ public class Propagator {
     }
 
 
-    private void initWorklistPassThree(List<TypingRecord> worklist) {
-        Iterator<Map.Entry<SimpleGraphNode, TypingRecord>> iter = typingGraph.iterateRecords();
+    private void initWorklistPassThree(PropagationWorklist worklist) {
+        Iterator<TypingRecord> iter = typingGraph.iterateTypingRecords();
         while (iter.hasNext()) {
-            Map.Entry<SimpleGraphNode, TypingRecord> entry = iter.next();
-            TypingRecord record = entry.getValue();
+            TypingRecord record = iter.next();
             if (record.hasForwardConstraints() && (record.hasConstants() || record.hasExternalFields())) {
                 worklist.add(record);
             }
@@ -11,7 +11,10 @@ import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
 import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
 import com.ibm.wala.types.ClassLoaderReference;
 import de.lmu.ifi.jvmbidtext.setup.spring.AnnotationFinder;
+import de.lmu.ifi.jvmbidtext.setup.spring.InstrumentedJarCache;
 import de.lmu.ifi.jvmbidtext.setup.spring.IocInjector;
+import de.lmu.ifi.jvmbidtext.utils.ContentHash;
+import de.lmu.ifi.jvmbidtext.utils.PhaseMetrics;
 import de.lmu.ifi.jvmbidtext.utils.SimpleConfig;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -27,6 +30,8 @@ public class CustomClassHierarchyFactory {
 
     private static final Logger logger = LogManager.getLogger(CustomClassHierarchyFactory.class);
 
+    private static boolean reusePrimordialLoaders = false;
+
     private Optional<Set<IMethod>> springControllerHandlerMethods = Optional.empty();
 
     public ClassHierarchy make(String pathToJarOrClassesRootFolder, AnalysisCache cache) throws IOException, ClassHierarchyException, InvalidClassFileException {
@@ -44,22 +49,71 @@ public class CustomClassHierarchyFactory {
                 AnalysisScopeReader.instance.readJavaScope(inclusionsFilePath, exclusionsFile, classLoader);
         ClassLoaderReference walaClassLoader = scope.getLoader(AnalysisScope.APPLICATION);
         AnalysisScopeReader.instance.addClassPathToScope(pathToJarOrClassesRootFolder, scope, walaClassLoader);
-        ClassHierarchy basicClassHierarchy = ClassHierarchyFactory.make(scope);
+
+        Optional<String> cacheKey = Optional.empty();
+        if (doSpringProcessing && InstrumentedJarCache.isEnabled()) {
+            cacheKey = Optional.of(InstrumentedJarCache.computeKey(pathToJarOrClassesRootFolder));
+            Optional<String> cachedJar = InstrumentedJarCache.lookup(cacheKey.get());
+            if (cachedJar.isPresent()) {
+                return makeFromCachedInstrumentedJar(cachedJar.get(), scope, cache);
+            }
+        }
+
+        ClassHierarchy basicClassHierarchy = reusePrimordialLoaders ?
+                ClassHierarchyFactory.make(scope, new SharedPrimordialClassLoaderFactory(scope.getExclusions(),
+                        computeScopeKey(inclusionsFilePath, exclusionFilePath))) :
+                ClassHierarchyFactory.make(scope);
         printDebugInfo(basicClassHierarchy);
 
         if (doSpringProcessing) {
-            AnnotationFinder annotationFinder = new AnnotationFinder(basicClassHierarchy);
+            try (PhaseMetrics.Phase phase = PhaseMetrics.start("spring_instrumentation")) {
+                AnnotationFinder annotationFinder = new AnnotationFinder(basicClassHierarchy);
+                annotationFinder.processClasses();
+                if (SimpleConfig.isSpringEntrypointDiscoveryEnabled()) {
+                    springControllerHandlerMethods = Optional.of(annotationFinder.getControllerHandlerMethods());
+                }
+                return IocInjector.buildAdaptedClassHierarchy(this, pathToJarOrClassesRootFolder, annotationFinder,
+                        scope, cache, cacheKey);
+            }
+        } else {
+            return basicClassHierarchy;
+        }
+    }
+
+    /**
+     * The cached jar file already contains the simulated dependency injection, so only the class hierarchy of the
+     * instrumented classes has to be built. Annotations are read from this class hierarchy.
+     */
+    private ClassHierarchy makeFromCachedInstrumentedJar(String cachedJarPath, AnalysisScope scope,
+                                                         AnalysisCache cache) throws IOException,
+            ClassHierarchyException, InvalidClassFileException {
+        ClassHierarchy adjustedClassHierarchy = make(cachedJarPath, cache, false);
+        try (PhaseMetrics.Phase phase = PhaseMetrics.start("spring_instrumentation")) {
+            AnnotationFinder annotationFinder = new AnnotationFinder(adjustedClassHierarchy);
             annotationFinder.processClasses();
             if (SimpleConfig.isSpringEntrypointDiscoveryEnabled()) {
                 springControllerHandlerMethods = Optional.of(annotationFinder.getControllerHandlerMethods());
             }
-            return IocInjector.buildAdaptedClassHierarchy(this, pathToJarOrClassesRootFolder, annotationFinder, scope,
-                    cache);
-        } else {
-            return basicClassHierarchy;
+            return IocInjector.addIocContainerClass(adjustedClassHierarchy, annotationFinder, scope, cache);
         }
     }
 
+    /**
+     * Load the JDK classes only once for all class hierarchies built in this JVM, see
+     * {@link SharedPrimordialClassLoaderFactory}. Used when multiple targets are analyzed in the same JVM.
+     */
+    public static void enablePrimordialLoaderReuse() {
+        reusePrimordialLoaders = true;
+    }
+
+    private static String computeScopeKey(String inclusionsFilePath, String exclusionFilePath) throws IOException {
+        return new ContentHash()
+                .update(System.getProperty("java.home"))
+                .updateWithFile(inclusionsFilePath)
+                .updateWithFile(exclusionFilePath)
+                .toHex();
+    }
+
     private void printDebugInfo(ClassHierarchy classHierarchy) {
         Set<IClass> appClasses = StreamSupport.stream(classHierarchy.spliterator(), false)
                 .filter(clazz -> clazz.getClassLoader().getReference().equals(ClassLoaderReference.Application))
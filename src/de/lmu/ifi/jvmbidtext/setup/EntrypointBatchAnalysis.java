@@ -0,0 +1,217 @@
+package de.lmu.ifi.jvmbidtext.setup;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.ipa.callgraph.*;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.slicer.HeapStatement;
+import com.ibm.wala.ipa.slicer.SDG;
+import com.ibm.wala.ipa.slicer.Statement;
+import com.ibm.wala.ipa.slicer.StatementWithInstructionIndex;
+import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.util.graph.Graph;
+import com.ibm.wala.util.graph.GraphSlicer;
+import de.lmu.ifi.jvmbidtext.analysis.IncrementalAnalysis;
+import de.lmu.ifi.jvmbidtext.graph.construction.TypingGraphUtil;
+import de.lmu.ifi.jvmbidtext.utils.AnalysisBudget;
+import de.lmu.ifi.jvmbidtext.utils.PhaseMetrics;
+import de.lmu.ifi.jvmbidtext.utils.SimpleConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Analysis of a batch of entrypoints that share one call graph and one SDG. The TypingGraph of every entrypoint is
+ * built from the part of the shared SDG that is reachable from the entrypoint. Library code reached from multiple
+ * entrypoints is therefore only processed once by the pointer analysis.
+ * <p>
+ * If the shared SDG exceeds the threshold for context-insensitive analysis, the entrypoints of the batch are analyzed
+ * individually by {@link SingleEntryPointAnalysis}.
+ */
+public class EntrypointBatchAnalysis {
+    private static final Logger logger = LogManager.getLogger(EntrypointBatchAnalysis.class);
+
+    private final List<Entrypoint> entrypoints;
+    private final AnalysisScope scope;
+    private final ClassHierarchy classHierarchy;
+    private final AnalysisCache cache;
+    private final AtomicBoolean timeout;
+    private final AnalysisBudget budget;
+    // entrypoints analyzed individually have their own budget
+    private boolean analyzedIndividually = false;
+
+    /**
+     * The batch shares the time budget of all its entrypoints.
+     */
+    public EntrypointBatchAnalysis(List<Entrypoint> entrypoints, AnalysisScope scope, ClassHierarchy classHierarchy,
+                                   AnalysisCache cache, AtomicBoolean timeout) throws IOException {
+        this.entrypoints = entrypoints;
+        this.scope = scope;
+        this.classHierarchy = classHierarchy;
+        this.cache = cache;
+        this.timeout = timeout;
+        this.budget = AnalysisBudget.of(timeout, (long) SimpleConfig.getEntrypointTimeout() * entrypoints.size());
+        try (PhaseMetrics.Phase phase = PhaseMetrics.start("batch",
+                IncrementalAnalysis.signature(entrypoints.getFirst()))) {
+            analyze();
+        } catch (CallGraphBuilderCancelException e) {
+            logger.warn(" * Shared call graph construction canceled: {}", budget.getCancelMessage());
+        }
+        if (!analyzedIndividually && budget.isTimeLimitReached()) {
+            logger.warn(" * Time limit of the batch reached. Results of the entrypoints may be incomplete.");
+            entrypoints.forEach(IncrementalAnalysis::forgetEntrypoint);
+        }
+    }
+
+    /**
+     * Group entrypoints into batches that are analyzed with a shared call graph.
+     *
+     * @param mode         NONE - every entrypoint is its own batch; CLASS - entrypoints declared in the same class share
+     *                     a batch
+     * @param maxBatchSize upper bound for the number of entrypoints in a batch
+     * @return batches in the order of the first entrypoint of each batch; the order of entrypoints is kept
+     */
+    public static List<List<Entrypoint>> group(List<Entrypoint> entrypoints, String mode, int maxBatchSize) {
+        if (!"CLASS".equalsIgnoreCase(mode)) {
+            if (!"NONE".equalsIgnoreCase(mode)) {
+                logger.warn("Unknown entrypoint batching mode {}. Analyze entrypoints individually.", mode);
+            }
+            return entrypoints.stream().map(List::of).toList();
+        }
+        Map<String, List<Entrypoint>> byDeclaringClass = entrypoints.stream()
+                .collect(Collectors.groupingBy(ep -> ep.getMethod().getDeclaringClass().getName().toString(),
+                        LinkedHashMap::new, Collectors.toList()));
+        List<List<Entrypoint>> batches = new ArrayList<>();
+        for (List<Entrypoint> sameClass : byDeclaringClass.values()) {
+            for (int from = 0; from < sameClass.size(); from += Math.max(1, maxBatchSize)) {
+                batches.add(sameClass.subList(from, Math.min(sameClass.size(), from + Math.max(1, maxBatchSize))));
+            }
+        }
+        return batches;
+    }
+
+    private void analyze() throws CallGraphBuilderCancelException, IOException {
+        AnalysisOptions options = new AnalysisOptions(scope, entrypoints);
+        options.setReflectionOptions(AnalysisOptions.ReflectionOptions.FULL);
+
+        if (budget.isExhausted()) {
+            return;
+        }
+        SSAPropagationCallGraphBuilder cgBuilder = Util.makeVanillaNCFABuilder(1, options, cache, classHierarchy);
+        CallGraph cg = SingleEntryPointAnalysis.buildCallGraph(options, cgBuilder, budget);
+        SDG<InstanceKey> sdg = SingleEntryPointAnalysis.buildSDG(cg, cgBuilder);
+        if (sdg.getNumberOfNodes() > SimpleConfig.getThresholdContextInsensitive()) {
+            logger.warn(" * Too big shared SDG ({}). Analyze the {} entrypoints individually.", sdg.getNumberOfNodes(),
+                    entrypoints.size());
+            analyzedIndividually = true;
+            for (Entrypoint entrypoint : entrypoints) {
+                if (timeout.get()) {
+                    return;
+                }
+                new SingleEntryPointAnalysis(entrypoint, scope, classHierarchy, cache, timeout);
+            }
+            return;
+        }
+
+        if (budget.isExhausted()) {
+            return;
+        }
+
+        Graph<Statement> prunedSdg = SingleEntryPointAnalysis.pruneSDG(sdg);
+        for (Entrypoint entrypoint : entrypoints) {
+            if (budget.isExhausted()) {
+                return;
+            }
+            Set<CGNode> reachableNodes = reachableFrom(cg, entrypoint);
+            IncrementalAnalysis.recordReachableMethods(entrypoint, reachableNodes);
+            Predicate<Statement> inSlice = sliceOf(cg, entrypoint, reachableNodes);
+            // the same limit as for an SDG of the entrypoint alone
+            long sliceSize = sdg.stream().filter(inSlice).count();
+            if (sliceSize > SimpleConfig.getThresholdSkipEntrypoint()) {
+                logger.warn(" * Too big SDG ({}) for {}. Ignore it.", sliceSize,
+                        entrypoint.getMethod().getSignature());
+                continue;
+            }
+            Graph<Statement> slice = GraphSlicer.prune(prunedSdg, inSlice);
+            logger.info(" * Build TypingGraph for {} ({} reachable CG nodes)", entrypoint.getMethod().getSignature(),
+                    reachableNodes.size());
+            TypingGraphUtil.buildTypingGraph(entrypoint, slice, cg.getFakeRootNode(), budget);
+        }
+    }
+
+    /**
+     * The statements of the shared SDG that belong to the given entrypoint: the statements of the nodes it reaches,
+     * except the statements of the fake root node that pass values to and from the other entrypoints of the batch.
+     */
+    private Predicate<Statement> sliceOf(CallGraph cg, Entrypoint entrypoint, Set<CGNode> reachableNodes) {
+        Set<MethodReference> otherEntrypointMethods = otherEntrypointMethods(entrypoint);
+        CGNode fakeRoot = cg.getFakeRootNode();
+        return stmt -> {
+            if (!reachableNodes.contains(stmt.getNode())) {
+                return false;
+            }
+            if (!stmt.getNode().equals(fakeRoot)) {
+                return true;
+            }
+            SSAAbstractInvokeInstruction call = getCall(stmt);
+            return call == null || !otherEntrypointMethods.contains(call.getDeclaredTarget());
+        };
+    }
+
+    /**
+     * @return the invocation a statement belongs to, null if the statement is not part of an invocation
+     */
+    private static SSAAbstractInvokeInstruction getCall(Statement stmt) {
+        if (stmt instanceof HeapStatement.HeapParamCaller heapParamCaller) {
+            return heapParamCaller.getCall();
+        } else if (stmt instanceof HeapStatement.HeapReturnCaller heapReturnCaller) {
+            return heapReturnCaller.getCall();
+        } else if (stmt instanceof StatementWithInstructionIndex withInstruction
+                && withInstruction.getInstruction() instanceof SSAAbstractInvokeInstruction invoke) {
+            return invoke;
+        }
+        return null;
+    }
+
+    private Set<MethodReference> otherEntrypointMethods(Entrypoint entrypoint) {
+        return entrypoints.stream()
+                .filter(other -> other != entrypoint)
+                .map(other -> other.getMethod().getReference())
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Collect all CG nodes the given entrypoint reaches. The fake root node invokes all entrypoints of the batch; only
+     * the invocations of the given entrypoint and the remaining synthetic calls (e.g. class initializers) are followed.
+     */
+    private Set<CGNode> reachableFrom(CallGraph cg, Entrypoint entrypoint) {
+        Set<MethodReference> otherEntrypointMethods = otherEntrypointMethods(entrypoint);
+        CGNode fakeRoot = cg.getFakeRootNode();
+        Set<CGNode> reachable = new HashSet<>();
+        Deque<CGNode> worklist = new ArrayDeque<>();
+        reachable.add(fakeRoot);
+        for (Iterator<CallSiteReference> sites = fakeRoot.iterateCallSites(); sites.hasNext(); ) {
+            CallSiteReference site = sites.next();
+            if (otherEntrypointMethods.contains(site.getDeclaredTarget())) {
+                continue;
+            }
+            worklist.addAll(cg.getPossibleTargets(fakeRoot, site));
+        }
+        while (!worklist.isEmpty()) {
+            CGNode node = worklist.removeFirst();
+            if (!reachable.add(node)) {
+                continue;
+            }
+            cg.getSuccNodes(node).forEachRemaining(worklist::add);
+        }
+        return reachable;
+    }
+}
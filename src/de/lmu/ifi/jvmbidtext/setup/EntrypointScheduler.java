@@ -0,0 +1,138 @@
+package de.lmu.ifi.jvmbidtext.setup;
+
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a {@link SingleEntryPointAnalysis} for every entrypoint, or an {@link EntrypointBatchAnalysis} for every batch
+ * of entrypoints if batching is enabled. With more than one worker, the analyses run concurrently on top of the shared,
+ * read-only class hierarchy. Every worker thread uses its own analysis cache because the IR caches of WALA are not
+ * thread-safe.
+ */
+public class EntrypointScheduler {
+    private static final Logger logger = LogManager.getLogger(EntrypointScheduler.class);
+
+    private final List<Entrypoint> entrypoints;
+    private final List<List<Entrypoint>> batches;
+    // position of every entrypoint for the progress log, a lookup in the list per batch is quadratic
+    private final Map<Entrypoint, Integer> indexes = new IdentityHashMap<>();
+    private final ClassHierarchy classHierarchy;
+    private final AnalysisCache cache;
+    private final AtomicBoolean timeout;
+    private final int workers;
+
+    public EntrypointScheduler(List<Entrypoint> entrypoints, ClassHierarchy classHierarchy, AnalysisCache cache,
+                               AtomicBoolean timeout, int workers, String batchingMode, int maxBatchSize) {
+        this.entrypoints = entrypoints;
+        this.batches = EntrypointBatchAnalysis.group(entrypoints, batchingMode, maxBatchSize);
+        for (int i = 0; i < entrypoints.size(); i++) {
+            indexes.putIfAbsent(entrypoints.get(i), i);
+        }
+        this.classHierarchy = classHierarchy;
+        this.cache = cache;
+        this.timeout = timeout;
+        this.workers = Math.max(1, Math.min(workers, batches.size()));
+    }
+
+    public void run() throws Exception {
+        if (batches.size() < entrypoints.size()) {
+            logger.info("Grouped {} entrypoints into {} batches", entrypoints.size(), batches.size());
+        }
+        if (workers == 1) {
+            for (List<Entrypoint> batch : batches) {
+                analyzeBatch(batch, cache);
+            }
+            return;
+        }
+
+        logger.info("Analyze {} entrypoints with {} workers", entrypoints.size(), workers);
+        ThreadLocal<AnalysisCache> workerCaches = ThreadLocal.withInitial(AnalysisCacheImpl::new);
+        ExecutorService executor = Executors.newFixedThreadPool(workers, new WorkerThreadFactory());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (List<Entrypoint> batch : batches) {
+                futures.add(executor.submit(() -> {
+                    analyzeBatch(batch, workerCaches.get());
+                    return null;
+                }));
+            }
+            awaitAll(futures);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void analyzeBatch(List<Entrypoint> batch, AnalysisCache workerCache) throws Exception {
+        if (timeout.get()) {
+            return;
+        }
+        int index = indexes.get(batch.getFirst());
+        if (batch.size() == 1) {
+            logger.info("Process entrypoint ({}/{}) {}", index + 1, entrypoints.size(),
+                    batch.getFirst().getMethod().getSignature());
+            new SingleEntryPointAnalysis(batch.getFirst(), classHierarchy.getScope(), classHierarchy, workerCache,
+                    timeout);
+        } else {
+            logger.info("Process batch of {} entrypoints starting at ({}/{}) {}", batch.size(), index + 1,
+                    entrypoints.size(), batch.getFirst().getMethod().getSignature());
+            new EntrypointBatchAnalysis(batch, classHierarchy.getScope(), classHierarchy, workerCache, timeout);
+        }
+        // for now the analyses dump their results to static util class AnalysisUtil
+    }
+
+    /**
+     * Wait for all entrypoint analyses in the order of the entrypoints. The first failure is rethrown like in the
+     * sequential case. An interrupt (e.g. by the timeout of the whole analysis) is translated into the timeout flag so
+     * that running analyses wind down and the results found so far can still be reported.
+     */
+    private void awaitAll(List<Future<?>> futures) throws Exception {
+        boolean interrupted = false;
+        try {
+            for (Future<?> future : futures) {
+                while (true) {
+                    try {
+                        future.get();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                        timeout.set(true);
+                    } catch (ExecutionException e) {
+                        // stop the remaining analyses, the whole analysis fails like in the sequential case
+                        timeout.set(true);
+                        if (e.getCause() instanceof Exception cause) {
+                            throw cause;
+                        }
+                        throw e;
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "entrypoint-worker-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
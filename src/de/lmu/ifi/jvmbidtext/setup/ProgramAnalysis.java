@@ -6,10 +6,16 @@ import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.cha.ClassHierarchy;
 import de.lmu.ifi.jvmbidtext.analysis.AnalysisUtil;
+import de.lmu.ifi.jvmbidtext.analysis.IncrementalAnalysis;
+import de.lmu.ifi.jvmbidtext.analysis.TextAnalysis;
+import de.lmu.ifi.jvmbidtext.graph.construction.TypingGraphUtil;
+import de.lmu.ifi.jvmbidtext.utils.PhaseMetrics;
+import de.lmu.ifi.jvmbidtext.utils.SimpleConfig;
 import de.lmu.ifi.jvmbidtext.utils.WalaUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -37,40 +43,62 @@ public class ProgramAnalysis implements Callable<ProgramAnalysis> {
 
     @Override
     public ProgramAnalysis call() throws Exception {
-        initialize();
-        analyze();
+        // results of a previous analysis in the same JVM, e.g. in the in-process suite mode
+        AnalysisUtil.reset();
+        TypingGraphUtil.entry2Fields.clear();
+        PhaseMetrics.reset();
+        try (PhaseMetrics.Phase phase = PhaseMetrics.start("analysis")) {
+            initialize();
+            analyze();
+        } finally {
+            PhaseMetrics.write(AnalysisUtil.getReportFolder());
+        }
         return this;
     }
 
     private void initialize() throws Exception {
+        // load the models of the negation detection while the call graphs are built if the sink reports will need them
+        TextAnalysis.preloadModels();
         cache = new AnalysisCacheImpl();
         CustomClassHierarchyFactory customClassHierarchyFactory =                new CustomClassHierarchyFactory();
-        classHierarchy = customClassHierarchyFactory.make(pathToJarOrClassesRootFolder, cache);
+        try (PhaseMetrics.Phase phase = PhaseMetrics.start("class_hierarchy")) {
+            classHierarchy = customClassHierarchyFactory.make(pathToJarOrClassesRootFolder, cache);
+        }
         Optional<Set<IMethod>> springControllerHandlerMethods =
                 customClassHierarchyFactory.getSpringControllerHandlerMethods();
         WalaUtil.setClassHierarchy(classHierarchy);
 
-        entrypoints = EntrypointDiscovery.discover(classHierarchy, springControllerHandlerMethods);
+        try (PhaseMetrics.Phase phase = PhaseMetrics.start("entrypoint_discovery")) {
+            entrypoints = EntrypointDiscovery.discover(classHierarchy, springControllerHandlerMethods);
+        }
         logger.info("Entrypoints: " + entrypoints);
     }
 
     private void analyze() throws Exception {
-        int entrypointCounter = 1;
+        // fixed order of entrypoints; results do not depend on the order in which concurrent analyses complete
+        List<Entrypoint> orderedEntrypoints = entrypoints.stream()
+                .filter(entrypoint -> DEBUG___ONLY_ANALYZE_THIS_ENTRYPOINT == null ||
+                        entrypoint.getMethod().getName().toString().equals(DEBUG___ONLY_ANALYZE_THIS_ENTRYPOINT))
+                .toList();
+        AnalysisUtil.registerEntrypointOrder(orderedEntrypoints);
+        List<Entrypoint> entrypointsToAnalyze =
+                IncrementalAnalysis.selectEntrypointsToAnalyze(orderedEntrypoints, classHierarchy);
 
-        for (Entrypoint entrypoint : entrypoints) {
-            if (DEBUG___ONLY_ANALYZE_THIS_ENTRYPOINT != null &&
-                    !entrypoint.getMethod().getName().toString().equals(DEBUG___ONLY_ANALYZE_THIS_ENTRYPOINT)) {
-                continue;
+        try (PhaseMetrics.Phase phase = PhaseMetrics.start("entrypoints")) {
+            // the results of entrypoints that share a field with an analyzed entrypoint cannot be reused
+            while (!entrypointsToAnalyze.isEmpty() && !taskTimeout.get()) {
+                new EntrypointScheduler(entrypointsToAnalyze, classHierarchy, cache, taskTimeout,
+                        SimpleConfig.getEntrypointWorkers(), SimpleConfig.getEntrypointBatching(),
+                        SimpleConfig.getMaxEntrypointsPerBatch()).run();
+                entrypointsToAnalyze = IncrementalAnalysis.selectEntrypointsSharingFields();
             }
-            String entrypointSignature = entrypoint.getMethod().getSignature();
-            logger.info("Process entrypoint ({}/{}) {}", entrypointCounter, entrypoints.size(), entrypointSignature);
-            entrypointCounter++;
-            SingleEntryPointAnalysis epAnalysis =
-                    new SingleEntryPointAnalysis(entrypoint, classHierarchy.getScope(), classHierarchy, cache,
-                            taskTimeout);
-            // for now SingleEntryPointAnalysis dumps its results to static util class AnalysisUtil
         }
 
-        AnalysisUtil.dumpTextForSinks();
+        try (PhaseMetrics.Phase phase = PhaseMetrics.start("sink_dump")) {
+            AnalysisUtil.dumpTextForSinks();
+        }
+        if (!taskTimeout.get()) {
+            IncrementalAnalysis.save();
+        }
     }
 }
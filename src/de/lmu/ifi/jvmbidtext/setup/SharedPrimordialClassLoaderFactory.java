@@ -0,0 +1,57 @@
+package de.lmu.ifi.jvmbidtext.setup;
+
+import com.ibm.wala.classLoader.ClassLoaderFactoryImpl;
+import com.ibm.wala.classLoader.IClassLoader;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.config.SetOfClasses;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class loader factory that loads the primordial and extension classes only once per JVM. The loaders are shared by
+ * all class hierarchies built with this factory; the application loader is created for every class hierarchy on top of
+ * the shared loaders. This saves parsing the JDK for every target of a test suite that is analyzed in-process.
+ * <p>
+ * Classes of the shared loaders keep a reference to the class hierarchy they were loaded for first. This is fine as
+ * long as all class hierarchies use the same inclusions and exclusions, since JDK classes only refer to JDK classes.
+ * The loaders are therefore only shared between class hierarchies with the same scope key.
+ */
+public class SharedPrimordialClassLoaderFactory extends ClassLoaderFactoryImpl {
+
+    private static final Map<LoaderKey, IClassLoader> SHARED_LOADERS = new HashMap<>();
+
+    private final String scopeKey;
+
+    /**
+     * @param scopeKey identifies the inclusions and exclusions of the scope, e.g. a hash of the scope files
+     */
+    public SharedPrimordialClassLoaderFactory(SetOfClasses exclusions, String scopeKey) {
+        super(exclusions);
+        this.scopeKey = scopeKey;
+    }
+
+    @Override
+    public IClassLoader getLoader(ClassLoaderReference classLoaderReference, IClassHierarchy cha,
+                                  AnalysisScope scope) throws IOException {
+        if (!classLoaderReference.equals(ClassLoaderReference.Primordial) &&
+                !classLoaderReference.equals(ClassLoaderReference.Extension)) {
+            return super.getLoader(classLoaderReference, cha, scope);
+        }
+        LoaderKey key = new LoaderKey(classLoaderReference, scopeKey);
+        synchronized (SHARED_LOADERS) {
+            IClassLoader loader = SHARED_LOADERS.get(key);
+            if (loader == null) {
+                loader = super.getLoader(classLoaderReference, cha, scope);
+                SHARED_LOADERS.put(key, loader);
+            }
+            return loader;
+        }
+    }
+
+    private record LoaderKey(ClassLoaderReference classLoaderReference, String scopeKey) {
+    }
+}
@@ -15,7 +15,10 @@ import com.ibm.wala.ssa.SSAInstruction;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.util.graph.Graph;
 import com.ibm.wala.util.graph.GraphSlicer;
+import de.lmu.ifi.jvmbidtext.analysis.IncrementalAnalysis;
 import de.lmu.ifi.jvmbidtext.graph.construction.TypingGraphUtil;
+import de.lmu.ifi.jvmbidtext.utils.AnalysisBudget;
+import de.lmu.ifi.jvmbidtext.utils.PhaseMetrics;
 import de.lmu.ifi.jvmbidtext.utils.SimpleConfig;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -32,63 +35,94 @@ public class SingleEntryPointAnalysis {
     private final AnalysisScope scope;
     private final ClassHierarchy classHierarchy;
     private final AnalysisCache cache;
-    private final AtomicBoolean timeout;
+    private final AnalysisBudget budget;
     private final Entrypoint entrypoint;
-    private CallGraph cg;
 
     public SingleEntryPointAnalysis(Entrypoint ep, AnalysisScope scope, ClassHierarchy classHierarchy,
-                                    AnalysisCache cache, AtomicBoolean timeout) throws
-            CallGraphBuilderCancelException, IOException {
+                                    AnalysisCache cache, AtomicBoolean timeout) throws IOException {
         this.entrypoint = ep;
         this.scope = scope;
         this.classHierarchy = classHierarchy;
         this.cache = cache;
-        this.timeout = timeout;
-        analyze(); // TODO use futures
+        this.budget = AnalysisBudget.of(timeout, SimpleConfig.getEntrypointTimeout());
+        try (PhaseMetrics.Phase phase = PhaseMetrics.start("entrypoint", IncrementalAnalysis.signature(ep))) {
+            analyze(); // TODO use futures
+        } catch (CallGraphBuilderCancelException e) {
+            logger.warn(" * Call graph construction canceled: {}", budget.getCancelMessage());
+        }
+        if (budget.isTimeLimitReached()) {
+            logger.warn(" * Time limit of {} seconds reached. Results of the entrypoint may be incomplete.",
+                    SimpleConfig.getEntrypointTimeout());
+            IncrementalAnalysis.forgetEntrypoint(ep);
+        }
     }
 
     private void analyze() throws CallGraphBuilderCancelException, IOException {
         AnalysisOptions options = new AnalysisOptions(scope, Set.of(entrypoint));
         options.setReflectionOptions(AnalysisOptions.ReflectionOptions.FULL);
 
-        if (timeout.get()) {
+        if (budget.isExhausted()) {
             return;
         }
         SSAPropagationCallGraphBuilder cgBuilder = Util.makeVanillaNCFABuilder(1, options, cache, classHierarchy);
-        SDG<InstanceKey> sdg = buildSDG(options, cgBuilder);
+        CallGraph cg = buildCallGraph(options, cgBuilder, budget);
+        SDG<InstanceKey> sdg = buildSDG(cg, cgBuilder);
         if (sdg.getNumberOfNodes() > SimpleConfig.getThresholdSkipEntrypoint()) {
             logger.warn(" * Too big SDG ({}). Ignore it.", sdg.getNumberOfNodes());
+            IncrementalAnalysis.recordReachableMethods(entrypoint, cg);
             return;
         } else if (sdg.getNumberOfNodes() > SimpleConfig.getThresholdContextInsensitive()) {
             logger.warn(" * Too big SDG ({}). Use context-insensitive builder.", sdg.getNumberOfNodes());
-            if (timeout.get()) {
+            if (budget.isExhausted()) {
                 return;
             }
             cgBuilder = Util.makeVanillaZeroOneCFABuilder(Language.JAVA, options, cache, classHierarchy);
-            sdg = buildSDG(options, cgBuilder);
+            cg = buildCallGraph(options, cgBuilder, budget);
+            sdg = buildSDG(cg, cgBuilder);
         }
+        IncrementalAnalysis.recordReachableMethods(entrypoint, cg);
 
-        if (timeout.get()) {
+        if (budget.isExhausted()) {
             return;
         }
 
         Graph<Statement> prunedSdg = pruneSDG(sdg);
 
         logger.info(" * Build TypingGraph");
-        TypingGraphUtil.buildTypingGraph(entrypoint, prunedSdg, cg.getFakeRootNode(), timeout);
+        TypingGraphUtil.buildTypingGraph(entrypoint, prunedSdg, cg.getFakeRootNode(), budget);
     }
 
-    private SDG<InstanceKey> buildSDG(AnalysisOptions options, SSAPropagationCallGraphBuilder cgBuilder) throws
-            CallGraphBuilderCancelException {
+    /**
+     * @throws CallGraphBuilderCancelException if the budget is exhausted during the construction
+     */
+    public static CallGraph buildCallGraph(AnalysisOptions options, SSAPropagationCallGraphBuilder cgBuilder,
+                                           AnalysisBudget budget) throws CallGraphBuilderCancelException {
         logger.info(" * Build CallGraph");
-        cg = cgBuilder.makeCallGraph(options, null);
-        logger.info(" * CG size: {}", CallGraphStats.getStats(cg));
+        try (PhaseMetrics.Phase phase = PhaseMetrics.start("call_graph")) {
+            CallGraph cg = cgBuilder.makeCallGraph(options, budget);
+            logger.info(" * CG size: {}", CallGraphStats.getStats(cg));
+            return cg;
+        }
+    }
+
+    public static SDG<InstanceKey> buildSDG(CallGraph cg, SSAPropagationCallGraphBuilder cgBuilder) {
         logger.info(" * Build SDG");
-        return new SDG<>(cg, cgBuilder.getPointerAnalysis(), Slicer.DataDependenceOptions.NO_BASE_NO_EXCEPTIONS,
-                Slicer.ControlDependenceOptions.NONE);
+        try (PhaseMetrics.Phase phase = PhaseMetrics.start("sdg")) {
+            SDG<InstanceKey> sdg = new SDG<>(cg, cgBuilder.getPointerAnalysis(),
+                    Slicer.DataDependenceOptions.NO_BASE_NO_EXCEPTIONS, Slicer.ControlDependenceOptions.NONE);
+            // the SDG is built lazily; counting the nodes builds it completely within the phase
+            sdg.getNumberOfNodes();
+            return sdg;
+        }
+    }
+
+    public static Graph<Statement> pruneSDG(Graph<Statement> sdg) {
+        try (PhaseMetrics.Phase phase = PhaseMetrics.start("prune")) {
+            return prune(sdg);
+        }
     }
 
-    private Graph<Statement> pruneSDG(Graph<Statement> sdg) {
+    private static Graph<Statement> prune(Graph<Statement> sdg) {
         logger.info(" * SDG size before pruning: {}", sdg.getNumberOfNodes());
 //        dumpSDG(sdg);
         Graph<Statement> prunedSdg = GraphSlicer.prune(sdg, t -> {
@@ -160,7 +194,7 @@ public class SingleEntryPointAnalysis {
         return prunedSdg;
     }
 
-    private void dumpSDG(Graph<Statement> graph) {
+    private static void dumpSDG(Graph<Statement> graph) {
         Map<CGNode, Long> occurrencesOfNodes =
                 graph.stream().collect(Collectors.groupingBy(Statement::getNode, Collectors.counting()));
         logger.debug("************** SDG DUMP START ****************");
@@ -0,0 +1,90 @@
+package de.lmu.ifi.jvmbidtext.setup.spring;
+
+import de.lmu.ifi.jvmbidtext.utils.ContentHash;
+import de.lmu.ifi.jvmbidtext.utils.SimpleConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache for the jar file with simulated dependency injection that is produced by {@link IocInjector}. The
+ * cache key is a content hash of the analyzed application, the scope files and the JDK. On a cache hit, the
+ * intermediate class hierarchy, the annotation scan on it and the instrumentation pass can be skipped, so the class
+ * hierarchy is only built once from the cached jar file.
+ * <p>
+ * The cache is disabled if no cache directory is configured.
+ */
+public class InstrumentedJarCache {
+    private static final Logger logger = LogManager.getLogger(InstrumentedJarCache.class);
+
+    // increment if the instrumentation changes so that stale jar files are no longer used
+    private static final String FORMAT_VERSION = "1";
+
+    public static boolean isEnabled() throws IOException {
+        String cacheDir = SimpleConfig.getInstrumentedJarCacheDir();
+        return cacheDir != null && !cacheDir.isBlank();
+    }
+
+    /**
+     * @return key identifying the content of the given jar file or class folder together with the scope of the
+     * analysis
+     */
+    public static String computeKey(String pathToJarOrClassesRootFolder) throws IOException {
+        ContentHash hash = new ContentHash()
+                .update(FORMAT_VERSION)
+                .update(System.getProperty("java.home"))
+                .update(System.getProperty("java.version"))
+                .updateWithFile(SimpleConfig.getInclusionsFile())
+                .updateWithFile(SimpleConfig.getExclusionsFile());
+
+        Path input = Paths.get(pathToJarOrClassesRootFolder);
+        if (Files.isDirectory(input)) {
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(input)) {
+                files = walk.filter(Files::isRegularFile).sorted().toList();
+            }
+            for (Path file : files) {
+                hash.update(input.relativize(file).toString().replace('\\', '/'));
+                hash.updateWithContent(file);
+            }
+        } else {
+            hash.updateWithContent(input);
+        }
+        return hash.toHex();
+    }
+
+    public static Optional<String> lookup(String key) throws IOException {
+        Path cachedJar = cachedJarPath(key);
+        if (Files.isRegularFile(cachedJar)) {
+            logger.info("Use cached instrumented jar {}", cachedJar);
+            return Optional.of(cachedJar.toString());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Copy the instrumented jar file into the cache. The file is moved into place atomically so that concurrent runs
+     * never see a partially written jar file.
+     */
+    public static void store(String key, String instrumentedJarPath) throws IOException {
+        Path cachedJar = cachedJarPath(key);
+        Files.createDirectories(cachedJar.getParent());
+        Path tmp = Files.createTempFile(cachedJar.getParent(), key, ".tmp");
+        try {
+            Files.copy(Paths.get(instrumentedJarPath), tmp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmp, cachedJar, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            logger.info("Stored instrumented jar in cache {}", cachedJar);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static Path cachedJarPath(String key) throws IOException {
+        return Paths.get(SimpleConfig.getInstrumentedJarCacheDir(), key + ".jar");
+    }
+}
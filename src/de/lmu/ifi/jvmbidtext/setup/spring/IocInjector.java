@@ -19,25 +19,30 @@ import de.lmu.ifi.jvmbidtext.utils.SimpleConfig;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Optional;
 import java.util.Set;
 
 public class IocInjector {
 
-    private static final String INSTRUMENTED_JAR_FILE_NAME = "bidtext-simulated-ioc.jar";
+    private static final String INSTRUMENTED_JAR_FILE_NAME = "bidtext-simulated-ioc";
 
+    // one jar file per process, analyses of a test suite run concurrently
     private static String getOutputJarPath() {
         String tmpDir = System.getProperty("java.io.tmpdir");
-        return tmpDir + File.separator + INSTRUMENTED_JAR_FILE_NAME;
+        return tmpDir + File.separator + INSTRUMENTED_JAR_FILE_NAME + "-" + ProcessHandle.current().pid() + ".jar";
     }
 
     public static ClassHierarchy buildAdaptedClassHierarchy(CustomClassHierarchyFactory customClassHierarchyFactory,
                                                             String pathToJarOrClassesRootFolder,
                                                             AnnotationFinder annotationFinder, AnalysisScope scope,
-                                                            AnalysisCache cache) throws InvalidClassFileException,
-            IOException, ClassHierarchyException {
+                                                            AnalysisCache cache, Optional<String> cacheKey) throws
+            InvalidClassFileException, IOException, ClassHierarchyException {
 
 
         initializeAutowiredFields(pathToJarOrClassesRootFolder, annotationFinder);
+        if (cacheKey.isPresent()) {
+            InstrumentedJarCache.store(cacheKey.get(), getOutputJarPath());
+        }
 
         // To model der Spring functionality, we load the class hierarchy twice.
         // The intermediate class hierarchy is no longer needed at this point
@@ -45,7 +50,19 @@ public class IocInjector {
             System.gc();
         }
 
-        return buildAdaptedClassHierarchyFromInstrumentedJarFile(customClassHierarchyFactory, scope, cache);
+        try {
+            return buildAdaptedClassHierarchyFromInstrumentedJarFile(customClassHierarchyFactory, scope, cache);
+        } finally {
+            deleteOutputJar();
+        }
+    }
+
+    // the class hierarchy keeps the jar file open, where an open file cannot be deleted it is deleted on exit
+    private static void deleteOutputJar() {
+        File outputJar = new File(getOutputJarPath());
+        if (!outputJar.delete() && outputJar.exists()) {
+            outputJar.deleteOnExit();
+        }
     }
 
     private static ClassHierarchy buildAdaptedClassHierarchyFromInstrumentedJarFile(
@@ -54,6 +71,16 @@ public class IocInjector {
         ClassHierarchy adjustedClassHierarchy = customClassHierarchyFactory.make(getOutputJarPath(), cache, false);
         AnnotationFinder annotationFinder = new AnnotationFinder(adjustedClassHierarchy);
         annotationFinder.processClasses();
+        return addIocContainerClass(adjustedClassHierarchy, annotationFinder, scope, cache);
+    }
+
+    /**
+     * Add the model of the Spring IOC container to a class hierarchy that was built from an instrumented jar file.
+     * Used directly if the instrumented jar file is taken from the {@link InstrumentedJarCache}.
+     */
+    public static ClassHierarchy addIocContainerClass(ClassHierarchy adjustedClassHierarchy,
+                                                      AnnotationFinder annotationFinder, AnalysisScope scope,
+                                                      AnalysisCache cache) {
         AnalysisOptions options = new AnalysisOptions(scope, Set.of());
         options.setReflectionOptions(AnalysisOptions.ReflectionOptions.FULL);
         IocContainerClass springIOCModel =
@@ -0,0 +1,78 @@
+package de.lmu.ifi.jvmbidtext.utils;
+
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Time budget of the analysis of an entrypoint (or a batch of entrypoints). The budget is exhausted if the timeout of
+ * the whole analysis is reached or if the time limit of the entrypoint is over. Long-running loops poll
+ * {@link #isExhausted()} to stop cooperatively. The budget is also the progress monitor of the call graph construction,
+ * so WALA cancels the construction of the call graph with a {@link com.ibm.wala.util.CancelException}.
+ */
+public class AnalysisBudget implements IProgressMonitor {
+    private final AtomicBoolean timeout;
+    private final long deadlineNanos;
+    private final boolean limited;
+    private volatile boolean canceled;
+
+    private AnalysisBudget(AtomicBoolean timeout, long limitSeconds) {
+        this.timeout = timeout;
+        this.limited = limitSeconds > 0;
+        this.deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(0, limitSeconds));
+    }
+
+    /**
+     * @param limitSeconds time limit starting now, 0 or less for no limit besides the timeout of the whole analysis
+     */
+    public static AnalysisBudget of(AtomicBoolean timeout, long limitSeconds) {
+        return new AnalysisBudget(timeout, limitSeconds);
+    }
+
+    public static AnalysisBudget unlimited() {
+        return new AnalysisBudget(new AtomicBoolean(false), 0);
+    }
+
+    public boolean isExhausted() {
+        return canceled || timeout.get() || isTimeLimitReached();
+    }
+
+    /**
+     * @return true if the time limit of this budget was reached, as opposed to the timeout of the whole analysis
+     */
+    public boolean isTimeLimitReached() {
+        return limited && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    @Override
+    public void beginTask(String task, int totalWork) {
+    }
+
+    @Override
+    public void subTask(String subTask) {
+    }
+
+    @Override
+    public void cancel() {
+        canceled = true;
+    }
+
+    @Override
+    public boolean isCanceled() {
+        return isExhausted();
+    }
+
+    @Override
+    public void done() {
+    }
+
+    @Override
+    public void worked(int units) {
+    }
+
+    @Override
+    public String getCancelMessage() {
+        return isTimeLimitReached() ? "entrypoint time limit reached" : "analysis timeout";
+    }
+}
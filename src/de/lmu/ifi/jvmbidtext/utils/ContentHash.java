@@ -0,0 +1,70 @@
+package de.lmu.ifi.jvmbidtext.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 over a sequence of strings and file contents. Every element is terminated so that different sequences of
+ * elements do not produce the same hash.
+ */
+public class ContentHash {
+    private final MessageDigest digest;
+
+    public ContentHash() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not available", e);
+        }
+    }
+
+    public ContentHash update(String value) {
+        digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        return this;
+    }
+
+    /**
+     * Hash the content of a file given by its path. Like the analysis scope files, the file is looked up on the class
+     * path if it does not exist in the file system. If it cannot be found at all, only the path is hashed.
+     */
+    public ContentHash updateWithFile(String path) throws IOException {
+        if (path == null) {
+            return update(null);
+        }
+        Path file = Paths.get(path);
+        if (Files.isRegularFile(file)) {
+            return updateWithContent(file);
+        }
+        InputStream resource = ContentHash.class.getClassLoader().getResourceAsStream(path);
+        if (resource == null) {
+            return update(path);
+        }
+        return updateWithContent(resource);
+    }
+
+    public ContentHash updateWithContent(Path file) throws IOException {
+        return updateWithContent(Files.newInputStream(file));
+    }
+
+    private ContentHash updateWithContent(InputStream content) throws IOException {
+        try (InputStream in = new DigestInputStream(content, digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        digest.update((byte) 0);
+        return this;
+    }
+
+    public String toHex() {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
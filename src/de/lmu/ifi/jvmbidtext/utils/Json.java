@@ -0,0 +1,37 @@
+package de.lmu.ifi.jvmbidtext.utils;
+
+/**
+ * Minimal helpers for the JSON files written by the analysis (metrics and reports), which are written by hand to avoid
+ * a JSON library.
+ */
+public class Json {
+    private Json() {
+    }
+
+    /**
+     * @return the value as a quoted and escaped JSON string, or null
+     */
+    public static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder escaped = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> escaped.append("\\\"");
+                case '\\' -> escaped.append("\\\\");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                case '\t' -> escaped.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        escaped.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        escaped.append(c);
+                    }
+                }
+            }
+        }
+        return escaped.append('"').toString();
+    }
+}
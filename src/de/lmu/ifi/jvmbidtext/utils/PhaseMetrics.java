@@ -0,0 +1,210 @@
+package de.lmu.ifi.jvmbidtext.utils;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Wall time, CPU time and allocated bytes of the phases of an analysis. A phase is measured on the thread that runs it:
+ * <pre>
+ * try (PhaseMetrics.Phase phase = PhaseMetrics.start("call_graph")) {
+ *     ...
+ * }
+ * </pre>
+ * Phases can be nested; a nested phase without an explicit subject (usually the entrypoint signature) inherits the
+ * subject of the enclosing phase on the same thread. CPU time and allocated bytes only count the thread of the phase,
+ * so they stay meaningful if entrypoints are analyzed concurrently. The peak heap is the JVM-wide peak of the used heap
+ * since the analysis started up to the end of the phase; a phase that raises it is the one that needed the memory. The
+ * used heap is highest right before a garbage collection, so the peak is taken from the heap usage before every
+ * collection and from the heap usage at the end of every phase.
+ * <p>
+ * The metrics are written as JSON and CSV next to the reports.
+ */
+public class PhaseMetrics {
+    private static final Logger logger = LogManager.getLogger(PhaseMetrics.class);
+
+    public static final String JSON_FILE_NAME = "phase-metrics.json";
+    public static final String CSV_FILE_NAME = "phase-metrics.csv";
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+    private static final AtomicLong PEAK_HEAP_BYTES = new AtomicLong();
+    private static final Queue<PhaseRecord> RECORDS = new ConcurrentLinkedQueue<>();
+    private static final ThreadLocal<Phase> CURRENT = new ThreadLocal<>();
+    private static volatile long origin = System.nanoTime();
+
+    static {
+        Set<String> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .map(MemoryPoolMXBean::getName)
+                .collect(Collectors.toSet());
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter emitter) {
+                emitter.addNotificationListener((notification, handback) -> recordHeapBeforeGc(notification, heapPools),
+                        null, null);
+            }
+        }
+    }
+
+    private static void recordHeapBeforeGc(Notification notification, Set<String> heapPools) {
+        if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+            return;
+        }
+        Map<String, MemoryUsage> beforeGc = GarbageCollectionNotificationInfo
+                .from((CompositeData) notification.getUserData()).getGcInfo().getMemoryUsageBeforeGc();
+        long used = beforeGc.entrySet().stream()
+                .filter(pool -> heapPools.contains(pool.getKey()))
+                .mapToLong(pool -> pool.getValue().getUsed())
+                .sum();
+        PEAK_HEAP_BYTES.accumulateAndGet(used, Math::max);
+    }
+
+    /**
+     * Forget the metrics of a previous analysis in this JVM, including its peak heap.
+     */
+    public static void reset() {
+        RECORDS.clear();
+        origin = System.nanoTime();
+        PEAK_HEAP_BYTES.set(MEMORY.getHeapMemoryUsage().getUsed());
+    }
+
+    public static Phase start(String name) {
+        Phase enclosing = CURRENT.get();
+        return start(name, enclosing != null ? enclosing.subject : null);
+    }
+
+    public static Phase start(String name, String subject) {
+        return new Phase(name, subject);
+    }
+
+    public static List<PhaseRecord> getRecords() {
+        List<PhaseRecord> records = new ArrayList<>(RECORDS);
+        records.sort(Comparator.comparingLong(PhaseRecord::startMillis));
+        return records;
+    }
+
+    /**
+     * Write the metrics of all completed phases to the given folder.
+     */
+    public static void write(String folder) {
+        List<PhaseRecord> records = getRecords();
+        try {
+            Files.createDirectories(Path.of(folder));
+            writeJson(Path.of(folder, JSON_FILE_NAME), records);
+            writeCsv(Path.of(folder, CSV_FILE_NAME), records);
+            logger.info("Wrote metrics of {} phases to {}", records.size(), folder);
+        } catch (IOException e) {
+            logger.error("Failed to write phase metrics: {}", e.getMessage());
+        }
+    }
+
+    private static void writeJson(Path file, List<PhaseRecord> records) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+            writer.println("[");
+            for (int i = 0; i < records.size(); i++) {
+                PhaseRecord record = records.get(i);
+                writer.print("  {\"phase\": " + Json.quote(record.phase()) +
+                        ", \"subject\": " + Json.quote(record.subject()) +
+                        ", \"thread\": " + Json.quote(record.thread()) +
+                        ", \"start_ms\": " + record.startMillis() +
+                        ", \"wall_ms\": " + record.wallMillis() +
+                        ", \"cpu_ms\": " + record.cpuMillis() +
+                        ", \"allocated_bytes\": " + record.allocatedBytes() +
+                        ", \"peak_heap_bytes\": " + record.peakHeapBytes() + "}");
+                writer.println(i < records.size() - 1 ? "," : "");
+            }
+            writer.println("]");
+        }
+    }
+
+    private static void writeCsv(Path file, List<PhaseRecord> records) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+            writer.println("phase,subject,thread,start_ms,wall_ms,cpu_ms,allocated_bytes,peak_heap_bytes");
+            for (PhaseRecord record : records) {
+                writer.println(String.join(",", csvField(record.phase()), csvField(record.subject()),
+                        csvField(record.thread()), String.valueOf(record.startMillis()),
+                        String.valueOf(record.wallMillis()), String.valueOf(record.cpuMillis()),
+                        String.valueOf(record.allocatedBytes()), String.valueOf(record.peakHeapBytes())));
+            }
+        }
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        // signatures contain commas
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static long currentThreadCpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemorySupported()
+                && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    private static long peakHeapBytes() {
+        return PEAK_HEAP_BYTES.accumulateAndGet(MEMORY.getHeapMemoryUsage().getUsed(), Math::max);
+    }
+
+    /**
+     * A running phase, completed by {@link #close()} on the thread that started it.
+     */
+    public static final class Phase implements AutoCloseable {
+        private final String name;
+        private final String subject;
+        private final Phase enclosing;
+        private final long startNanos;
+        private final long startCpuNanos;
+        private final long startAllocatedBytes;
+
+        private Phase(String name, String subject) {
+            this.name = name;
+            this.subject = subject;
+            this.enclosing = CURRENT.get();
+            CURRENT.set(this);
+            startNanos = System.nanoTime();
+            startCpuNanos = currentThreadCpuTime();
+            startAllocatedBytes = currentThreadAllocatedBytes();
+        }
+
+        @Override
+        public void close() {
+            long endNanos = System.nanoTime();
+            long endCpuNanos = currentThreadCpuTime();
+            long endAllocatedBytes = currentThreadAllocatedBytes();
+            CURRENT.set(enclosing);
+            RECORDS.add(new PhaseRecord(name, subject, Thread.currentThread().getName(),
+                    (startNanos - origin) / 1_000_000, (endNanos - startNanos) / 1_000_000,
+                    startCpuNanos < 0 ? -1 : (endCpuNanos - startCpuNanos) / 1_000_000,
+                    startAllocatedBytes < 0 ? -1 : endAllocatedBytes - startAllocatedBytes, peakHeapBytes()));
+        }
+    }
+
+    /**
+     * @param cpuMillis      -1 if the JVM does not support measuring the CPU time of threads
+     * @param allocatedBytes -1 if the JVM does not support measuring the allocations of threads
+     */
+    public record PhaseRecord(String phase, String subject, String thread, long startMillis, long wallMillis,
+                              long cpuMillis, long allocatedBytes, long peakHeapBytes) {
+    }
+}
@@ -12,7 +12,7 @@ import java.util.Set;
 public class SimpleConfig {
     private static final Logger logger = LogManager.getLogger(SimpleConfig.class);
 
-    private static final String PROPERTIES = "res/Config.properties";
+    public static final String PROPERTIES = "res/Config.properties";
 
     private static boolean configParsed = false;
     private static String inclusionsFile;
@@ -30,10 +30,27 @@ public class SimpleConfig {
     private static boolean useAnyMethodWithPrefixAsEntrypoint;
     private static boolean useWorkaroundForAbstract;
     private static int timeout;
+    private static int entrypointTimeout;
     private static int thresholdContextInsensitive;
     private static int thresholdSkipEntrypoint;
+    private static String propagationOrder;
+    private static boolean collapseEqCycles;
+    private static int propagationThreads;
+    private static String reportFormat;
+    private static int textClassificationCacheSize;
+    private static String negationDetection;
+    private static int reportWorkers;
+    private static int entrypointWorkers;
+    private static String entrypointBatching;
+    private static int maxEntrypointsPerBatch;
+    private static String instrumentedJarCacheDir;
+    private static String incrementalStateFile;
+    private static String suiteMode;
+    private static int suiteWorkers;
+    private static String suiteJobMaxHeap;
+    private static int suiteJobTimeout;
 
-    private static void parseConfig() throws IOException {
+    private static synchronized void parseConfig() throws IOException {
         if (configParsed) {
             return;
         }
@@ -55,8 +72,25 @@ public class SimpleConfig {
         useAnyMethodWithPrefixAsEntrypoint = Boolean.parseBoolean(prop.getProperty("USE_ANY_METHOD_WITH_PREFIX_AS_ENTRYPOINT"));
         useWorkaroundForAbstract = Boolean.parseBoolean(prop.getProperty("USE_WORKAROUND_FOR_ABSTRACT"));
         timeout = Integer.parseInt(prop.getProperty("TIMEOUT"));
+        entrypointTimeout = Integer.parseInt(prop.getProperty("ENTRYPOINT_TIMEOUT", "0"));
         thresholdContextInsensitive = Integer.parseInt(prop.getProperty("THRESHOLD_CONTEXT_INSENSITIVE"));
         thresholdSkipEntrypoint = Integer.parseInt(prop.getProperty("THRESHOLD_SKIP_ENTRYPOINT"));
+        propagationOrder = prop.getProperty("PROPAGATION_ORDER", "FIFO").trim();
+        collapseEqCycles = Boolean.parseBoolean(prop.getProperty("COLLAPSE_EQ_CYCLES", "false"));
+        propagationThreads = Integer.parseInt(prop.getProperty("PROPAGATION_THREADS", "1"));
+        reportFormat = prop.getProperty("REPORT_FORMAT", "TEXT").trim();
+        textClassificationCacheSize = Integer.parseInt(prop.getProperty("TEXT_CLASSIFICATION_CACHE_SIZE", "100000"));
+        negationDetection = prop.getProperty("NEGATION_DETECTION", "HEURISTIC_PCFG").trim();
+        reportWorkers = Integer.parseInt(prop.getProperty("REPORT_WORKERS", "1"));
+        entrypointWorkers = Integer.parseInt(prop.getProperty("ENTRYPOINT_WORKERS", "1"));
+        entrypointBatching = prop.getProperty("ENTRYPOINT_BATCHING", "NONE").trim();
+        maxEntrypointsPerBatch = Integer.parseInt(prop.getProperty("MAX_ENTRYPOINTS_PER_BATCH", "50"));
+        instrumentedJarCacheDir = prop.getProperty("INSTRUMENTED_JAR_CACHE_DIR", "").trim();
+        incrementalStateFile = prop.getProperty("INCREMENTAL_STATE_FILE", "").trim();
+        suiteMode = prop.getProperty("SUITE_MODE", "PROCESS").trim();
+        suiteWorkers = Integer.parseInt(prop.getProperty("SUITE_WORKERS", "1"));
+        suiteJobMaxHeap = prop.getProperty("SUITE_JOB_MAX_HEAP", "").trim();
+        suiteJobTimeout = Integer.parseInt(prop.getProperty("SUITE_JOB_TIMEOUT", "0"));
         is.close();
         configParsed = true;
     }
@@ -131,6 +165,14 @@ public class SimpleConfig {
         return timeout;
     }
 
+    /**
+     * @return time budget of a single entrypoint in seconds, 0 for no limit
+     */
+    public static int getEntrypointTimeout() throws IOException {
+        parseConfig();
+        return entrypointTimeout;
+    }
+
     public static int getThresholdContextInsensitive() throws IOException {
         parseConfig();
         return thresholdContextInsensitive;
@@ -140,4 +182,131 @@ public class SimpleConfig {
         parseConfig();
         return thresholdSkipEntrypoint;
     }
+
+    /**
+     * @return order of the propagation worklist: FIFO, REVERSE_POSTORDER or LARGEST_DELTA
+     */
+    public static String getPropagationOrder() throws IOException {
+        parseConfig();
+        return propagationOrder;
+    }
+
+    public static boolean isCollapseEqCyclesEnabled() throws IOException {
+        parseConfig();
+        return collapseEqCycles;
+    }
+
+    /**
+     * @return number of threads that propagate the independent parts of a TypingGraph; a configured value of 0 or less
+     * uses all available processors
+     */
+    public static int getPropagationThreads() throws IOException {
+        parseConfig();
+        if (propagationThreads <= 0) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return propagationThreads;
+    }
+
+    public static String getReportFormat() throws IOException {
+        parseConfig();
+        return reportFormat;
+    }
+
+    /**
+     * @return maximum number of texts whose classification is cached across sinks; 0 or less disables the cache
+     */
+    public static int getTextClassificationCacheSize() throws IOException {
+        parseConfig();
+        return textClassificationCacheSize;
+    }
+
+    /**
+     * @return name of a {@link de.lmu.ifi.jvmbidtext.analysis.NegationDetector.Mode}
+     */
+    public static String getNegationDetection() throws IOException {
+        parseConfig();
+        return negationDetection;
+    }
+
+    /**
+     * @return number of sinks whose texts are collected and analyzed concurrently; a configured value of 0 or less
+     * uses all available processors
+     */
+    public static int getReportWorkers() throws IOException {
+        parseConfig();
+        if (reportWorkers <= 0) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return reportWorkers;
+    }
+
+    /**
+     * @return number of entrypoints that are analyzed concurrently; a configured value of 0 or less uses all
+     * available processors
+     */
+    public static int getEntrypointWorkers() throws IOException {
+        parseConfig();
+        if (entrypointWorkers <= 0) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return entrypointWorkers;
+    }
+
+    public static String getEntrypointBatching() throws IOException {
+        parseConfig();
+        return entrypointBatching;
+    }
+
+    public static int getMaxEntrypointsPerBatch() throws IOException {
+        parseConfig();
+        return maxEntrypointsPerBatch;
+    }
+
+    /**
+     * @return directory of the on-disk cache for instrumented Spring jar files; empty if the cache is disabled
+     */
+    public static String getInstrumentedJarCacheDir() throws IOException {
+        parseConfig();
+        return instrumentedJarCacheDir;
+    }
+
+    /**
+     * @return file with the state of the previous run for incremental analysis; empty if incremental analysis is
+     * disabled
+     */
+    public static String getIncrementalStateFile() throws IOException {
+        parseConfig();
+        return incrementalStateFile;
+    }
+
+    public static String getSuiteMode() throws IOException {
+        parseConfig();
+        return suiteMode;
+    }
+
+    /**
+     * @return number of test apps that SuiteMain analyzes concurrently; a configured value of 0 or less uses all
+     * available processors
+     */
+    public static int getSuiteWorkers() throws IOException {
+        parseConfig();
+        if (suiteWorkers <= 0) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return suiteWorkers;
+    }
+
+    public static String getSuiteJobMaxHeap() throws IOException {
+        parseConfig();
+        return suiteJobMaxHeap;
+    }
+
+    /**
+     * @return time in minutes after which SuiteMain kills the JVM of a test app; 0 for no limit
+     */
+    public static int getSuiteJobTimeout() throws IOException {
+        parseConfig();
+        return suiteJobTimeout;
+    }
 }
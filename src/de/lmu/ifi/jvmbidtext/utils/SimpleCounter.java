@@ -1,18 +0,0 @@
-package de.lmu.ifi.jvmbidtext.utils;
-
-public class SimpleCounter {
-	public int count;
-
-	SimpleCounter(int c) {
-		count = c;
-	}
-
-	public static SimpleCounter increment(SimpleCounter counter) {
-		if (counter == null) {
-			counter = new SimpleCounter(1);
-		} else {
-			counter.count++;
-		}
-		return counter;
-	}
-}
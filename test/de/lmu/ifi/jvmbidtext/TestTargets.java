@@ -0,0 +1,42 @@
+package de.lmu.ifi.jvmbidtext;
+
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Small applications for the tests, compiled from source with the compiler of the running JDK.
+ */
+public class TestTargets {
+
+    /**
+     * Compile the given classes into the folder "classes" below the given folder. Compiling again into the same folder
+     * replaces the classes, e.g. to change one class of the application between two analyses.
+     *
+     * @param sources source code by fully qualified class name
+     * @return the root folder of the compiled classes, which can be analyzed like the classes of an application
+     */
+    public static Path compile(Path folder, Map<String, String> sources) throws IOException {
+        Path sourceRoot = folder.resolve("src");
+        Path classes = folder.resolve("classes");
+        Files.createDirectories(classes);
+        // local variable names are part of the reported paths; release 8 compiles string concatenation to StringBuilder
+        // calls, the invokedynamic concatenation of later releases is not modeled by the analysis
+        List<String> args = new ArrayList<>(List.of("-g", "--release", "8", "-d", classes.toString()));
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            Path file = sourceRoot.resolve(source.getKey().replace('.', '/') + ".java");
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, source.getValue());
+            args.add(file.toString());
+        }
+        int result = ToolProvider.getSystemJavaCompiler().run(null, null, null, args.toArray(String[]::new));
+        if (result != 0) {
+            throw new IllegalStateException("Failed to compile the test application");
+        }
+        return classes;
+    }
+}
@@ -0,0 +1,91 @@
+package de.lmu.ifi.jvmbidtext.analysis;
+
+import de.lmu.ifi.jvmbidtext.TestTargets;
+import de.lmu.ifi.jvmbidtext.setup.ProgramAnalysis;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * An incremental analysis after a change must report the same as a full analysis of the changed application.
+ */
+class IncrementalAnalysisTest {
+    // onPrint reports the text that onStore writes into the field, onGreet does not share a field
+    private static final String VAULT = """
+            package app;
+
+            public class Vault {
+                private String value;
+
+                public void onStore(String input) {
+                    value = "%s: " + input;
+                }
+
+                public void onPrint() {
+                    System.out.println(value);
+                }
+
+                public void onGreet(String name) {
+                    System.out.println("Hello " + name + ", your email is verified");
+                }
+            }
+            """;
+
+    @TempDir
+    Path folder;
+
+    @AfterEach
+    void resetStateFile() {
+        IncrementalAnalysis.stateFileOverride = null;
+        AnalysisUtil.setReportFolder(AnalysisUtil.REPORT_FOLDER_NAME);
+    }
+
+    @Test
+    void reportsOfUnchangedEntrypointsThatReadAChangedFieldAreUpdated() throws Exception {
+        Path target = folder.resolve("target");
+        String stateFile = folder.resolve("state.ser").toString();
+
+        Path classes = TestTargets.compile(target, Map.of("app.Vault", VAULT.formatted("secret")));
+        Map<String, String> before = analyze(classes, "before", stateFile);
+
+        // only onStore changes, onPrint and onGreet reach unchanged methods
+        TestTargets.compile(target, Map.of("app.Vault", VAULT.formatted("passport")));
+        Map<String, String> incremental = analyze(classes, "incremental", stateFile);
+        Map<String, String> full = analyze(classes, "full", "");
+
+        assertNotEquals(before, full, "the change does not show in the reports");
+        assertEquals(full, incremental);
+    }
+
+    /**
+     * @param stateFile empty for a full analysis that does not store a state
+     * @return the reports by file name
+     */
+    private Map<String, String> analyze(Path classes, String name, String stateFile) throws Exception {
+        Path reportFolder = Files.createDirectories(folder.resolve(name));
+        IncrementalAnalysis.stateFileOverride = stateFile;
+        AnalysisUtil.setReportFolder(reportFolder.toString());
+        new ProgramAnalysis(classes.toString()).call();
+        return reports(reportFolder);
+    }
+
+    private static Map<String, String> reports(Path reportFolder) throws IOException {
+        Map<String, String> reports = new TreeMap<>();
+        try (Stream<Path> files = Files.list(reportFolder)) {
+            for (Path file : files.filter(file -> file.toString().endsWith(".txt")).toList()) {
+                reports.put(file.getFileName().toString(), Files.readString(file));
+            }
+        }
+        return reports;
+    }
+}
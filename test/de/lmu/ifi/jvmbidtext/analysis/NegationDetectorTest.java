@@ -0,0 +1,90 @@
+package de.lmu.ifi.jvmbidtext.analysis;
+
+import edu.stanford.nlp.ling.HasWord;
+import edu.stanford.nlp.ling.SentenceUtils;
+import edu.stanford.nlp.process.DocumentPreprocessor;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HEURISTIC_PCFG must decide every sentence like the PCFG parser, which it only skips for sentences without a
+ * negation word.
+ */
+class NegationDetectorTest {
+    private static final List<String> WITH_NEGATION_WORD = List.of(
+            "Do not log the password of the user.",
+            "Don't share your secret key with anyone.",
+            "Don\u2019t share your secret key with anyone.",
+            "You shouldn\u2019t print the access token.",
+            "The secret key wasnt found.",
+            "The password should not be written to the log.",
+            "Access tokens shall not be stored in plain text.",
+            "The access token could not be refreshed.",
+            "I do not know the account number of the user.",
+            "Never print the secret key.",
+            "The iban must not be empty.",
+            "No address found for the given user.",
+            "The account id is not valid.",
+            "Nobody may read the passport number.",
+            "The key cannot be found in the key store.",
+            "The email was sent without the phone number.");
+    private static final List<String> WITHOUT_NEGATION_WORD = List.of(
+            "User entered the password for the account.",
+            "Sending the email address of the customer to the server.",
+            "Invalid phone number, please try again.",
+            "The first name of the user is missing.",
+            "Your date of birth is required for the registration.",
+            "Storing the tax id of the applicant.",
+            "Please enter your passport number.",
+            "Gender and nationality of the user were updated.",
+            "password",
+            "Token expired");
+
+    @Test
+    void heuristicPcfgDecidesLikePcfg() {
+        NegationDetector heuristic = NegationDetector.of(NegationDetector.Mode.HEURISTIC_PCFG);
+        NegationDetector pcfg = NegationDetector.of(NegationDetector.Mode.PCFG);
+        List<String> texts = new ArrayList<>(WITH_NEGATION_WORD);
+        texts.addAll(WITHOUT_NEGATION_WORD);
+        for (List<? extends HasWord> sentence : sentences(texts)) {
+            assertEquals(pcfg.isNegated(sentence), heuristic.isNegated(sentence), sentence.toString());
+        }
+    }
+
+    @Test
+    void everyNegationOfCoreNlpIsPassedToTheFallback() {
+        // the words of the "neg" relation of CoreNLP, n[o'\u2019]?t and never in any case
+        NegationDetector heuristic = new HeuristicNegationDetector(sentence -> true);
+        for (String negation : List.of("not", "NOT", "n't", "N'T", "n\u2019t", "nt", "never", "Never")) {
+            List<? extends HasWord> sentence = SentenceUtils.toWordList("You", "should", negation, "log", "the", "key");
+            assertTrue(heuristic.isNegated(sentence), sentence.toString());
+        }
+    }
+
+    @Test
+    void sentencesWithoutNegationWordAreNotNegated() {
+        for (NegationDetector.Mode mode : NegationDetector.Mode.values()) {
+            NegationDetector detector = NegationDetector.of(mode);
+            for (List<? extends HasWord> sentence : sentences(WITHOUT_NEGATION_WORD)) {
+                assertFalse(detector.isNegated(sentence), mode + ": " + sentence);
+            }
+        }
+    }
+
+    private static List<List<? extends HasWord>> sentences(List<String> texts) {
+        List<List<? extends HasWord>> sentences = new ArrayList<>();
+        for (String text : texts) {
+            for (List<? extends HasWord> sentence : new DocumentPreprocessor(new StringReader(text))) {
+                sentences.add(sentence);
+            }
+        }
+        return sentences;
+    }
+}
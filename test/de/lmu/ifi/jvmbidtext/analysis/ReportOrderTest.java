@@ -0,0 +1,97 @@
+package de.lmu.ifi.jvmbidtext.analysis;
+
+import de.lmu.ifi.jvmbidtext.TestTargets;
+import de.lmu.ifi.jvmbidtext.setup.ProgramAnalysis;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The reports of sinks that are analyzed concurrently must be numbered and written like the ones of a sequential
+ * dump.
+ */
+class ReportOrderTest {
+    private static final String PROFILE = """
+            package app;
+
+            public class Profile {
+                private String email;
+
+                public void onRegister(String name, String mail) {
+                    email = mail;
+                    System.out.println("Registered user name " + name);
+                    System.out.println("email address: " + mail);
+                }
+
+                public void onLogin(String user, String password) {
+                    System.out.println("Login of " + user);
+                    System.out.println("secret key: " + password);
+                    System.out.println("last email: " + email);
+                }
+
+                public void onPayment(String iban, String amount) {
+                    System.out.println("Payment of " + amount);
+                    System.out.println("iban: " + iban);
+                    System.out.println("Receipt sent to " + email);
+                }
+
+                public void onLogout(String token) {
+                    System.out.println("access token: " + token);
+                    System.out.println("Bye");
+                }
+            }
+            """;
+
+    @TempDir
+    Path folder;
+
+    @AfterEach
+    void resetReportWorkers() {
+        AnalysisUtil.reportWorkersOverride = null;
+        AnalysisUtil.setReportFolder(AnalysisUtil.REPORT_FOLDER_NAME);
+    }
+
+    @Test
+    void concurrentReportsAreWrittenInTheSequentialOrder() throws Exception {
+        Path classes = TestTargets.compile(folder.resolve("target"), Map.of("app.Profile", PROFILE));
+
+        Map<String, String> sequential = analyze(classes, "sequential", 1);
+        Map<String, String> concurrent = analyze(classes, "concurrent", 4);
+
+        // otherwise the order is not tested
+        assertTrue(sequential.size() >= 4, "too few reports: " + sequential.keySet());
+        assertEquals(sequential, concurrent);
+    }
+
+    /**
+     * @return the bytes of the reports by file name, as ISO-8859-1 so that equal strings are equal bytes
+     */
+    private Map<String, String> analyze(Path classes, String name, int reportWorkers) throws Exception {
+        Path reportFolder = Files.createDirectories(folder.resolve(name));
+        AnalysisUtil.reportWorkersOverride = reportWorkers;
+        AnalysisUtil.setReportFolder(reportFolder.toString());
+        new ProgramAnalysis(classes.toString()).call();
+        return reports(reportFolder);
+    }
+
+    private static Map<String, String> reports(Path reportFolder) throws IOException {
+        Map<String, String> reports = new TreeMap<>();
+        try (Stream<Path> files = Files.list(reportFolder)) {
+            for (Path file : files.filter(file -> file.toString().endsWith(".txt")).toList()) {
+                reports.put(file.getFileName().toString(), Files.readString(file, StandardCharsets.ISO_8859_1));
+            }
+        }
+        return reports;
+    }
+}
@@ -0,0 +1,73 @@
+package de.lmu.ifi.jvmbidtext.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.regex.Matcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The single scan of {@link SensitiveTermMatcher} must find the same term as running the pattern of every term, in
+ * the order of the terms file, against the texts.
+ */
+class SensitiveTermMatcherTest {
+    // parts of the terms, of their forbidden prefixes and suffixes and of the texts that typically reach sinks
+    private static final String[] WORDS = {"account", "id", "bearer", "access", "token", "key", "secret", "first",
+            "name", "date", "of", "birth", "tax", "number", "social", "security", "passport", "class", "type",
+            "company", "bank", "e-mail", "mail", "phone", "address", "state", "zip", "code", "visa", "expiration",
+            "iban", "ssn", "user", "value", "the", "request", "page", "count", "oauth", "gov", "net", "worth"};
+    private static final String[] SEPARATORS = {"", "", "_", " ", "/", "-", ".", "=", "?", "&"};
+
+    @Test
+    void findsTheSameTermAsEveryPattern() {
+        SensitiveTerms terms = new SensitiveTerms();
+        SensitiveTermMatcher matcher = new SensitiveTermMatcher(terms);
+        Random random = new Random(42);
+        int found = 0;
+        for (int i = 0; i < 20000; i++) {
+            String text = randomText(random);
+            String lowercase = text.toLowerCase();
+            String split = text.replaceAll("([a-z])([A-Z])", "$1 $2").replace('_', ' ');
+            Optional<String> expected = findWithEveryPattern(terms, lowercase, split);
+            assertEquals(expected, matcher.find(lowercase, split), text);
+            if (expected.isPresent()) {
+                found++;
+            }
+        }
+        // otherwise only one of the two outcomes is compared
+        assertTrue(found > 1000 && found < 19000, found + " of the texts contain a term");
+    }
+
+    private static Optional<String> findWithEveryPattern(SensitiveTerms terms, String lowercase, String split) {
+        for (SensitiveTerms.SensitiveTerm term : terms) {
+            for (String text : List.of(lowercase, split)) {
+                Matcher matcher = term.pattern().matcher(text);
+                if (matcher.find()) {
+                    return Optional.of(matcher.group());
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static String randomText(Random random) {
+        StringBuilder text = new StringBuilder();
+        int words = 1 + random.nextInt(4);
+        for (int i = 0; i < words; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            if (i > 0) {
+                text.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+            }
+            switch (random.nextInt(4)) {
+                case 0 -> text.append(word.toUpperCase());
+                case 1 -> text.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+                default -> text.append(word);
+            }
+        }
+        return text.toString();
+    }
+}
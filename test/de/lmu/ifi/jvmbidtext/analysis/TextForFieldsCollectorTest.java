@@ -0,0 +1,65 @@
+package de.lmu.ifi.jvmbidtext.analysis;
+
+import de.lmu.ifi.jvmbidtext.TestTargets;
+import de.lmu.ifi.jvmbidtext.setup.ProgramAnalysis;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Texts reach a sink over a field that another entrypoint writes.
+ */
+class TextForFieldsCollectorTest {
+    private static final String VAULT = """
+            package app;
+
+            public class Vault {
+                private String value;
+
+                public void onStore(String input) {
+                    value = "secret: " + input;
+                }
+
+                public void onPrint() {
+                    System.out.println(value);
+                }
+            }
+            """;
+
+    @TempDir
+    Path folder;
+
+    @AfterEach
+    void resetReportFolder() {
+        AnalysisUtil.setReportFolder(AnalysisUtil.REPORT_FOLDER_NAME);
+    }
+
+    @Test
+    void textsWrittenIntoAFieldByAnotherEntrypointReachTheSink() throws Exception {
+        Path classes = TestTargets.compile(folder.resolve("target"), Map.of("app.Vault", VAULT));
+        Path reportFolder = Files.createDirectories(folder.resolve("report"));
+        AnalysisUtil.setReportFolder(reportFolder.toString());
+        new ProgramAnalysis(classes.toString()).call();
+
+        List<String> reports = new ArrayList<>();
+        try (Stream<Path> files = Files.list(reportFolder)) {
+            for (Path file : files.filter(file -> file.toString().endsWith(".txt")).toList()) {
+                reports.add(Files.readString(file));
+            }
+        }
+        // onStore has no sink, so the only report is the one of onPrint
+        assertEquals(1, reports.size(), reports.toString());
+        assertTrue(reports.getFirst().contains(" in [app.Vault.onPrint()V]"), reports.getFirst());
+        assertTrue(reports.getFirst().contains("******** secret: ********"), reports.getFirst());
+    }
+}
@@ -0,0 +1,171 @@
+package de.lmu.ifi.jvmbidtext.graph.propagation;
+
+import com.ibm.wala.ipa.callgraph.*;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.slicer.SDG;
+import com.ibm.wala.ipa.slicer.Statement;
+import com.ibm.wala.util.graph.Graph;
+import de.lmu.ifi.jvmbidtext.TestTargets;
+import de.lmu.ifi.jvmbidtext.analysis.AnalysisUtil;
+import de.lmu.ifi.jvmbidtext.graph.construction.TypingGraphBuilder;
+import de.lmu.ifi.jvmbidtext.graph.model.SimpleGraphNode;
+import de.lmu.ifi.jvmbidtext.graph.model.TypingGraph;
+import de.lmu.ifi.jvmbidtext.graph.model.TypingNode;
+import de.lmu.ifi.jvmbidtext.graph.model.TypingRecord;
+import de.lmu.ifi.jvmbidtext.setup.CustomClassHierarchyFactory;
+import de.lmu.ifi.jvmbidtext.setup.EntrypointDiscovery;
+import de.lmu.ifi.jvmbidtext.setup.SingleEntryPointAnalysis;
+import de.lmu.ifi.jvmbidtext.utils.AnalysisBudget;
+import de.lmu.ifi.jvmbidtext.utils.WalaUtil;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Collapsing the EQ cycles must not change the typing that the propagation computes for any node.
+ */
+class EqCycleCollapserTest {
+    private static final String ACCOUNTS = """
+            package app;
+
+            public class Accounts {
+                private String lastUser;
+
+                public void onLogin(String user, String password) {
+                    String current = user;
+                    for (int i = 0; i < 3; i++) {
+                        current = normalize(current);
+                    }
+                    lastUser = current;
+                    System.out.println("User " + current + " logged in");
+                    String copy = echo(echo(password));
+                    System.out.println("password: " + copy);
+                }
+
+                public void onReset(String token) {
+                    String label = "reset token";
+                    String value = pick(label, token);
+                    System.out.println(value);
+                    System.out.println(bounce(token, 3));
+                    StringBuilder builder = new StringBuilder();
+                    builder.append(echo(label)).append(lastUser);
+                    System.out.println(builder.toString());
+                }
+
+                private static String normalize(String s) {
+                    return s.trim();
+                }
+
+                private static String echo(String s) {
+                    return s;
+                }
+
+                private static String pick(String a, String b) {
+                    return a.isEmpty() ? b : echo(a);
+                }
+
+                private static String bounce(String s, int n) {
+                    return n == 0 ? s : bounce(echo(s), n - 1);
+                }
+            }
+            """;
+
+    private static final AnalysisBudget BUDGET = AnalysisBudget.unlimited();
+    private static ClassHierarchy classHierarchy;
+    private static AnalysisCache cache;
+    private static List<Entrypoint> entrypoints;
+
+    @BeforeAll
+    static void buildClassHierarchy(@TempDir Path folder) throws Exception {
+        String target = TestTargets.compile(folder, Map.of("app.Accounts", ACCOUNTS)).toString();
+        cache = new AnalysisCacheImpl();
+        classHierarchy = new CustomClassHierarchyFactory().make(target, cache, false);
+        WalaUtil.setClassHierarchy(classHierarchy);
+        AnalysisUtil.reset();
+        entrypoints = new ArrayList<>(EntrypointDiscovery.discover(classHierarchy, Optional.empty()));
+        assertFalse(entrypoints.isEmpty(), "no entrypoints discovered");
+    }
+
+    @Test
+    void typingIsTheSameAsWithoutCollapsing() throws Exception {
+        int collapsed = 0;
+        for (Entrypoint entrypoint : entrypoints) {
+            TypingGraph expected = construct(buildSdg(entrypoint));
+            new Propagator(expected, BUDGET, PropagationWorklist.Order.FIFO, false).propagate();
+
+            TypingGraph actual = construct(buildSdg(entrypoint));
+            collapsed += new EqCycleCollapser(actual).collapse();
+            new Propagator(actual, BUDGET, PropagationWorklist.Order.FIFO, false).propagate();
+
+            assertEquals(typing(expected), typing(actual), entrypoint.getMethod().getSignature());
+        }
+        // otherwise the comparison shows nothing
+        assertTrue(collapsed > 0, "no EQ cycles collapsed in the test application");
+    }
+
+    /**
+     * The nodes of an SDG are created while it is traversed, so every TypingGraph is built from its own SDG.
+     */
+    private static EntrypointSdg buildSdg(Entrypoint entrypoint) throws Exception {
+        AnalysisOptions options = new AnalysisOptions(classHierarchy.getScope(), Set.of(entrypoint));
+        options.setReflectionOptions(AnalysisOptions.ReflectionOptions.FULL);
+        SSAPropagationCallGraphBuilder cgBuilder = Util.makeVanillaNCFABuilder(1, options, cache, classHierarchy);
+        CallGraph cg = SingleEntryPointAnalysis.buildCallGraph(options, cgBuilder, BUDGET);
+        SDG<InstanceKey> sdg = SingleEntryPointAnalysis.buildSDG(cg, cgBuilder);
+        return new EntrypointSdg(entrypoint, SingleEntryPointAnalysis.pruneSDG(sdg), cg.getFakeRootNode());
+    }
+
+    private static TypingGraph construct(EntrypointSdg sdg) {
+        return new TypingGraphBuilder(sdg.entrypoint(), sdg.sdg(), sdg.fakeRootNode(), BUDGET)
+                .buildWithoutPropagation();
+    }
+
+    /**
+     * @return the kind and the typing of every node, by the CG node and value number of the node
+     */
+    private static Map<String, String> typing(TypingGraph graph) {
+        Map<String, String> typing = new TreeMap<>();
+        Iterator<TypingNode> nodes = graph.iterateNodes();
+        while (nodes.hasNext()) {
+            TypingNode node = nodes.next();
+            TypingRecord rec = graph.getTypingRecord(node.getGraphNodeId());
+            String typingOfNode = "kind " + node.getKind();
+            if (rec != null) {
+                Set<String> constants = new TreeSet<>();
+                rec.getTypingConstants().forEach(constant -> constants.add(String.valueOf(constant)));
+                typingOfNode += ", texts " + new TreeSet<>(rec.getTypingTexts().keySet()) +
+                        ", constants " + constants +
+                        ", inputs " + describeAll(graph, rec.getInputFields().keySet()) +
+                        ", outputs " + describeAll(graph, rec.getOutputFields().keySet());
+            }
+            typing.put(describe(node), typingOfNode);
+        }
+        return typing;
+    }
+
+    private static Set<String> describeAll(TypingGraph graph, Set<SimpleGraphNode> nodes) {
+        Set<String> descriptions = new TreeSet<>();
+        for (SimpleGraphNode node : nodes) {
+            descriptions.add(describe(graph.getNode(node.nodeId())));
+        }
+        return descriptions;
+    }
+
+    // graph node ids depend on the construction order, so nodes are compared by what they stand for
+    private static String describe(TypingNode node) {
+        return node.getCgNode() + " v" + node.getValue() + (node.isField() ? " " + node.getFieldRef() : "");
+    }
+
+    private record EntrypointSdg(Entrypoint entrypoint, Graph<Statement> sdg, CGNode fakeRootNode) {
+    }
+}